@@ -0,0 +1,114 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the ChessGame calls the server makes for every MAKE_MOVE.
+ * <p>
+ * Each benchmark works on a fresh copy of the position so cached analysis from a previous invocation is not
+ * reused; copyGame measures that copy on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+    @Param({"startpos", "kiwipete", "endgame", "promotions"})
+    public String position;
+
+    private ChessGame game;
+    private ChessMove move;
+    private int packedMove;
+    private final MoveList buffer = new MoveList();
+    private static final Set<StagedMoves.Stage> TACTICAL = EnumSet.of(StagedMoves.Stage.CAPTURES, StagedMoves.Stage.PROMOTIONS);
+
+    @Setup
+    public void setup() {
+        game = ChessGame.fromFen(Positions.BY_NAME.get(position));
+        long pieces = game.getBoard().getTeamBitboard(game.getTeamTurn());
+        while (move == null && pieces != 0) {
+            ChessPosition start = ChessPosition.fromSquare(Long.numberOfTrailingZeros(pieces));
+            pieces &= pieces - 1;
+            move = game.validMoves(start).stream().findFirst().orElse(null);
+        }
+        packedMove = Move.of(move, game.getBoard());
+    }
+
+    @Benchmark
+    public ChessGame copyGame() {
+        return new ChessGame(game);
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        ChessGame copy = new ChessGame(game);
+        long pieces = copy.getBoard().getTeamBitboard(copy.getTeamTurn());
+        while (pieces != 0) {
+            blackhole.consume(copy.validMoves(ChessPosition.fromSquare(Long.numberOfTrailingZeros(pieces))));
+            pieces &= pieces - 1;
+        }
+    }
+
+    @Benchmark
+    public int legalMoves() {
+        ChessGame copy = new ChessGame(game);
+        buffer.clear();
+        copy.legalMoves(buffer);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int firstStagedMove() {
+        return new ChessGame(game).stagedMoves().nextMove();
+    }
+
+    @Benchmark
+    public int stagedCaptures() {
+        StagedMoves moves = new ChessGame(game).stagedMoves(TACTICAL);
+        int count = 0;
+        while (moves.hasNext()) {
+            moves.nextInt();
+            ++count;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        ChessGame copy = new ChessGame(game);
+        copy.makeMove(move);
+        return copy;
+    }
+
+    @Benchmark
+    public long makeUnmakeMove() {
+        // Same game every time, no copy needed
+        game.makeMove(packedMove);
+        long key = game.getBoard().getPieceKey();
+        game.unmakeMove();
+        return key;
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return new ChessGame(game).isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return new ChessGame(game).isInStalemate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public ChessGame.GameStatus evaluateStatus() {
+        return new ChessGame(game).evaluateStatus();
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scoring a position: the incrementally maintained evaluate() against a full rescan of the board.
+ * <p>
+ * The MakeUnmake variants score the position reached after each legal move, the way a search does, so the
+ * incremental sums and the pawn cache see a stream of changing positions instead of one cached board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+    @Param({"startpos", "kiwipete", "endgame", "promotions"})
+    public String position;
+
+    private ChessGame game;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() {
+        game = ChessGame.fromFen(Positions.BY_NAME.get(position));
+        game.legalMoves(moves);
+    }
+
+    @Benchmark
+    public int incremental() {
+        return game.evaluate();
+    }
+
+    @Benchmark
+    public int fullRescan() {
+        return Evaluation.fullRescan(game);
+    }
+
+    @Benchmark
+    public int incrementalMakeUnmake() {
+        int sum = 0;
+        for (int i = 0; i < moves.size(); ++i) {
+            game.makeMove(moves.get(i));
+            sum += game.evaluate();
+            game.unmakeMove();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int fullRescanMakeUnmake() {
+        int sum = 0;
+        for (int i = 0; i < moves.size(); ++i) {
+            game.makeMove(moves.get(i));
+            sum += Evaluation.fullRescan(game);
+            game.unmakeMove();
+        }
+        return sum;
+    }
+}
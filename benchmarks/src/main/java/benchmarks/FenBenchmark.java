@@ -0,0 +1,81 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.MoveList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reading and writing FEN over a large corpus of positions, the way bulk tools and perft suites
+ * load them.
+ * <p>
+ * The corpus is built once from seeded random games, so it has castling rights lost part way, en passant
+ * squares, promotions and real move counters. Each invocation takes the next position, so the strings do not
+ * all sit in cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FenBenchmark {
+    // Games written back to FEN; a ChessGame is far bigger than its FEN, so these are a slice of the corpus
+    private static final int GAMES = 1 << 16;
+    private static final int MAX_GAME_PLIES = 200;
+
+    @Param({"1000000"})
+    public int corpusSize;
+
+    private String[] corpus;
+    private ChessGame[] games;
+    private int next;
+
+    @Setup
+    public void setup() {
+        corpus = randomPositions(corpusSize, new Random(19));
+        games = new ChessGame[Math.min(GAMES, corpusSize)];
+        for (int i = 0; i < games.length; ++i) {
+            games[i] = ChessGame.fromFen(corpus[i]);
+        }
+    }
+
+    @Benchmark
+    public ChessGame fromFen() {
+        String fen = corpus[next];
+        next = next + 1 == corpus.length ? 0 : next + 1;
+        return ChessGame.fromFen(fen);
+    }
+
+    @Benchmark
+    public String toFen() {
+        ChessGame game = games[next];
+        next = next + 1 == games.length ? 0 : next + 1;
+        return game.toFen();
+    }
+
+    /**
+     * Plays random legal moves from the standard positions, writing down every position reached
+     */
+    static String[] randomPositions(int count, Random random) {
+        String[] starts = Positions.BY_NAME.values().toArray(new String[0]);
+        String[] positions = new String[count];
+        MoveList moves = new MoveList();
+        ChessGame game = null;
+        for (int i = 0; i < count; ++i) {
+            if (game != null) {
+                moves.clear();
+                game.legalMoves(moves);
+            }
+            if (game == null || moves.isEmpty() || game.getHistorySize() >= MAX_GAME_PLIES) {
+                game = ChessGame.fromFen(starts[random.nextInt(starts.length)]);
+            } else {
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+            positions[i] = game.toFen();
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of move validation and highlighting with and without the legal move cache shared between games.
+ * Every invocation asks about the same position on a fresh copy, as games reaching a common opening do, so
+ * with the cache on every lookup after the first is a hit. Run with -t to see several threads share it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveCacheBenchmark {
+    @Param({"startpos", "kiwipete"})
+    public String position;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private ChessGame game;
+    private ChessMove move;
+
+    @Setup
+    public void setup() {
+        ChessGame.setMoveCache(cached ? new MoveCache(16L * 1024 * 1024) : null);
+        game = ChessGame.fromFen(Positions.BY_NAME.get(position));
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        move = Move.toChessMove(moves.get(moves.size() - 1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        ChessGame.setMoveCache(null);
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        ChessGame copy = new ChessGame(game);
+        long pieces = copy.getBoard().getTeamBitboard(copy.getTeamTurn());
+        while (pieces != 0) {
+            blackhole.consume(copy.validMoves(ChessPosition.fromSquare(Long.numberOfTrailingZeros(pieces))));
+            pieces &= pieces - 1;
+        }
+    }
+
+    @Benchmark
+    public boolean isLegal() {
+        return new ChessGame(game).isLegal(move);
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import chess.*;
+import chess.nnue.Network;
+import chess.nnue.NnueEvaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluations per second of the network evaluator, updating its accumulators from each move's changes
+ * against rebuilding them from every piece, with and without the Vector API.
+ * <p>
+ * Each invocation makes every legal move, scores the position and takes the move back, scoring twice per
+ * move like a search visiting a child and returning. Pass -p weights=path/to/file to time a real network;
+ * otherwise a random one of the given hidden size is used, which costs the same.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class NnueBenchmark {
+    @Param({"startpos", "kiwipete", "endgame"})
+    public String position;
+
+    @Param({"true", "false"})
+    public boolean vectorized;
+
+    @Param({"256"})
+    public int hiddenSize;
+
+    @Param({""})
+    public String weights;
+
+    private ChessGame game;
+    private NnueEvaluator evaluator;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() throws IOException {
+        Network network = weights.isEmpty() ? Network.random(hiddenSize, 1) : Network.load(Path.of(weights));
+        evaluator = new NnueEvaluator(network, vectorized);
+        if (evaluator.isVectorized() != vectorized) {
+            throw new IllegalStateException("Run with --add-modules=jdk.incubator.vector to time the Vector API");
+        }
+        game = ChessGame.fromFen(Positions.BY_NAME.get(position));
+        game.legalMoves(moves);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(64)
+    public int incremental() {
+        int sum = 0;
+        for (int i = 0; i < 32; ++i) {
+            int move = moves.get(i % moves.size());
+            game.makeMove(move);
+            sum += evaluator.evaluate(game);
+            game.unmakeMove();
+            sum += evaluator.evaluate(game);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(64)
+    public int fullRefresh() {
+        int sum = 0;
+        for (int i = 0; i < 32; ++i) {
+            int move = moves.get(i % moves.size());
+            game.makeMove(move);
+            sum += evaluator.evaluateFromScratch(game);
+            game.unmakeMove();
+            sum += evaluator.evaluateFromScratch(game);
+        }
+        return sum;
+    }
+}
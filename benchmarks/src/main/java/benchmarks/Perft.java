@@ -0,0 +1,140 @@
+package benchmarks;
+
+import chess.*;
+
+import java.util.List;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth and compares them against published values.
+ * <p>
+ * Run with {@code java -cp benchmarks/target/benchmarks.jar benchmarks.Perft}, optionally passing the deepest depth
+ * to search.
+ * Exits with a non-zero status if any count is wrong.
+ */
+public class Perft {
+    /**
+     * A position and the number of leaf nodes it has at a depth
+     */
+    public record PerftPosition(String name, String fen, int depth, long nodes) {
+    }
+
+    public static final List<PerftPosition> SUITE = List.of(
+            new PerftPosition("startpos", Positions.STARTPOS, 1, 20),
+            new PerftPosition("startpos", Positions.STARTPOS, 2, 400),
+            new PerftPosition("startpos", Positions.STARTPOS, 3, 8902),
+            new PerftPosition("startpos", Positions.STARTPOS, 4, 197281),
+            new PerftPosition("startpos", Positions.STARTPOS, 5, 4865609),
+            new PerftPosition("kiwipete", Positions.KIWIPETE, 1, 48),
+            new PerftPosition("kiwipete", Positions.KIWIPETE, 2, 2039),
+            new PerftPosition("kiwipete", Positions.KIWIPETE, 3, 97862),
+            new PerftPosition("kiwipete", Positions.KIWIPETE, 4, 4085603),
+            new PerftPosition("endgame", Positions.ENDGAME, 1, 14),
+            new PerftPosition("endgame", Positions.ENDGAME, 2, 191),
+            new PerftPosition("endgame", Positions.ENDGAME, 3, 2812),
+            new PerftPosition("endgame", Positions.ENDGAME, 4, 43238),
+            new PerftPosition("endgame", Positions.ENDGAME, 5, 674624),
+            new PerftPosition("promotions", Positions.PROMOTIONS, 1, 6),
+            new PerftPosition("promotions", Positions.PROMOTIONS, 2, 264),
+            new PerftPosition("promotions", Positions.PROMOTIONS, 3, 9467),
+            new PerftPosition("promotions", Positions.PROMOTIONS, 4, 422333),
+            new PerftPosition("middlegame", Positions.MIDDLEGAME, 1, 44),
+            new PerftPosition("middlegame", Positions.MIDDLEGAME, 2, 1486),
+            new PerftPosition("middlegame", Positions.MIDDLEGAME, 3, 62379),
+            new PerftPosition("middlegame", Positions.MIDDLEGAME, 4, 2103487),
+            // En passant edge cases
+            new PerftPosition("illegal ep, pinned on row", "3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1", 6, 1134888),
+            new PerftPosition("illegal ep, pinned on diagonal", "8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1", 6, 1015133),
+            new PerftPosition("ep capture gives check", "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1", 6, 1440467),
+            // Castling edge cases
+            new PerftPosition("short castle gives check", "5k2/8/8/8/8/8/8/4K2R w K - 0 1", 6, 661072),
+            new PerftPosition("long castle gives check", "3k4/8/8/8/8/8/8/R3K3 w Q - 0 1", 6, 803711),
+            new PerftPosition("castling rights", "r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1", 4, 1274206),
+            new PerftPosition("castling prevented", "r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1", 4, 1720476),
+            // Promotion edge cases
+            new PerftPosition("promote out of check", "2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1", 6, 3821001),
+            new PerftPosition("promote to give check", "4k3/1P6/8/8/8/8/K7/8 w - - 0 1", 6, 217342),
+            new PerftPosition("underpromote to give check", "8/P1k5/K7/8/8/8/8/8 w - - 0 1", 6, 92683),
+            // Check, mate and stalemate edge cases
+            new PerftPosition("discovered check", "8/8/1P2K3/8/2n5/1q6/8/5k2 b - - 0 1", 5, 1004658),
+            new PerftPosition("self stalemate", "K1k5/8/P7/8/8/8/8/8 w - - 0 1", 6, 2217),
+            new PerftPosition("stalemate and checkmate", "8/k1P5/8/1K6/8/8/8/8 w - - 0 1", 7, 567584),
+            new PerftPosition("stalemate and checkmate", "8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1", 4, 23527)
+    );
+
+    /**
+     * Counts the leaf nodes of the legal move tree
+     *
+     * @param game  the position to start from; it is left as it was found
+     * @param depth how many moves deep to search
+     * @return The number of move sequences of exactly that length
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        // The last ply only needs counting
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); ++i) {
+            game.makeMove(moves.get(i));
+            nodes += perft(game, depth - 1);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the same leaf nodes as {@link #perft}, pulling moves from {@link ChessGame#stagedMoves()} instead
+     * of generating them all at once
+     */
+    public static long stagedPerft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        StagedMoves moves = game.stagedMoves();
+        while (moves.hasNext()) {
+            int move = moves.nextInt();
+            game.makeMove(move);
+            nodes += stagedPerft(game, depth - 1);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : Integer.MAX_VALUE;
+        boolean allPassed = true;
+        long totalNodes = 0;
+        long totalNanos = 0;
+
+        System.out.printf("%-32s %5s %12s %12s %10s %14s%n", "position", "depth", "nodes", "expected", "ms", "nodes/second");
+        for (PerftPosition position : SUITE) {
+            if (position.depth() > maxDepth) {
+                continue;
+            }
+            ChessGame game = ChessGame.fromFen(position.fen());
+            long start = System.nanoTime();
+            long nodes = perft(game, position.depth());
+            long elapsed = System.nanoTime() - start;
+            totalNodes += nodes;
+            totalNanos += elapsed;
+
+            boolean passed = nodes == position.nodes();
+            allPassed &= passed;
+            System.out.printf("%-32s %5d %12d %12d %10.1f %14.0f%s%n",
+                    position.name(), position.depth(), nodes, position.nodes(),
+                    elapsed / 1e6, nodes / (elapsed / 1e9),
+                    passed ? "" : "  MISMATCH");
+        }
+        System.out.printf("Total: %d nodes in %.1f ms, %.0f nodes/second%n",
+                totalNodes, totalNanos / 1e6, totalNodes / (totalNanos / 1e9));
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+}
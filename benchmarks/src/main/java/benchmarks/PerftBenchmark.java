@@ -0,0 +1,35 @@
+package benchmarks;
+
+import chess.ChessGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to walk a whole legal move tree, which exercises generation, legality checks and making moves together
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+    @Param({"startpos", "kiwipete", "endgame", "promotions", "middlegame"})
+    public String position;
+
+    @Param({"3"})
+    public int depth;
+
+    private ChessGame game;
+
+    @Setup
+    public void setup() {
+        game = ChessGame.fromFen(Positions.BY_NAME.get(position));
+    }
+
+    @Benchmark
+    public long perft() {
+        return Perft.perft(game, depth);
+    }
+}
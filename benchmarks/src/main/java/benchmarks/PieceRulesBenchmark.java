@@ -0,0 +1,68 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the pieceRules generators, one benchmark invocation per piece of the chosen type on the board
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceRulesBenchmark {
+    @Param({"kiwipete", "promotions"})
+    public String position;
+
+    @Param({"KING", "QUEEN", "BISHOP", "KNIGHT", "ROOK", "PAWN"})
+    public ChessPiece.PieceType type;
+
+    private ChessBoard board;
+    private final List<ChessPosition> squares = new ArrayList<>();
+    private final List<ChessPiece> pieces = new ArrayList<>();
+    private final List<ChessMove> buffer = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        board = ChessGame.fromFen(Positions.BY_NAME.get(position)).getBoard();
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            long mask = board.getBitboard(color, type);
+            while (mask != 0) {
+                ChessPosition square = ChessPosition.fromSquare(Long.numberOfTrailingZeros(mask));
+                squares.add(square);
+                pieces.add(board.getPiece(square));
+                mask &= mask - 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        for (int i = 0; i < squares.size(); ++i) {
+            blackhole.consume(pieces.get(i).pieceMoves(board, squares.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void pieceMovesIntoBuffer(Blackhole blackhole) {
+        for (int i = 0; i < squares.size(); ++i) {
+            buffer.clear();
+            pieces.get(i).pieceMoves(board, squares.get(i), -1L, buffer);
+            blackhole.consume(buffer.size());
+        }
+    }
+
+    @Benchmark
+    public void pieceTargets(Blackhole blackhole) {
+        for (int i = 0; i < squares.size(); ++i) {
+            blackhole.consume(pieces.get(i).pieceTargets(board, squares.get(i)));
+        }
+    }
+}
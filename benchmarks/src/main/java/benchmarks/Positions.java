@@ -0,0 +1,28 @@
+package benchmarks;
+
+import java.util.Map;
+
+/**
+ * Standard test positions, written in Forsyth-Edwards Notation (FEN)
+ */
+public final class Positions {
+    public static final String STARTPOS = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    public static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    public static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    public static final String PROMOTIONS = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    public static final String MIDDLEGAME = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    /**
+     * The positions benchmarks can select with a name parameter
+     */
+    public static final Map<String, String> BY_NAME = Map.of(
+            "startpos", STARTPOS,
+            "kiwipete", KIWIPETE,
+            "endgame", ENDGAME,
+            "promotions", PROMOTIONS,
+            "middlegame", MIDDLEGAME
+    );
+
+    private Positions() {
+    }
+}
@@ -0,0 +1,67 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how the parallel search scales: time to reach a fixed depth and nodes per second, for 1 to N threads.
+ * <p>
+ * Run with {@code java -cp benchmarks/target/benchmarks.jar benchmarks.SearchScaling [threads] [depth] [hashMB]}.
+ * Threads defaults to the number of cores. Each run starts from an empty transposition table.
+ */
+public final class SearchScaling {
+    private static final List<String> POSITIONS = List.of(
+            Positions.STARTPOS,
+            Positions.KIWIPETE,
+            Positions.MIDDLEGAME,
+            Positions.ENDGAME
+    );
+
+    private SearchScaling() {
+    }
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+        int hashMegabytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        // Warm up the JIT so the single thread run is not penalized
+        new Engine(hashMegabytes).search(ChessGame.fromFen(Positions.KIWIPETE), SearchLimits.depth(Math.min(depth, 7)));
+
+        System.out.printf("Depth %d, %d MB hash%n", depth, hashMegabytes);
+        System.out.printf("%7s %12s %10s %14s %12s %12s%n", "threads", "nodes", "ms", "nodes/second", "speedup", "nps scaling");
+        double baseMillis = 0;
+        double baseNps = 0;
+        // Powers of two, then the full count
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+        for (int threads : threadCounts) {
+            long nodes = 0;
+            long nanos = 0;
+            for (String fen : POSITIONS) {
+                ChessGame game = ChessGame.fromFen(fen);
+                Engine engine = new Engine(hashMegabytes);
+                long start = System.nanoTime();
+                SearchResult result = engine.search(game, SearchLimits.depth(depth), threads);
+                nanos += System.nanoTime() - start;
+                nodes += result.nodes();
+            }
+            double millis = nanos / 1e6;
+            double nps = nodes / (nanos / 1e9);
+            if (threads == 1) {
+                baseMillis = millis;
+                baseNps = nps;
+            }
+            System.out.printf("%7d %12d %10.1f %14.0f %11.2fx %11.2fx%n",
+                    threads, nodes, millis, nps, baseMillis / millis, nps / baseNps);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import benchmarks.Perft;
+import chess.ChessGame;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.stream.Stream;
+
+public class PerftTests {
+    // Keep the test run short; the full suite runs from benchmarks.Perft
+    private static final long MAX_NODES = 250_000;
+
+    @TestFactory
+    public Stream<DynamicTest> perftSuite() {
+        return Perft.SUITE.stream()
+                .filter(position -> position.nodes() <= MAX_NODES)
+                .map(position -> DynamicTest.dynamicTest(
+                        position.name() + " depth " + position.depth(),
+                        () -> Assertions.assertEquals(position.nodes(),
+                                Perft.perft(ChessGame.fromFen(position.fen()), position.depth()),
+                                "Wrong number of leaf nodes")
+                ));
+    }
+
+    @TestFactory
+    public Stream<DynamicTest> stagedPerftSuite() {
+        return Perft.SUITE.stream()
+                .filter(position -> position.nodes() <= MAX_NODES)
+                .map(position -> DynamicTest.dynamicTest(
+                        position.name() + " depth " + position.depth(),
+                        () -> Assertions.assertEquals(position.nodes(),
+                                Perft.stagedPerft(ChessGame.fromFen(position.fen()), position.depth()),
+                                "Wrong number of leaf nodes from staged moves")
+                ));
+    }
+}
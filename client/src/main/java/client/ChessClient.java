@@ -1,6 +1,7 @@
 package client;
 
 import chess.*;
+import chess.book.BookMove;
 import chess.dataModel.GameData;
 import chess.dataModel.request.*;
 import chess.dataModel.response.*;
@@ -8,8 +9,10 @@ import client.exception.ResponseException;
 import client.ui.PrintConfig;
 import com.google.gson.Gson;
 import org.glassfish.tyrus.core.WebSocketException;
+import webSocketMessages.serverMessages.BookMoves;
 import webSocketMessages.serverMessages.Error;
 import webSocketMessages.serverMessages.LoadGame;
+import webSocketMessages.serverMessages.MateSolution;
 import webSocketMessages.serverMessages.Notification;
 import webSocketMessages.serverMessages.ServerMessage;
 
@@ -108,6 +111,14 @@ public class ChessClient implements MessageHandler.Whole<String> {
                     resign();
                     break;
                 }
+                case "book": {
+                    book();
+                    break;
+                }
+                case "mate": {
+                    mate(params);
+                    break;
+                }
                 default: {
                     this.output.output(help() + '\n');
                     this.output.prompt();
@@ -139,6 +150,14 @@ public class ChessClient implements MessageHandler.Whole<String> {
                 printError(new Gson().fromJson(s, Error.class));
                 break;
             }
+            case BOOK_MOVES: {
+                printBookMoves(new Gson().fromJson(s, BookMoves.class));
+                break;
+            }
+            case MATE_SOLUTION: {
+                printMateSolution(new Gson().fromJson(s, MateSolution.class));
+                break;
+            }
         }
     }
 
@@ -155,6 +174,35 @@ public class ChessClient implements MessageHandler.Whole<String> {
         this.output.prompt();
     }
 
+    private void printBookMoves(BookMoves message) {
+        if (message.getMoves().isEmpty()) {
+            this.output.output(SET_TEXT_COLOR_BLUE + "\rThis position is not in the opening book\n");
+        } else {
+            int total = message.getMoves().stream().mapToInt(BookMove::weight).sum();
+            this.output.output(SET_TEXT_COLOR_BLUE + "\rBook moves:\n" + message.getMoves().stream()
+                    .map(move -> String.format("  %s to %s (%d%%)",
+                            move.move().getStartPosition(),
+                            move.move().getEndPosition(),
+                            total == 0 ? 0 : move.weight() * 100 / total))
+                    .collect(Collectors.joining("\n")) + '\n');
+        }
+        this.output.prompt();
+    }
+
+    private void printMateSolution(MateSolution message) {
+        String text = switch (message.getOutcome()) {
+            case MATE -> String.format("Mate in %d: %s", message.getMoves(), message.getLine().stream()
+                    .map(move -> move.getStartPosition() + " to " + move.getEndPosition())
+                    .collect(Collectors.joining(", ")));
+            case NO_MATE -> String.format("There is no forced mate in %d", message.getMoves());
+            case UNKNOWN -> message.getMoves() == 0
+                    ? "No mate was found in time"
+                    : String.format("No mate was found in time, but there is none in %d", message.getMoves());
+        };
+        this.output.output(SET_TEXT_COLOR_BLUE + '\r' + text + '\n');
+        this.output.prompt();
+    }
+
     private void printError(Error message) {
         this.output.output("ERROR: " + message.getErrorMessage() + '\n');
         this.output.prompt();
@@ -197,11 +245,12 @@ public class ChessClient implements MessageHandler.Whole<String> {
 
     private String create(String[] params) throws ResponseException {
         assertLoggedIn();
-        if (params.length != 1) {
-            throw new ResponseException(400, "Expected: <NAME>");
+        if (params.length != 1 && params.length != 2) {
+            throw new ResponseException(400, "Expected: <NAME> [<COMPUTER COLOR>]");
         }
         CreateGameResponse response = serverFacade.createGame(new CreateGameRequest(
-                params[0]
+                params[0],
+                params.length == 2 ? params[1].toUpperCase() : null
         ));
         return String.format("Successfully created game with ID: %d", response.gameID());
     }
@@ -298,6 +347,28 @@ public class ChessClient implements MessageHandler.Whole<String> {
         serverFacade.resign(latestGame.gameID());
     }
 
+    private void book() throws ResponseException {
+        assertPlaying();
+        serverFacade.getBookMoves(latestGame.gameID());
+    }
+
+    private void mate(String[] params) throws ResponseException {
+        // Players may not have the solver find their moves; the server also refuses it until the game is over
+        if (state == State.PLAYING) {
+            throw new ResponseException(400, "Mates cannot be looked for while playing");
+        }
+        assertObserving();
+        int moves = 3;
+        if (params.length > 0) {
+            try {
+                moves = Integer.parseInt(params[0]);
+            } catch (NumberFormatException ex) {
+                throw new ResponseException(400, "Expected: [MOVES]");
+            }
+        }
+        serverFacade.findMate(latestGame.gameID(), moves);
+    }
+
     private String help() {
         if (state == State.LOGGED_OUT) {
             return """
@@ -308,7 +379,7 @@ public class ChessClient implements MessageHandler.Whole<String> {
                     help - what you're looking at now""";
         } else if (state == State.LOGGED_IN) {
             return """
-                    create <NAME> - create a game with the given name
+                    create <NAME> [WHITE|BLACK] - create a game with the given name, optionally against the computer playing that color
                     list - list games
                     join <ID> [WHITE|BLANK] - join a game
                     observe <ID> - spectate a game
@@ -321,6 +392,7 @@ public class ChessClient implements MessageHandler.Whole<String> {
                     move <START_POSITION> <END_POSITION> [QUEEN|ROOK|BISHOP|KNIGHT|blank] - make a move (i.e. move C2 C4). Include the promotion piece as an argument when necessary.
                     highlight <position> - show the valid moves of the piece at the given position (i.e. highlight C4)
                     unicode [TRUE|FALSE] - print with unicode if true or regular characters if false
+                    book - list the opening book's moves for the current position
                     leave - leave the game
                     resign - forfeit the game
                     help - what you're looking at now""";
@@ -328,6 +400,7 @@ public class ChessClient implements MessageHandler.Whole<String> {
         return """
                 redraw - redraw the chess board
                 highlight <position> - show the valid moves of the piece at the given position (i.e. highlight C4)
+                mate [MOVES] - once the game is over, look for a forced mate by the side to move, in at most 3 or the given number of moves
                 leave - leave the game
                 help - what you're looking at now""";
     }
@@ -98,4 +98,19 @@ public class ServerFacade {
                 gameID
         ));
     }
+
+    public void getBookMoves(int gameID) throws ResponseException {
+        webSocketCommunicator.sendMessage(new GetBookMoves(
+                authToken,
+                gameID
+        ));
+    }
+
+    public void findMate(int gameID, int moves) throws ResponseException {
+        webSocketCommunicator.sendMessage(new FindMate(
+                authToken,
+                gameID,
+                moves
+        ));
+    }
 }
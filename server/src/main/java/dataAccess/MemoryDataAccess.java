@@ -4,43 +4,42 @@ import chess.dataModel.AuthData;
 import chess.dataModel.GameData;
 import chess.dataModel.UserData;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Keeps everything in memory. Websocket and bot worker threads read and update games at the same time, so
+ * each table is a concurrent map by its key
+ */
 public class MemoryDataAccess implements DataAccess {
-    private final HashSet<UserData> users = new HashSet<>();
-    private final HashSet<AuthData> auths = new HashSet<>();
-    private final HashSet<GameData> games = new HashSet<>();
+    private final ConcurrentHashMap<String, UserData> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AuthData> auths = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, GameData> games = new ConcurrentHashMap<>();
 
     public MemoryDataAccess() throws DataAccessException {
 
     }
 
     private static class IDGen {
-        private static int latestID = 1;
+        private static final AtomicInteger latestID = new AtomicInteger(1);
 
         public static int newID() {
-            return latestID++;
+            return latestID.getAndIncrement();
         }
     }
 
     @Override
     public UserData getUser(String username) {
-        for (var user : users) {
-            if (Objects.equals(user.username(), username)) {
-                return user;
-            }
-        }
-        return null;
+        return username == null ? null : users.get(username);
     }
 
     @Override
     public void createUser(UserData userData) throws DataAccessException {
-        if (users.contains(userData)) {
+        if (userData.username() == null || users.putIfAbsent(userData.username(), userData) != null) {
             throw new DataAccessException("Existing user");
         }
-        users.add(userData);
     }
 
     @Override
@@ -49,27 +48,24 @@ public class MemoryDataAccess implements DataAccess {
         if (authData.authToken() == null) {
             throw new DataAccessException("Null authToken");
         }
-        auths.add(authData);
+        auths.put(authData.authToken(), authData);
     }
 
     @Override
     public AuthData getAuth(String authToken) {
-        for (var auth : auths) {
-            if (Objects.equals(auth.authToken(), authToken)) {
-                return auth;
-            }
-        }
-        return null;
+        return authToken == null ? null : auths.get(authToken);
     }
 
     @Override
     public void deleteAuth(AuthData authData) {
-        auths.remove(authData);
+        if (authData != null && authData.authToken() != null) {
+            auths.remove(authData.authToken(), authData);
+        }
     }
 
     @Override
     public Collection<GameData> listGames() {
-        return games;
+        return new ArrayList<>(games.values());
     }
 
     @Override
@@ -81,35 +77,24 @@ public class MemoryDataAccess implements DataAccess {
                 gameData.gameName(),
                 gameData.game(),
                 false);
-        games.add(gameData);
+        games.put(gameData.gameID(), gameData);
         return gameData;
     }
 
     @Override
     public GameData getGame(int gameID) {
-        for (var game : games) {
-            if (game.gameID() == gameID) {
-                return game;
-            }
-        }
-        return null;
+        return games.get(gameID);
     }
 
     @Override
     public void updateGame(int gameID, GameData gameData) {
-        for (var game : games) {
-            if (game.gameID() == gameID) {
-                games.remove(game);
-                break;
-            }
-        }
-        games.add(new GameData(
+        games.put(gameID, new GameData(
                 gameID,
                 gameData.whiteUsername(),
                 gameData.blackUsername(),
                 gameData.gameName(),
                 gameData.game(),
-                false));
+                gameData.concluded()));
     }
 
     @Override
@@ -0,0 +1,30 @@
+package server;
+
+import chess.pgn.PgnReader;
+import dataAccess.DataAccessException;
+import dataAccess.SQLDataAccess;
+import service.ApplicationService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Loads the games in PGN files into the server's database
+ */
+public class PgnImport {
+    public static void main(String[] args) throws IOException, DataAccessException {
+        if (args.length < 1) {
+            System.out.println("Usage: PgnImport <file.pgn>...");
+            return;
+        }
+        int threads = Integer.getInteger("chess.pgn.threads", Runtime.getRuntime().availableProcessors());
+        ApplicationService applicationService = new ApplicationService(new SQLDataAccess());
+        for (String file : args) {
+            try (PgnReader reader = PgnReader.open(Path.of(file))) {
+                int imported = applicationService.importGames(reader, threads,
+                        ex -> System.out.println("Skipped a game in " + file + ": " + ex.getMessage()));
+                System.out.println("Imported " + imported + " games from " + file);
+            }
+        }
+    }
+}
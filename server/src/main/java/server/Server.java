@@ -1,5 +1,9 @@
 package server;
 
+import chess.ChessGame;
+import chess.MoveCache;
+import chess.book.PolyglotBook;
+import chess.book.PolyglotKey;
 import chess.dataModel.request.CreateGameRequest;
 import chess.dataModel.request.JoinGameRequest;
 import chess.dataModel.request.LoginRequest;
@@ -8,11 +12,14 @@ import chess.dataModel.response.CreateGameResponse;
 import chess.dataModel.response.ListGamesResponse;
 import chess.dataModel.response.LoginResponse;
 import chess.dataModel.response.RegisterResponse;
+import chess.engine.MateSolver;
+import chess.tablebase.Tablebase;
 import com.google.gson.Gson;
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
 import dataAccess.MemoryDataAccess;
 import dataAccess.SQLDataAccess;
+import server.bot.BotScheduler;
 import server.websocket.WebSocketHandler;
 import service.ApplicationService;
 import service.GameService;
@@ -20,9 +27,15 @@ import service.UserService;
 import service.exceptions.ServiceException;
 import spark.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 
 public class Server {
+    private BotScheduler botScheduler;
+    private MateSolver mateSolver;
+    private WebSocketHandler webSocketHandler;
+
     public int run(int desiredPort) {
         try {
             Spark.port(desiredPort);
@@ -33,7 +46,17 @@ public class Server {
             UserService userService = new UserService(db);
             GameService gameService = new GameService(db);
             ApplicationService applicationService = new ApplicationService(db);
-            WebSocketHandler webSocketHandler = new WebSocketHandler(db);
+            PolyglotBook book = loadOpeningBook();
+            // Off unless asked for: it only pays when many games reach the same positions
+            int moveCacheMegabytes = Integer.getInteger("chess.movecache.megabytes", 0);
+            ChessGame.setMoveCache(moveCacheMegabytes > 0 ? new MoveCache(moveCacheMegabytes * 1024L * 1024L) : null);
+            botScheduler = new BotScheduler();
+            botScheduler.setOpeningBook(book);
+            mateSolver = new MateSolver();
+            // Games are only ended on a forced mate when asked for, since players may want to finish them
+            int mateAdjudicationMoves = Integer.getInteger("chess.mate.adjudicate", 0);
+            webSocketHandler = new WebSocketHandler(db, botScheduler, book, loadTablebase(),
+                    mateSolver, mateAdjudicationMoves);
 
             // Handle all endpoint ServiceExceptions
             Spark.exception(ServiceException.class, (ex, req, res) -> {
@@ -112,6 +135,30 @@ public class Server {
                 return body;
             });
 
+            Spark.get("/game/pgn", (req, res) -> {
+                int gameID;
+                try {
+                    gameID = Integer.parseInt(req.queryParams("gameID"));
+                } catch (NumberFormatException ex) {
+                    throw new ServiceException(400, "Error: bad request");
+                }
+                String body = gameService.exportPgn(req.headers("Authorization"), gameID);
+                res.status(200);
+                res.type("application/x-chess-pgn");
+                res.body(body);
+                return body;
+            });
+
+            // How far behind the computer players are
+            Spark.get("/bot/metrics", (req, res) -> {
+                applicationService.authorize(req.headers("Authorization"));
+                res.status(200);
+                res.type("application/json");
+                String body = new Gson().toJson(botScheduler.metrics());
+                res.body(body);
+                return body;
+            });
+
             Spark.awaitInitialization();
             return Spark.port();
         } catch (DataAccessException ex) {
@@ -120,7 +167,59 @@ public class Server {
         return 0;
     }
 
+    /**
+     * Maps the Polyglot book named by the chess.book system property, hashed with the Random64 table in the
+     * file named by chess.book.keys
+     *
+     * @return The book, or null if none is configured or it cannot be read
+     */
+    private static PolyglotBook loadOpeningBook() {
+        String bookFile = System.getProperty("chess.book");
+        String keysFile = System.getProperty("chess.book.keys");
+        if (bookFile == null || keysFile == null) {
+            return null;
+        }
+        try {
+            PolyglotBook book = PolyglotBook.open(Path.of(bookFile), PolyglotKey.load(Path.of(keysFile)));
+            System.out.println("Loaded opening book with " + book.size() + " entries");
+            return book;
+        } catch (IOException ex) {
+            System.out.println("Could not load opening book: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Maps the endgame tables in the directory named by the chess.tablebases system property
+     *
+     * @return The tables, or null if none are configured or they cannot be read
+     */
+    private static Tablebase loadTablebase() {
+        String directory = System.getProperty("chess.tablebases");
+        if (directory == null) {
+            return null;
+        }
+        try {
+            Tablebase tablebase = Tablebase.open(Path.of(directory));
+            System.out.println("Loaded endgame tables " + tablebase.materials());
+            return tablebase;
+        } catch (IOException ex) {
+            System.out.println("Could not load endgame tables: " + ex.getMessage());
+            return null;
+        }
+    }
+
     public void stop() {
+        if (webSocketHandler != null) {
+            webSocketHandler.shutdown();
+        }
+        if (botScheduler != null) {
+            botScheduler.shutdown();
+        }
+        if (mateSolver != null) {
+            mateSolver.shutdown();
+        }
+        ChessGame.setMoveCache(null);
         Spark.stop();
         Spark.awaitStop();
     }
@@ -0,0 +1,24 @@
+package server.bot;
+
+/**
+ * A snapshot of how busy the computer players are
+ *
+ * @param workers           the threads searching for moves
+ * @param queueDepth        the moves waiting for a free worker
+ * @param activeSearches    the moves being searched right now
+ * @param movesPlayed       the moves found and handed back to their games
+ * @param movesCancelled    the moves dropped because their game ended or a player left
+ * @param movesRejected     the moves refused because the queue was full
+ * @param averageWaitMillis how long moves waited in the queue on average
+ * @param maxWaitMillis     the longest any move waited in the queue
+ */
+public record BotMetrics(
+        int workers,
+        int queueDepth,
+        int activeSearches,
+        long movesPlayed,
+        long movesCancelled,
+        long movesRejected,
+        double averageWaitMillis,
+        double maxWaitMillis) {
+}
@@ -0,0 +1,247 @@
+package server.bot;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.book.PolyglotBook;
+import chess.dataModel.GameData;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Finds the moves of computer players on a bounded pool of worker threads
+ * <p>
+ * Each game has at most one move waiting or being searched, and moves are searched in the order they were
+ * asked for, so no game can starve the others. When more moves are waiting than there are workers, each
+ * search gets a smaller slice of time so the queue keeps moving. Callers never wait on a search; the move is
+ * handed to a {@link MoveListener} on the worker thread that found it.
+ */
+public class BotScheduler {
+    // The username that fills a computer player's seat; UserService will not register it
+    public static final String USERNAME = "Computer";
+
+    private static final int ENGINE_HASH_MEGABYTES = 8;
+
+    public interface MoveListener {
+        /**
+         * Called on a worker thread with the move found for a game
+         *
+         * @param gameID      the game the move is for
+         * @param positionKey the key of the position that was searched, to tell if the game has moved on
+         * @param move        the move to make
+         */
+        void onMove(int gameID, long positionKey, ChessMove move);
+    }
+
+    private final int workers;
+    private final long moveTimeMillis;
+    private final long minMoveTimeMillis;
+    private final long moveNodes;
+    private final ThreadPoolExecutor pool;
+    // Each worker keeps its own engine so its transposition table is never shared between searches
+    private final ThreadLocal<Engine> engines;
+    // The move waiting or being searched for each game
+    private final ConcurrentHashMap<Integer, BotMove> pending = new ConcurrentHashMap<>();
+    // Played from instead of searching while the game is in it; null for none
+    private volatile PolyglotBook book;
+
+    private final LongAdder movesPlayed = new LongAdder();
+    private final LongAdder movesCancelled = new LongAdder();
+    private final LongAdder movesRejected = new LongAdder();
+    private final LongAdder movesStarted = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public BotScheduler() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 1024, 1000, 100, 2_000_000);
+    }
+
+    /**
+     * @param workers           how many moves to search at once
+     * @param queueCapacity     how many moves may wait for a worker before more are refused
+     * @param moveTimeMillis    the time a move may take when no others are waiting
+     * @param minMoveTimeMillis the time a move may take however many others are waiting
+     * @param moveNodes         the positions a move's search may visit, or 0 for no node limit
+     */
+    public BotScheduler(int workers, int queueCapacity, long moveTimeMillis, long minMoveTimeMillis, long moveNodes) {
+        this(workers, queueCapacity, moveTimeMillis, minMoveTimeMillis, moveNodes, () -> new Engine(ENGINE_HASH_MEGABYTES));
+    }
+
+    /**
+     * @param engineFactory makes the engine each worker searches with, the first time it is needed
+     */
+    public BotScheduler(int workers, int queueCapacity, long moveTimeMillis, long minMoveTimeMillis, long moveNodes,
+                        Supplier<Engine> engineFactory) {
+        if (workers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("A scheduler needs at least one worker and one queue slot");
+        }
+        if (minMoveTimeMillis < 1 || moveTimeMillis < minMoveTimeMillis || moveNodes < 0) {
+            throw new IllegalArgumentException("Invalid move budget");
+        }
+        this.workers = workers;
+        this.moveTimeMillis = moveTimeMillis;
+        this.minMoveTimeMillis = minMoveTimeMillis;
+        this.moveNodes = moveNodes;
+        this.engines = ThreadLocal.withInitial(engineFactory);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> Thread.ofPlatform().daemon().name("bot-worker-" + threadCount.incrementAndGet()).unstarted(runnable));
+    }
+
+    /**
+     * Has the computer play the book's moves, picked at random by weight, until its games leave the book
+     */
+    public void setOpeningBook(PolyglotBook book) {
+        this.book = book;
+    }
+
+    /**
+     * @return Whether the team whose turn it is in the game is played by the computer
+     */
+    public static boolean isBotTurn(GameData game) {
+        String player = game.game().getTeamTurn() == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+        return Objects.equals(player, USERNAME);
+    }
+
+    /**
+     * Queues a search for the move of the team whose turn it is. Does nothing if the game already has one queued
+     *
+     * @param gameID   the game to move in
+     * @param game     the position to search; a copy is searched, so the caller may keep changing it
+     * @param listener told the move once it is found, unless the move is cancelled first
+     * @return False if the queue is full and the move was refused
+     */
+    public boolean schedule(int gameID, ChessGame game, MoveListener listener) {
+        BotMove move = new BotMove(gameID, new ChessGame(game), listener);
+        if (pending.putIfAbsent(gameID, move) != null) {
+            return true;
+        }
+        try {
+            pool.execute(move);
+        } catch (RejectedExecutionException ex) {
+            pending.remove(gameID, move);
+            movesRejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drops the game's queued move, or stops its search early and discards the result
+     */
+    public void cancel(int gameID) {
+        BotMove move = pending.remove(gameID);
+        if (move != null) {
+            move.cancel();
+            // Free the queue slot if no worker has picked it up yet
+            pool.remove(move);
+            movesCancelled.increment();
+        }
+    }
+
+    public BotMetrics metrics() {
+        long started = movesStarted.sum();
+        return new BotMetrics(
+                workers,
+                pool.getQueue().size(),
+                pool.getActiveCount(),
+                movesPlayed.sum(),
+                movesCancelled.sum(),
+                movesRejected.sum(),
+                started == 0 ? 0 : totalWaitNanos.sum() / 1e6 / started,
+                maxWaitNanos.get() / 1e6);
+    }
+
+    /**
+     * Stops every search and refuses new ones
+     */
+    public void shutdown() {
+        pending.values().forEach(BotMove::cancel);
+        pending.clear();
+        pool.shutdownNow();
+    }
+
+    /**
+     * @return The time the next search may take, shrinking as more moves wait so each game gets a fair share
+     */
+    private long moveBudgetMillis() {
+        int waiting = pool.getQueue().size() + pool.getActiveCount();
+        return Math.max(minMoveTimeMillis, moveTimeMillis * workers / Math.max(workers, waiting));
+    }
+
+    private final class BotMove implements Runnable {
+        private final int gameID;
+        private final ChessGame game;
+        private final MoveListener listener;
+        private final long queuedAt = System.nanoTime();
+        private volatile boolean cancelled = false;
+        private volatile Engine engine;
+
+        private BotMove(int gameID, ChessGame game, MoveListener listener) {
+            this.gameID = gameID;
+            this.game = game;
+            this.listener = listener;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Engine running = engine;
+            if (running != null) {
+                running.stop();
+            }
+        }
+
+        @Override
+        public void run() {
+            long waited = System.nanoTime() - queuedAt;
+            movesStarted.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            if (cancelled) {
+                return;
+            }
+
+            PolyglotBook openingBook = book;
+            ChessMove bookMove = openingBook == null ? null : openingBook.pick(game, ThreadLocalRandom.current());
+            if (bookMove != null) {
+                pending.remove(gameID, this);
+                movesPlayed.increment();
+                listener.onMove(gameID, game.positionKey(), bookMove);
+                return;
+            }
+
+            SearchResult result;
+            try {
+                engine = engines.get();
+                // A cancel that lands before the engine is set, or before its search has begun, is seen
+                // through the flag
+                result = engine.search(game, new SearchLimits(SearchLimits.MAX_DEPTH, moveBudgetMillis(), moveNodes),
+                        () -> cancelled);
+            } finally {
+                engine = null;
+                // Let the game queue its next move as soon as this one is handed back
+                pending.remove(gameID, this);
+            }
+            // The search may have been stopped part way, or finished just before the cancel
+            if (cancelled || result.bestMove() == null) {
+                return;
+            }
+            movesPlayed.increment();
+            listener.onMove(gameID, game.positionKey(), result.bestMove());
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package server.websocket;
 
+import chess.ChessBoard;
 import chess.ChessGame;
+import chess.ChessMove;
 import chess.ChessPiece;
-import chess.InvalidMoveException;
+import chess.ChessPosition;
+import chess.Move;
+import chess.book.PolyglotBook;
+import chess.engine.MateResult;
+import chess.engine.MateSolver;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseResult;
 import chess.dataModel.AuthData;
 import chess.dataModel.GameData;
 import com.google.gson.Gson;
@@ -13,24 +21,135 @@ import org.eclipse.jetty.websocket.api.WebSocketException;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import server.bot.BotScheduler;
+import webSocketMessages.serverMessages.BookMoves;
 import webSocketMessages.serverMessages.Error;
 import webSocketMessages.serverMessages.LoadGame;
+import webSocketMessages.serverMessages.MateSolution;
 import webSocketMessages.serverMessages.Notification;
 import webSocketMessages.userCommands.*;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @WebSocket
 public class WebSocketHandler {
     private final DataAccess db;
+    private final BotScheduler botScheduler;
+    // Null when the server was started without an opening book
+    private final PolyglotBook book;
+    // Ends games whose result the tables already know; null when the server was started without tablebases
+    private final Tablebase tablebase;
+    // Answers mate puzzles; null when the server was started without it
+    private final MateSolver mateSolver;
+    // Ends games with a forced mate. Its own table and workers, so puzzles never hold up the moves it is
+    // asked about under their game's lock; null unless games are adjudicated
+    private final MateSolver adjudicator;
+    // Games end when the team to move mates by force within this many moves; 0 to let them play it out
+    private final int mateAdjudicationMoves;
+    // Solves mate puzzles off the socket threads; null when the server was started without the solver
+    private final ThreadPoolExecutor puzzles;
+
+    // How long a player may wait for a puzzle to be solved
+    private static final long PUZZLE_MILLIS = 2000;
+    // How long each move may be held up looking for a forced mate
+    private static final long ADJUDICATION_MILLIS = 20;
+    // Puzzles solved at once, and puzzles that may wait for a turn before more are refused. The solver
+    // already searches each puzzle on several threads
+    private static final int PUZZLE_WORKERS = 2;
+    private static final int PUZZLE_QUEUE_CAPACITY = 16;
+    // Adjudication only looks a few moves deep for a few milliseconds, so it needs far less than puzzles
+    private static final int ADJUDICATION_TABLE_MEGABYTES = 1;
+    private static final int ADJUDICATION_WORKERS = 2;
 
     // Mapping of gameID to its ConnectionManager
     private final ConcurrentHashMap<Integer, ConnectionManager> gameRooms = new ConcurrentHashMap<Integer, ConnectionManager>();
+    // Mapping of gameID to the lock held while its GameData is read and written back, since computer moves
+    // are saved from the bot workers while players keep sending commands
+    private final ConcurrentHashMap<Integer, Object> gameLocks = new ConcurrentHashMap<Integer, Object>();
 
     public WebSocketHandler(DataAccess db) {
+        this(db, new BotScheduler());
+    }
+
+    public WebSocketHandler(DataAccess db, BotScheduler botScheduler) {
+        this(db, botScheduler, null);
+    }
+
+    public WebSocketHandler(DataAccess db, BotScheduler botScheduler, PolyglotBook book) {
+        this(db, botScheduler, book, null);
+    }
+
+    public WebSocketHandler(DataAccess db, BotScheduler botScheduler, PolyglotBook book, Tablebase tablebase) {
+        this(db, botScheduler, book, tablebase, null, 0);
+    }
+
+    public WebSocketHandler(DataAccess db, BotScheduler botScheduler, PolyglotBook book, Tablebase tablebase,
+                            MateSolver mateSolver, int mateAdjudicationMoves) {
         this.db = db;
+        this.botScheduler = botScheduler;
+        this.book = book;
+        this.tablebase = tablebase;
+        this.mateSolver = mateSolver;
+        this.mateAdjudicationMoves = mateSolver == null ? 0 : mateAdjudicationMoves;
+        this.adjudicator = this.mateAdjudicationMoves == 0 ? null
+                : new MateSolver(ADJUDICATION_TABLE_MEGABYTES, ADJUDICATION_WORKERS);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.puzzles = mateSolver == null ? null : new ThreadPoolExecutor(PUZZLE_WORKERS, PUZZLE_WORKERS, 0,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(PUZZLE_QUEUE_CAPACITY),
+                runnable -> Thread.ofPlatform().daemon().name("puzzle-worker-" + threadCount.incrementAndGet()).unstarted(runnable));
+    }
+
+    /**
+     * Drops the puzzles still waiting to be solved and stops the adjudicator
+     */
+    public void shutdown() {
+        if (puzzles != null) {
+            puzzles.shutdownNow();
+        }
+        if (adjudicator != null) {
+            adjudicator.shutdown();
+        }
+    }
+
+    private Object gameLock(int gameID) {
+        return gameLocks.computeIfAbsent(gameID, id -> new Object());
+    }
+
+    /**
+     * Takes a read-only copy of the game under its lock, so it can be sent without holding the lock while
+     * moves go on being made
+     */
+    private GameData snapshot(GameData game) {
+        synchronized (gameLock(game.gameID())) {
+            return new GameData(
+                    game.gameID(),
+                    game.whiteUsername(),
+                    game.blackUsername(),
+                    game.gameName(),
+                    game.game().snapshot(),
+                    game.concluded()
+            );
+        }
+    }
+
+    /**
+     * Reads the game and takes a read-only copy of it under its lock
+     *
+     * @return The copy, or null if the game does not exist
+     */
+    private GameData snapshot(int gameID) throws DataAccessException {
+        synchronized (gameLock(gameID)) {
+            GameData game = db.getGame(gameID);
+            return game == null ? null : snapshot(game);
+        }
     }
 
     private void addConnectionToRoom(int gameID, Connection connection) {
@@ -40,6 +159,15 @@ public class WebSocketHandler {
         gameRooms.get(gameID).add(connection);
     }
 
+    /**
+     * @return Whether this connection joined or is observing the game
+     */
+    private boolean isInRoom(int gameID, Connection connection) {
+        ConnectionManager room = gameRooms.get(gameID);
+        Connection joined = room == null ? null : room.connections.get(connection.visitorName);
+        return joined != null && joined.session == connection.session;
+    }
+
     private void assertAuthorizedGameUpdate(GameData gameData, String username, ChessGame.TeamColor teamColor) throws WebSocketException {
         if (gameData.concluded()) {
             throw new WebSocketException("Game is already concluded");
@@ -53,6 +181,15 @@ public class WebSocketHandler {
         }
     }
 
+    private static String drawReason(ChessGame.GameStatus status) {
+        return switch (status) {
+            case THREEFOLD_REPETITION -> "Threefold repetition";
+            case FIFTY_MOVE_RULE -> "Fifty moves without a capture or pawn move";
+            case INSUFFICIENT_MATERIAL -> "Insufficient material";
+            default -> "Stalemate";
+        };
+    }
+
     @OnWebSocketMessage
     public void onMessage(Session session, String s) throws DataAccessException, IOException {
         UserGameCommand command = new Gson().fromJson(s, UserGameCommand.class);
@@ -68,6 +205,8 @@ public class WebSocketHandler {
                 case MAKE_MOVE -> makeMove(connection, new Gson().fromJson(s, MakeMove.class));
                 case LEAVE -> leave(connection, new Gson().fromJson(s, Leave.class));
                 case RESIGN -> resign(connection, new Gson().fromJson(s, Resign.class));
+                case GET_BOOK_MOVES -> bookMoves(connection, new Gson().fromJson(s, GetBookMoves.class));
+                case FIND_MATE -> findMate(connection, new Gson().fromJson(s, FindMate.class));
             }
         } catch (WebSocketException error) {
             System.out.println(error.getMessage());
@@ -89,10 +228,14 @@ public class WebSocketHandler {
             assertAuthorizedGameUpdate(game, connection.visitorName, message.getPlayerColor());
 
             addConnectionToRoom(message.getGameID(), connection);
-            connection.send(new Gson().toJson(new LoadGame(game)));
+            connection.send(new Gson().toJson(new LoadGame(snapshot(game))));
             gameRooms.get(message.getGameID()).broadcast(connection.visitorName, new Notification(
                     connection.visitorName + " joined as " + message.getPlayerColor().name()
             ));
+            // The computer may have the first move, or be the one to move in a resumed game
+            synchronized (gameLock(message.getGameID())) {
+                scheduleBotMove(db.getGame(message.getGameID()));
+            }
         } catch (IOException | DataAccessException ex) {
             throw new WebSocketException(ex.getMessage());
         }
@@ -105,7 +248,7 @@ public class WebSocketHandler {
                 throw new WebSocketException("Nonexistent gameID");
             }
             addConnectionToRoom(message.getGameID(), connection);
-            connection.send(new Gson().toJson(new LoadGame(game)));
+            connection.send(new Gson().toJson(new LoadGame(snapshot(game))));
             gameRooms.get(message.getGameID()).broadcast(connection.visitorName, new Notification(
                     connection.visitorName + " joined as an observer"
             ));
@@ -116,65 +259,189 @@ public class WebSocketHandler {
 
     private void makeMove(Connection connection, MakeMove message) throws WebSocketException {
         try {
-            GameData game = db.getGame(message.getGameID());
-            ChessPiece piece = game.game().getBoard().getPiece(message.getMove().getStartPosition());
+            synchronized (gameLock(message.getGameID())) {
+                GameData game = db.getGame(message.getGameID());
+                if (game == null) {
+                    throw new WebSocketException("Game does not exist");
+                }
+                ChessPosition start = message.getMove().getStartPosition();
+                ChessPiece piece = ChessBoard.validTile(start) ? game.game().getBoard().getPiece(start) : null;
+
+                if (piece == null) {
+                    throw new WebSocketException("There is no piece at the given position");
+                }
+
+                assertAuthorizedGameUpdate(game, connection.visitorName,
+                        piece.getTeamColor()
+                );
+                if (piece.getTeamColor() != game.game().getTeamTurn()) {
+                    throw new WebSocketException("It is not your turn");
+                }
+                // Checks just this move, so a bad one is turned away before anything else is done
+                int move = game.game().legalMove(message.getMove());
+                if (move == Move.NONE) {
+                    throw new WebSocketException("Invalid move");
+                }
 
-            if (piece == null) {
-                throw new WebSocketException("There is no piece at the given position");
+                playMove(game, move, connection.visitorName);
             }
+        } catch (IOException | DataAccessException ex) {
+            throw new WebSocketException(ex.getMessage());
+        }
+    }
 
-            assertAuthorizedGameUpdate(game, connection.visitorName,
-                    piece.getTeamColor()
+    /**
+     * Makes a move, saves the game and tells the room about it, then asks the computer for its reply if it
+     * is the computer's turn. Games the tablebase knows the result of with best play, or where the team to
+     * move has a forced mate, end at once. Callers hold the game's lock
+     *
+     * @param move the move, packed (see {@link Move}), already checked to be legal in the game
+     */
+    private void playMove(GameData game, int move, String playerName) throws IOException, DataAccessException {
+        ChessPosition start = ChessPosition.fromSquare(Move.from(move));
+        ChessPosition end = ChessPosition.fromSquare(Move.to(move));
+        ChessPiece piece = game.game().getBoard().getPiece(start);
+        game.game().makeMove(move);
+
+        // Conclude game if checkmate, stalemate, a draw by rule, or an endgame whose result is known
+        ChessGame.GameStatus status = game.game().evaluateStatus();
+        TablebaseResult verdict = status.isGameOver() || tablebase == null ? null : tablebase.probe(game.game());
+        MateResult forcedMate = status.isGameOver() || verdict != null ? null : findForcedMate(game.game());
+        if (status.isGameOver() || verdict != null || forcedMate != null) {
+            game = new GameData(
+                    game.gameID(),
+                    game.whiteUsername(),
+                    game.blackUsername(),
+                    game.gameName(),
+                    game.game(),
+                    true
             );
+        }
+        db.updateGame(game.gameID(), game);
+        gameRooms.get(game.gameID()).broadcast("", new LoadGame(game));
+        gameRooms.get(game.gameID()).broadcast(playerName, new Notification(
+                String.format("%s moved %s at %s to %s",
+                        playerName,
+                        piece.getPieceType().name(),
+                        start.toString(),
+                        end.toString()
+                )
+        ));
+        if (status == ChessGame.GameStatus.CHECKMATE) {
+            gameRooms.get(game.gameID()).broadcast("", new Notification(
+                    String.format("%s (%s) has won the game!", playerName, piece.getTeamColor().name())
+            ));
+        } else if (status.isDraw()) {
+            gameRooms.get(game.gameID()).broadcast("", new Notification(
+                    drawReason(status) + ", the game is a draw!"
+            ));
+        } else if (verdict != null) {
+            gameRooms.get(game.gameID()).broadcast("", new Notification(adjudication(game, verdict)));
+        } else if (forcedMate != null) {
+            gameRooms.get(game.gameID()).broadcast("", new Notification(mateAdjudication(game, forcedMate)));
+        } else {
+            scheduleBotMove(game);
+        }
+    }
 
-            game.game().makeMove(message.getMove());
+    /**
+     * @return The message ending a game on the tablebase's result for the team to move
+     */
+    private static String adjudication(GameData game, TablebaseResult verdict) {
+        if (verdict.outcome() == TablebaseResult.Outcome.DRAW) {
+            return "Neither side can win with best play, the game is a draw!";
+        }
+        ChessGame.TeamColor teamTurn = game.game().getTeamTurn();
+        ChessGame.TeamColor winner = verdict.outcome() == TablebaseResult.Outcome.WIN
+                ? teamTurn
+                : teamTurn == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return String.format("%s (%s) has won the game! The tablebase shows mate in %d",
+                winner == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername(),
+                winner.name(),
+                verdict.movesToMate());
+    }
 
-            // Conclude game if checkmate or stalemate
-            ChessGame.TeamColor opposingTeamColor = piece.getTeamColor() == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
-            if (game.game().isInStalemate(opposingTeamColor) || game.game().isInCheckmate(opposingTeamColor)) {
-                game = new GameData(
-                        game.gameID(),
-                        game.whiteUsername(),
-                        game.blackUsername(),
-                        game.gameName(),
-                        game.game(),
-                        true
-                );
-            }
-            db.updateGame(game.gameID(), game);
-            gameRooms.get(message.getGameID()).broadcast("", new LoadGame(game));
-            gameRooms.get(message.getGameID()).broadcast(connection.visitorName, new Notification(
-                    String.format("%s moved %s at %s to %s",
-                            connection.visitorName,
-                            piece.getPieceType().name(),
-                            message.getMove().getStartPosition().toString(),
-                            message.getMove().getEndPosition().toString()
-                    )
+    /**
+     * Looks briefly for a forced mate by the team to move, when the server adjudicates them
+     *
+     * @return The mate, or null if none was found in time
+     */
+    private MateResult findForcedMate(ChessGame game) {
+        if (mateAdjudicationMoves == 0) {
+            return null;
+        }
+        MateResult result = adjudicator.solve(game, mateAdjudicationMoves, ADJUDICATION_MILLIS);
+        return result.isMate() ? result : null;
+    }
+
+    /**
+     * @return The message ending a game where the team to move mates by force
+     */
+    private static String mateAdjudication(GameData game, MateResult mate) {
+        ChessGame.TeamColor winner = game.game().getTeamTurn();
+        return String.format("%s (%s) has won the game! They mate by force in %d",
+                winner == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername(),
+                winner.name(),
+                mate.moves());
+    }
+
+    /**
+     * Queues the computer's move if it is the computer's turn. The search runs on the bot workers, never on
+     * the calling thread. Callers hold the game's lock, since queueing copies the game
+     */
+    private void scheduleBotMove(GameData game) throws IOException {
+        if (game.concluded() || !BotScheduler.isBotTurn(game)) {
+            return;
+        }
+        if (!botScheduler.schedule(game.gameID(), game.game(), this::playBotMove)) {
+            gameRooms.get(game.gameID()).broadcast("", new Notification(
+                    BotScheduler.USERNAME + " is busy, rejoin the game to ask it to move again"
             ));
-            if (game.concluded()) {
-                gameRooms.get(message.getGameID()).broadcast("", new Notification(
-                        String.format("%s (%s) has won the game!", connection.visitorName, piece.getTeamColor().name())
-                ));
+        }
+    }
+
+    /**
+     * Plays a move found by the computer. Runs on a bot worker thread
+     */
+    private void playBotMove(int gameID, long positionKey, ChessMove move) {
+        synchronized (gameLock(gameID)) {
+            try {
+                GameData game = db.getGame(gameID);
+                // The game may have ended or changed while the move was being searched
+                if (game == null || game.concluded() || !BotScheduler.isBotTurn(game)
+                        || game.game().positionKey() != positionKey || !gameRooms.containsKey(gameID)) {
+                    return;
+                }
+                int legalMove = game.game().legalMove(move);
+                if (legalMove == Move.NONE) {
+                    System.out.println(BotScheduler.USERNAME + " found an invalid move " + move);
+                    return;
+                }
+                playMove(game, legalMove, BotScheduler.USERNAME);
+            } catch (IOException | DataAccessException ex) {
+                System.out.println(ex.getMessage());
             }
-        } catch (InvalidMoveException | IOException | DataAccessException ex) {
-            throw new WebSocketException(ex.getMessage());
         }
     }
 
     private void leave(Connection connection, Leave message) throws WebSocketException {
         try {
-            GameData game = db.getGame(message.getGameID());
-            AuthData user = db.getAuth(message.getAuthString());
+            synchronized (gameLock(message.getGameID())) {
+                GameData game = db.getGame(message.getGameID());
+                AuthData user = db.getAuth(message.getAuthString());
 
-            // If the user is playing as both colors, this will remove them from both positions. Good?
-            GameData updatedGame = new GameData(
-                    game.gameID(),
-                    Objects.equals(user.username(), game.whiteUsername()) ? null : game.whiteUsername(),
-                    Objects.equals(user.username(), game.blackUsername()) ? null : game.blackUsername(),
-                    game.gameName(),
-                    game.game(),
-                    false);
-            db.updateGame(game.gameID(), updatedGame);
+                // If the user is playing as both colors, this will remove them from both positions. Good?
+                GameData updatedGame = new GameData(
+                        game.gameID(),
+                        Objects.equals(user.username(), game.whiteUsername()) ? null : game.whiteUsername(),
+                        Objects.equals(user.username(), game.blackUsername()) ? null : game.blackUsername(),
+                        game.gameName(),
+                        game.game(),
+                        false);
+                db.updateGame(game.gameID(), updatedGame);
+                // The computer waits for a player to rejoin before moving again
+                botScheduler.cancel(game.gameID());
+            }
             gameRooms.get(message.getGameID()).remove(connection.visitorName);
             gameRooms.get(message.getGameID()).broadcast(connection.visitorName, new Notification(
                     connection.visitorName + " has left the game"
@@ -186,32 +453,36 @@ public class WebSocketHandler {
 
     private void resign(Connection connection, Resign message) throws WebSocketException {
         try {
-            GameData game = db.getGame(message.getGameID());
+            GameData game;
             ChessGame.TeamColor teamColor;
             String opponentName = "";
-            if (Objects.equals(game.whiteUsername(), connection.visitorName)) {
-                teamColor = ChessGame.TeamColor.WHITE;
-                opponentName = game.blackUsername();
-            } else if (Objects.equals(game.blackUsername(), connection.visitorName)) {
-                teamColor = ChessGame.TeamColor.BLACK;
-                opponentName = game.whiteUsername();
-            } else {
-                teamColor = null;
+            synchronized (gameLock(message.getGameID())) {
+                game = db.getGame(message.getGameID());
+                if (Objects.equals(game.whiteUsername(), connection.visitorName)) {
+                    teamColor = ChessGame.TeamColor.WHITE;
+                    opponentName = game.blackUsername();
+                } else if (Objects.equals(game.blackUsername(), connection.visitorName)) {
+                    teamColor = ChessGame.TeamColor.BLACK;
+                    opponentName = game.whiteUsername();
+                } else {
+                    teamColor = null;
+                }
+                assertAuthorizedGameUpdate(
+                        game,
+                        connection.visitorName,
+                        teamColor
+                );
+                GameData updatedGame = new GameData(
+                        game.gameID(),
+                        game.whiteUsername(),
+                        game.blackUsername(),
+                        game.gameName(),
+                        game.game(),
+                        true
+                );
+                db.updateGame(game.gameID(), updatedGame);
+                botScheduler.cancel(game.gameID());
             }
-            assertAuthorizedGameUpdate(
-                    game,
-                    connection.visitorName,
-                    teamColor
-            );
-            GameData updatedGame = new GameData(
-                    game.gameID(),
-                    game.whiteUsername(),
-                    game.blackUsername(),
-                    game.gameName(),
-                    game.game(),
-                    true
-            );
-            db.updateGame(game.gameID(), updatedGame);
             gameRooms.get(message.getGameID()).broadcast("", new Notification(
                     String.format("%s has resigned.\n%s (%s) has won the game!",
                             connection.visitorName,
@@ -222,4 +493,67 @@ public class WebSocketHandler {
             throw new WebSocketException(ex.getMessage());
         }
     }
+
+    private void bookMoves(Connection connection, GetBookMoves message) throws WebSocketException {
+        if (book == null) {
+            throw new WebSocketException("No opening book is loaded");
+        }
+        try {
+            // Read from a copy, since the game may be moved in meanwhile
+            GameData game = snapshot(message.getGameID());
+            if (game == null) {
+                throw new WebSocketException("Game does not exist");
+            }
+            // A binary search of the mapped book, cheap enough to answer on this thread
+            connection.send(new Gson().toJson(new BookMoves(book.moves(game.game()))));
+        } catch (IOException | DataAccessException ex) {
+            throw new WebSocketException(ex.getMessage());
+        }
+    }
+
+    private void findMate(Connection connection, FindMate message) throws WebSocketException {
+        if (mateSolver == null) {
+            throw new WebSocketException("The mate solver is not running");
+        }
+        if (message.getMoves() < 1 || message.getMoves() > MateSolver.MAX_MOVES) {
+            throw new WebSocketException("Mates must be between 1 and " + MateSolver.MAX_MOVES + " moves");
+        }
+        try {
+            // Solved from a copy, since the game may be moved in meanwhile
+            GameData game = snapshot(message.getGameID());
+            if (game == null) {
+                throw new WebSocketException("Game does not exist");
+            }
+            if (!isInRoom(game.gameID(), connection)) {
+                throw new WebSocketException("Join or observe the game first");
+            }
+            // The solver would otherwise play the game for whoever asks, or for a friend watching them
+            if (!game.concluded()) {
+                if (Objects.equals(connection.visitorName, game.whiteUsername())
+                        || Objects.equals(connection.visitorName, game.blackUsername())) {
+                    throw new WebSocketException("Players cannot look for mates in their own game while it is in progress");
+                }
+                throw new WebSocketException("Mates can only be looked for once the game is over");
+            }
+            // Solving may take up to the puzzle time, so the socket thread hands it off instead of waiting
+            puzzles.execute(() -> solvePuzzle(connection, game.game(), message.getMoves()));
+        } catch (RejectedExecutionException ex) {
+            throw new WebSocketException("The mate solver is busy, try again later");
+        } catch (DataAccessException ex) {
+            throw new WebSocketException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Solves a mate puzzle and sends the player the answer. Runs on a puzzle worker thread
+     */
+    private void solvePuzzle(Connection connection, ChessGame game, int moves) {
+        try {
+            MateResult result = mateSolver.solve(game, moves, PUZZLE_MILLIS);
+            connection.send(new Gson().toJson(new MateSolution(result)));
+        } catch (IOException | WebSocketException ex) {
+            // The player may have gone by the time it is solved
+            System.out.println(ex.getMessage());
+        }
+    }
 }
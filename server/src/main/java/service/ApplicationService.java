@@ -1,9 +1,16 @@
 package service;
 
+import chess.dataModel.GameData;
+import chess.pgn.PgnException;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
 import service.exceptions.ServiceException;
 
+import java.io.IOException;
+import java.util.function.Consumer;
+
 public class ApplicationService extends Service {
     public ApplicationService(DataAccess db) {
         super(db);
@@ -12,4 +19,75 @@ public class ApplicationService extends Service {
     public void bigRedButton() throws DataAccessException {
         db.clear();
     }
+
+    /**
+     * Checks that the caller is logged in, for routes that only report on the server itself
+     *
+     * @param authToken The auth token for verifying.
+     */
+    public void authorize(String authToken) throws ServiceException, DataAccessException {
+        verifyAuthToken(authToken);
+    }
+
+    /**
+     * Adds every game in a PGN file to the database. The games are parsed on a pool of threads and inserted
+     * one at a time, in file order, on this thread
+     *
+     * @param threads how many threads parse games
+     * @param errors  told about each game that could not be read; the games after it are still imported
+     * @return How many games were imported
+     */
+    public int importGames(PgnReader reader, int threads, Consumer<PgnException> errors) throws IOException, DataAccessException {
+        int[] imported = {0};
+        try {
+            reader.readAll(threads, pgnGame -> {
+                try {
+                    GameData gameData = db.insertGame(toGameData(pgnGame));
+                    // Games are always inserted in progress
+                    if (!pgnGame.result().equals(PgnGame.UNKNOWN)) {
+                        db.updateGame(gameData.gameID(), new GameData(
+                                gameData.gameID(),
+                                gameData.whiteUsername(),
+                                gameData.blackUsername(),
+                                gameData.gameName(),
+                                gameData.game(),
+                                true));
+                    }
+                    ++imported[0];
+                } catch (DataAccessException ex) {
+                    throw new InsertFailedException(ex);
+                }
+            }, errors);
+        } catch (InsertFailedException ex) {
+            throw ex.getCause();
+        }
+        return imported[0];
+    }
+
+    private static GameData toGameData(PgnGame pgnGame) {
+        String white = pgnGame.tags().getOrDefault("White", "?");
+        String black = pgnGame.tags().getOrDefault("Black", "?");
+        String event = pgnGame.tag("Event");
+        return new GameData(
+                null,
+                white,
+                black,
+                event == null || event.equals("?") ? white + " vs " + black : event,
+                pgnGame.game(),
+                false);
+    }
+
+    /**
+     * Carries a database error out of the callback readAll makes for each game
+     */
+    private static class InsertFailedException extends RuntimeException {
+        private InsertFailedException(DataAccessException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized DataAccessException getCause() {
+            return (DataAccessException) super.getCause();
+        }
+    }
 }
@@ -7,8 +7,10 @@ import chess.dataModel.request.CreateGameRequest;
 import chess.dataModel.request.JoinGameRequest;
 import chess.dataModel.response.CreateGameResponse;
 import chess.dataModel.response.ListGamesResponse;
+import chess.pgn.PgnWriter;
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
+import server.bot.BotScheduler;
 import service.exceptions.ServiceException;
 
 import java.util.Objects;
@@ -20,13 +22,20 @@ public class GameService extends Service {
 
     public CreateGameResponse createGame(String authToken, CreateGameRequest createGameRequest) throws ServiceException, DataAccessException {
         verifyAuthToken(authToken);
-        verifyRequestFields(createGameRequest);
+        // Do not call verifyRequestFields because an empty botColor is valid
+        if (createGameRequest.gameName() == null || createGameRequest.gameName().isEmpty()) {
+            throw new ServiceException(400, "Error: bad request");
+        }
+        String botColor = createGameRequest.botColor() == null ? null : createGameRequest.botColor().toUpperCase();
+        if (botColor != null && !botColor.equals("WHITE") && !botColor.equals("BLACK")) {
+            throw new ServiceException(400, "Error: bad request");
+        }
 
-        // Create the game
+        // Create the game, seating the computer if asked
         GameData newGame = new GameData(
                 null,
-                null,
-                null,
+                Objects.equals(botColor, "WHITE") ? BotScheduler.USERNAME : null,
+                Objects.equals(botColor, "BLACK") ? BotScheduler.USERNAME : null,
                 createGameRequest.gameName(),
                 new ChessGame(),
                 false);
@@ -57,7 +66,7 @@ public class GameService extends Service {
                     auth.username(),
                     gameData.blackUsername(),
                     gameData.gameName(),
-                    new ChessGame(gameData.game()),
+                    gameData.game(),
                     false);
         } else if (joinGameRequest.playerColor() != null && Objects.equals(joinGameRequest.playerColor().toUpperCase(), "BLACK")) {
             if (gameData.blackUsername() != null && !Objects.equals(gameData.blackUsername(), auth.username())) {
@@ -68,7 +77,7 @@ public class GameService extends Service {
                     gameData.whiteUsername(),
                     auth.username(),
                     gameData.gameName(),
-                    new ChessGame(gameData.game()),
+                    gameData.game(),
                     false);
         } else {
             // User is an observer, add functionality in phase 6
@@ -81,4 +90,16 @@ public class GameService extends Service {
         verifyAuthToken(authToken);
         return new ListGamesResponse(db.listGames().toArray(new GameData[0]));
     }
+
+    /**
+     * @return The game written in PGN, for other chess programs to read
+     */
+    public String exportPgn(String authToken, int gameID) throws ServiceException, DataAccessException {
+        verifyAuthToken(authToken);
+        GameData gameData = db.getGame(gameID);
+        if (gameData == null) {
+            throw new ServiceException(400, "Error: bad request");
+        }
+        return PgnWriter.write(gameData);
+    }
 }
@@ -9,6 +9,7 @@ import chess.dataModel.response.RegisterResponse;
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import server.bot.BotScheduler;
 import service.exceptions.ServiceException;
 
 import java.security.SecureRandom;
@@ -34,7 +35,8 @@ public class UserService extends Service {
     public RegisterResponse register(RegisterRequest registerRequest) throws ServiceException, DataAccessException {
         verifyRequestFields(registerRequest);
         var user = db.getUser(registerRequest.username());
-        if (user != null) {
+        // The computer player's name is reserved so nobody can take its seats
+        if (user != null || Objects.equals(registerRequest.username(), BotScheduler.USERNAME)) {
             throw new ServiceException(403, "Error: already taken");
         }
 
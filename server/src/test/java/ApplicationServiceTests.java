@@ -1,3 +1,4 @@
+import chess.ChessGame;
 import chess.dataModel.GameData;
 import chess.dataModel.request.CreateGameRequest;
 import chess.dataModel.request.LoginRequest;
@@ -8,6 +9,8 @@ import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
 import dataAccess.MemoryDataAccess;
 import dataAccess.SQLDataAccess;
+import chess.pgn.PgnException;
+import chess.pgn.PgnReader;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import passoffTests.testClasses.TestException;
@@ -16,8 +19,12 @@ import service.GameService;
 import service.UserService;
 import service.exceptions.ServiceException;
 
-import static org.junit.jupiter.api.Assertions.assertArrayEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ApplicationServiceTests {
     private static final DataAccess db;
@@ -34,6 +41,17 @@ public class ApplicationServiceTests {
     private static final GameService gameService = new GameService(db);
     private static final ApplicationService applicationService = new ApplicationService(db);
 
+    @Test
+    @DisplayName("Authorize")
+    public void authorize() throws Exception {
+        RegisterResponse registerResponse = userService.register(new RegisterRequest("Wanderer", "Wanderer's password", "wanderer@email.com"));
+        assertDoesNotThrow(() -> applicationService.authorize(registerResponse.authToken()));
+        assertThrows(ServiceException.class, () -> applicationService.authorize("not a token"));
+        assertThrows(ServiceException.class, () -> applicationService.authorize(null));
+        userService.logout(registerResponse.authToken());
+        assertThrows(ServiceException.class, () -> applicationService.authorize(registerResponse.authToken()));
+    }
+
     @Test
     @DisplayName("Clear database")
     public void clearDatabase() {
@@ -81,4 +99,50 @@ public class ApplicationServiceTests {
         }
 
     }
+
+    @Test
+    @DisplayName("Import games from PGN")
+    public void importGames() {
+        String pgn = """
+                [Event "Opera Game"]
+                [White "Paul Morphy"]
+                [Black "Duke Karl / Count Isouard"]
+
+                1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7
+                8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7
+                14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0
+
+                [White "Someone"]
+                [Black "Someone else"]
+
+                1. e4 Ke7 2. Ke3 *
+
+                [White "Another"]
+                [Black "Game"]
+
+                1. d4 d5 *
+                """;
+        List<PgnException> errors = new ArrayList<>();
+        int imported;
+        try {
+            applicationService.bigRedButton();
+            imported = applicationService.importGames(new PgnReader(new StringReader(pgn)), 2, errors::add);
+        } catch (Exception ex) {
+            throw new TestException("Could not import games: " + ex.getMessage());
+        }
+
+        assertEquals(2, imported);
+        assertEquals(1, errors.size(), "The game with an illegal move was not reported");
+        try {
+            Collection<GameData> games = db.listGames();
+            GameData opera = games.stream().filter(game -> game.gameName().equals("Opera Game")).findFirst().orElseThrow();
+            assertEquals("Paul Morphy", opera.whiteUsername());
+            assertTrue(opera.concluded());
+            assertEquals(ChessGame.GameStatus.CHECKMATE, opera.game().evaluateStatus());
+            GameData unnamed = games.stream().filter(game -> game.gameName().equals("Another vs Game")).findFirst().orElseThrow();
+            assertFalse(unnamed.concluded());
+        } catch (DataAccessException ex) {
+            throw new TestException("Could not list games: " + ex.getMessage());
+        }
+    }
 }
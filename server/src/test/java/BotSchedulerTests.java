@@ -0,0 +1,242 @@
+import chess.*;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import org.junit.jupiter.api.*;
+import server.bot.BotMetrics;
+import server.bot.BotScheduler;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BotSchedulerTests {
+    private record Played(int gameID, long positionKey, ChessMove move) {
+    }
+
+    // The limits of each search, in the order they started
+    private final BlockingQueue<SearchLimits> searches = new LinkedBlockingQueue<>();
+    // One permit lets one search finish
+    private final Semaphore finish = new Semaphore(0);
+    private final AtomicInteger stops = new AtomicInteger();
+    private final BlockingQueue<Played> played = new LinkedBlockingQueue<>();
+    private final BotScheduler.MoveListener listener = (gameID, positionKey, move) -> played.add(new Played(gameID, positionKey, move));
+    private BotScheduler scheduler;
+
+    /**
+     * Plays the first legal move, once the test lets it finish or the scheduler stops it
+     */
+    private final class FakeEngine extends Engine {
+        private volatile boolean stopped = false;
+
+        private FakeEngine() {
+            super(1);
+        }
+
+        @Override
+        public SearchResult search(ChessGame game, SearchLimits limits, BooleanSupplier cancelled) {
+            // Forgets earlier stops and then reads the caller's flag, as the real engine does
+            stopped = false;
+            searches.add(limits);
+            try {
+                while (!stopped && !cancelled.getAsBoolean() && !finish.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+                    Thread.onSpinWait();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            MoveList moves = new MoveList();
+            game.legalMoves(moves);
+            ChessMove move = Move.toChessMove(moves.get(0));
+            return new SearchResult(move, 0, 1, 1, 0, List.of(move));
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+            stops.incrementAndGet();
+        }
+    }
+
+    private BotScheduler scheduler(int queueCapacity, long minMoveTimeMillis) {
+        scheduler = new BotScheduler(1, queueCapacity, 1000, minMoveTimeMillis, 0, FakeEngine::new);
+        return scheduler;
+    }
+
+    @AfterEach
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private SearchLimits awaitSearch() throws InterruptedException {
+        SearchLimits limits = searches.poll(5, TimeUnit.SECONDS);
+        assertNotNull(limits, "No search started");
+        return limits;
+    }
+
+    private Played awaitMove() throws InterruptedException {
+        Played move = played.poll(5, TimeUnit.SECONDS);
+        assertNotNull(move, "No move was played");
+        return move;
+    }
+
+    @Test
+    @DisplayName("Searches A Copy Of The Game")
+    public void playsMove() throws Exception {
+        BotScheduler scheduler = scheduler(4, 100);
+        ChessGame game = new ChessGame();
+        long startKey = game.positionKey();
+        assertTrue(scheduler.schedule(1, game, listener));
+        awaitSearch();
+
+        // The caller may play on while the search runs
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        finish.release();
+        Played move = awaitMove();
+        assertEquals(1, move.gameID());
+        assertEquals(startKey, move.positionKey());
+        assertTrue(new ChessGame().isLegal(move.move()));
+        assertEquals(1, scheduler.metrics().movesPlayed());
+    }
+
+    @Test
+    @DisplayName("One Move Pending Per Game")
+    public void onePerGame() throws Exception {
+        BotScheduler scheduler = scheduler(4, 100);
+        assertTrue(scheduler.schedule(1, new ChessGame(), listener));
+        awaitSearch();
+        // Asking again while the first is searched is ignored, while other games still queue
+        assertTrue(scheduler.schedule(1, new ChessGame(), listener));
+        assertTrue(scheduler.schedule(2, new ChessGame(), listener));
+        assertTrue(scheduler.schedule(2, new ChessGame(), listener));
+        assertEquals(1, scheduler.metrics().queueDepth());
+
+        finish.release(2);
+        assertEquals(Set.of(1, 2), Set.of(awaitMove().gameID(), awaitMove().gameID()));
+        assertNull(played.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, searches.size());
+
+        // Once its move is handed back the game can ask for the next
+        assertTrue(scheduler.schedule(1, new ChessGame(), listener));
+        finish.release();
+        assertEquals(1, awaitMove().gameID());
+        assertEquals(3, scheduler.metrics().movesPlayed());
+    }
+
+    @Test
+    @DisplayName("Full Queue Refuses Moves")
+    public void rejected() throws Exception {
+        BotScheduler scheduler = scheduler(1, 100);
+        assertTrue(scheduler.schedule(1, new ChessGame(), listener));
+        awaitSearch();
+        assertTrue(scheduler.schedule(2, new ChessGame(), listener));
+        assertFalse(scheduler.schedule(3, new ChessGame(), listener));
+
+        BotMetrics metrics = scheduler.metrics();
+        assertEquals(1, metrics.workers());
+        assertEquals(1, metrics.queueDepth());
+        assertEquals(1, metrics.activeSearches());
+        assertEquals(1, metrics.movesRejected());
+
+        // A refused game is not left pending, so it can ask again once there is room
+        finish.release();
+        assertEquals(1, awaitMove().gameID());
+        awaitSearch();
+        assertTrue(scheduler.schedule(3, new ChessGame(), listener));
+        finish.release(2);
+        assertEquals(2, awaitMove().gameID());
+        assertEquals(3, awaitMove().gameID());
+        assertEquals(1, scheduler.metrics().movesRejected());
+    }
+
+    @Test
+    @DisplayName("Cancelled Moves Are Not Played")
+    public void cancel() throws Exception {
+        BotScheduler scheduler = scheduler(2, 100);
+        assertTrue(scheduler.schedule(1, new ChessGame(), listener));
+        awaitSearch();
+        assertTrue(scheduler.schedule(2, new ChessGame(), listener));
+
+        // A queued move gives up its slot without being searched
+        scheduler.cancel(2);
+        assertEquals(0, scheduler.metrics().queueDepth());
+        assertEquals(1, scheduler.metrics().movesCancelled());
+        // A running search is stopped and its move thrown away
+        scheduler.cancel(1);
+        assertEquals(1, stops.get());
+        assertNull(played.poll(200, TimeUnit.MILLISECONDS));
+        assertTrue(searches.isEmpty());
+        assertEquals(2, scheduler.metrics().movesCancelled());
+        assertEquals(0, scheduler.metrics().movesPlayed());
+
+        // Games with nothing pending have nothing to cancel
+        scheduler.cancel(3);
+        assertEquals(2, scheduler.metrics().movesCancelled());
+        assertTrue(scheduler.schedule(1, new ChessGame(), listener));
+        finish.release();
+        assertEquals(1, awaitMove().gameID());
+    }
+
+    @Test
+    @DisplayName("Searches Get Less Time As The Queue Grows")
+    public void moveBudget() throws Exception {
+        BotScheduler scheduler = scheduler(8, 300);
+        assertTrue(scheduler.schedule(1, new ChessGame(), listener));
+        SearchLimits limits = awaitSearch();
+        assertEquals(1000, limits.timeMillis());
+        assertEquals(SearchLimits.MAX_DEPTH, limits.depth());
+        assertEquals(0, limits.nodes());
+
+        for (int gameID = 2; gameID <= 5; ++gameID) {
+            assertTrue(scheduler.schedule(gameID, new ChessGame(), listener));
+        }
+        // Each search's time is its share of a move's time among the moves waiting, but never below the least
+        for (long expected : new long[]{300, 333, 500, 1000}) {
+            finish.release();
+            awaitMove();
+            assertEquals(expected, awaitSearch().timeMillis());
+        }
+        finish.release();
+        awaitMove();
+    }
+
+    @Test
+    @DisplayName("Metrics Report Waits")
+    public void metrics() throws Exception {
+        BotScheduler scheduler = scheduler(4, 100);
+        assertEquals(new BotMetrics(1, 0, 0, 0, 0, 0, 0, 0), scheduler.metrics());
+        assertTrue(scheduler.schedule(1, new ChessGame(), listener));
+        awaitSearch();
+        assertTrue(scheduler.schedule(2, new ChessGame(), listener));
+        Thread.sleep(50);
+        finish.release(2);
+        awaitMove();
+        awaitMove();
+
+        BotMetrics metrics = scheduler.metrics();
+        assertEquals(2, metrics.movesPlayed());
+        assertEquals(0, metrics.queueDepth());
+        // The second game waited for the first one's search
+        assertTrue(metrics.maxWaitMillis() >= 50, metrics.toString());
+        assertTrue(metrics.averageWaitMillis() >= 25, metrics.toString());
+        assertTrue(metrics.averageWaitMillis() <= metrics.maxWaitMillis(), metrics.toString());
+    }
+
+    @Test
+    @DisplayName("Invalid Settings")
+    public void invalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new BotScheduler(0, 1, 1000, 100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BotScheduler(1, 0, 1000, 100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BotScheduler(1, 1, 100, 1000, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BotScheduler(1, 1, 1000, 100, -1));
+    }
+}
@@ -17,6 +17,7 @@ import service.exceptions.ServiceException;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class GameServiceTests {
@@ -143,4 +144,23 @@ public class GameServiceTests {
                 "Expected unauthorized client.exception but didn't get one"
         );
     }
+
+    @Test
+    @Order(7)
+    @DisplayName("Export game as PGN")
+    public void exportPgn() throws TestException {
+        try {
+            String pgn = gameService.exportPgn(registerResponse.authToken(), createGameResponse.gameID());
+            assertTrue(pgn.startsWith("[Event \"gameA\"]\n"), "PGN did not start with the game's name");
+            assertTrue(pgn.contains("[White \"Steve\"]\n"), "PGN did not name the white player");
+            assertTrue(pgn.endsWith("\n\n*\n\n"), "PGN of an unplayed game had moves or a result");
+        } catch (Exception ex) {
+            throw new TestException("Could not export the game: " + ex.getMessage());
+        }
+        assertThrows(
+                ServiceException.class,
+                () -> gameService.exportPgn(registerResponse.authToken(), -1),
+                "Game service exported a game that does not exist"
+        );
+    }
 }
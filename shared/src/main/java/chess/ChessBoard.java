@@ -1,29 +1,104 @@
 package chess;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * Copies are copy-on-write: a copy shares its rows and bitboards with the board it was made from, and
+ * whichever of the two changes first copies only the row and bitboards it touches. Shared arrays are never
+ * written to again, so a copy costs the same however full the board is.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
 public class ChessBoard {
     private ChessPiece[][] board = new ChessPiece[8][8];
 
+    // Only the board array is saved. The bitboards and key are worked out from it, so a board loaded from JSON,
+    // which comes with a new array, rebuilds them on first use
+
+    // Bitboards, bit 0 is A1 (row 1, column 1) and bit 63 is H8 (row 8, column 8)
+    // One mask per color and piece type, indexed by bitboardIndex()
+    private transient long[] pieceBitboards = new long[12];
+    // One occupancy mask per color
+    private transient long[] colorBitboards = new long[2];
+    // Zobrist key of the pieces on the board, updated as they are added and removed
+    private transient long pieceKey = 0;
+    // The board array the bitboards and key were worked out for
+    private transient ChessPiece[][] indexedBoard = board;
+    // Bumped on every change so ChessGame can tell when its cached analysis is stale
+    private transient int version = 0;
+
+    // Evaluation sums of the pieces on the board (see Evaluation), updated as they are added and removed.
+    // They are not saved, so a board loaded from JSON rebuilds them on first use
+    private transient boolean scoresValid = false;
+    private transient int middlegameScore = 0;
+    private transient int endgameScore = 0;
+    private transient int phase = 0;
+    // Zobrist key of the pawns alone, for the pawn structure cache
+    private transient long pawnKey = 0;
+
+    // Rows of the board array, one bit per index, that are shared with another board and must be copied
+    // before they are written to
+    private transient int sharedRows = 0;
+    // Whether the bitboard arrays are shared with another board
+    private transient boolean sharedBitboards = false;
+    // A snapshot (see snapshot()) can no longer be changed
+    private transient boolean frozen = false;
+
     public ChessBoard() {
         // resetBoard();
     }
 
     public ChessBoard(ChessBoard other) {
-        for (int row = 0; row < 8; ++row) {
-            for (int col = 0; col < 8; ++col) {
-                if (other.board[row][col] != null) {
-                    board[row][col] = new ChessPiece(other.board[row][col]);
-                }
-            }
+        other.ensureBitboards();
+        // Pieces are immutable, so the rows can be shared too until one side writes to them
+        board = other.board.clone();
+        indexedBoard = board;
+        pieceBitboards = other.pieceBitboards;
+        colorBitboards = other.colorBitboards;
+        sharedRows = 0xFF;
+        sharedBitboards = true;
+        // A snapshot never writes, so it is left untouched and can be copied from any thread
+        if (!other.frozen) {
+            other.sharedRows = 0xFF;
+            other.sharedBitboards = true;
+        }
+        pieceKey = other.pieceKey;
+        scoresValid = other.scoresValid;
+        middlegameScore = other.middlegameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+        pawnKey = other.pawnKey;
+    }
+
+    /**
+     * Takes a read-only copy of the board in its current state. This board may go on changing without
+     * affecting it. Nothing in a snapshot is ever written to again, including cached values, so once it has
+     * been safely published (through a final or volatile field, a concurrent collection or an executor)
+     * any number of threads may read it and copy from it without locking.
+     *
+     * @return A board that throws UnsupportedOperationException when changed
+     */
+    public ChessBoard snapshot() {
+        if (frozen) {
+            return this;
         }
+        // Worked out now so reading them later never writes to the snapshot. The bitboards come first, since
+        // rebuilding them, as after loading from JSON, throws the scores away
+        ensureBitboards();
+        ensureScores();
+        ChessBoard snapshot = new ChessBoard(this);
+        snapshot.frozen = true;
+        return snapshot;
+    }
+
+    /**
+     * @return Whether this board is a snapshot that can no longer be changed
+     */
+    public boolean isSnapshot() {
+        return frozen;
     }
 
     /**
@@ -33,7 +108,36 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        this.board[8 - position.getRow()][position.getColumn() - 1] = piece;
+        putPiece(position.getSquare(), piece);
+    }
+
+    /**
+     * Puts a piece, or null to empty it, on a bitboard square
+     */
+    void putPiece(int square, ChessPiece piece) {
+        if (frozen) {
+            throw new UnsupportedOperationException("A board snapshot cannot be changed");
+        }
+        ensureBitboards();
+        int row = 7 - square / 8;
+        if ((sharedRows & (1 << row)) != 0) {
+            this.board[row] = this.board[row].clone();
+            sharedRows &= ~(1 << row);
+        }
+        if (sharedBitboards) {
+            pieceBitboards = pieceBitboards.clone();
+            colorBitboards = colorBitboards.clone();
+            sharedBitboards = false;
+        }
+        ChessPiece previous = this.board[row][square % 8];
+        if (previous != null) {
+            clearBit(previous, square);
+        }
+        if (piece != null) {
+            setBit(piece, square);
+        }
+        this.board[row][square % 8] = piece;
+        ++version;
     }
 
     /**
@@ -47,16 +151,193 @@ public class ChessBoard {
         return this.board[8 - position.getRow()][position.getColumn() - 1];
     }
 
+    /**
+     * @return The piece on a bitboard square, or null if it is empty
+     */
+    ChessPiece pieceAt(int square) {
+        return this.board[7 - square / 8][square % 8];
+    }
+
     public void movePiece(ChessMove move) {
         ChessPiece piece = getPiece(move.getStartPosition());
         addPiece(move.getStartPosition(), null);
         if (move.getPromotionPiece() != null) {
-            addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
+            addPiece(move.getEndPosition(), ChessPiece.of(piece.getTeamColor(), move.getPromotionPiece()));
         } else {
             addPiece(move.getEndPosition(), piece);
         }
     }
 
+    /**
+     * Gets the bitboard of every piece of the given team and type
+     *
+     * @param teamColor the team the pieces belong to
+     * @param type      the type of the pieces
+     * @return A mask with bit (row - 1) * 8 + (column - 1) set for each matching piece
+     */
+    public long getBitboard(ChessGame.TeamColor teamColor, ChessPiece.PieceType type) {
+        ensureBitboards();
+        return pieceBitboards[bitboardIndex(teamColor, type)];
+    }
+
+    /**
+     * @return A mask of every square occupied by the given team
+     */
+    public long getTeamBitboard(ChessGame.TeamColor teamColor) {
+        ensureBitboards();
+        return colorBitboards[teamColor.ordinal()];
+    }
+
+    /**
+     * @return A mask of every occupied square
+     */
+    public long getOccupied() {
+        ensureBitboards();
+        return colorBitboards[0] | colorBitboards[1];
+    }
+
+    /**
+     * @return The Zobrist key of the pieces on the board, ignoring whose turn it is
+     */
+    public long getPieceKey() {
+        ensureBitboards();
+        return pieceKey;
+    }
+
+    /**
+     * @return Whether the board holds exactly the pieces of the given bitboards, as copyPieceBitboards gives them
+     */
+    boolean hasPieceBitboards(long[] bitboards) {
+        ensureBitboards();
+        return Arrays.equals(pieceBitboards, bitboards);
+    }
+
+    /**
+     * @return A copy of the bitboard of each color and piece type
+     */
+    long[] copyPieceBitboards() {
+        ensureBitboards();
+        return pieceBitboards.clone();
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The middlegame material and placement score of the pieces, positive for white
+     */
+    int getMiddlegameScore() {
+        ensureScores();
+        return middlegameScore;
+    }
+
+    /**
+     * @return The endgame material and placement score of the pieces, positive for white
+     */
+    int getEndgameScore() {
+        ensureScores();
+        return endgameScore;
+    }
+
+    /**
+     * @return How much material is left, from 0 for bare Kings up to Evaluation.MAX_PHASE or more
+     */
+    int getPhase() {
+        ensureScores();
+        return phase;
+    }
+
+    long getPawnKey() {
+        ensureScores();
+        return pawnKey;
+    }
+
+    /**
+     * Rebuilds the bitboards and key from the board array if they were worked out for a different one, as
+     * after loading from JSON
+     */
+    private void ensureBitboards() {
+        if (indexedBoard == board) {
+            return;
+        }
+        // New arrays, since the old ones may be shared with a copy
+        pieceBitboards = new long[12];
+        colorBitboards = new long[2];
+        sharedBitboards = false;
+        pieceKey = 0;
+        for (int square = 0; square < 64; ++square) {
+            ChessPiece piece = pieceAt(square);
+            if (piece != null) {
+                long bit = 1L << square;
+                pieceBitboards[bitboardIndex(piece.getTeamColor(), piece.getPieceType())] |= bit;
+                colorBitboards[piece.getTeamColor().ordinal()] |= bit;
+                pieceKey ^= Zobrist.piece(piece, square);
+            }
+        }
+        scoresValid = false;
+        indexedBoard = board;
+    }
+
+    private void ensureScores() {
+        if (scoresValid) {
+            return;
+        }
+        if (frozen) {
+            // Snapshots are read from many threads at once, so they must never fill in their scores lazily
+            throw new IllegalStateException("A board snapshot was taken without its scores");
+        }
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        pawnKey = 0;
+        for (int square = 0; square < 64; ++square) {
+            ChessPiece piece = pieceAt(square);
+            if (piece != null) {
+                addScores(piece, square);
+            }
+        }
+        scoresValid = true;
+    }
+
+    private void addScores(ChessPiece piece, int square) {
+        middlegameScore += Evaluation.middlegame(piece, square);
+        endgameScore += Evaluation.endgame(piece, square);
+        phase += Evaluation.phase(piece);
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+    }
+
+    private void removeScores(ChessPiece piece, int square) {
+        middlegameScore -= Evaluation.middlegame(piece, square);
+        endgameScore -= Evaluation.endgame(piece, square);
+        phase -= Evaluation.phase(piece);
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+    }
+
+    private static int bitboardIndex(ChessGame.TeamColor teamColor, ChessPiece.PieceType type) {
+        return teamColor.ordinal() * 6 + type.ordinal();
+    }
+
+    private void setBit(ChessPiece piece, int square) {
+        long bit = 1L << square;
+        pieceBitboards[bitboardIndex(piece.getTeamColor(), piece.getPieceType())] |= bit;
+        colorBitboards[piece.getTeamColor().ordinal()] |= bit;
+        pieceKey ^= Zobrist.piece(piece, square);
+        addScores(piece, square);
+    }
+
+    private void clearBit(ChessPiece piece, int square) {
+        long bit = ~(1L << square);
+        pieceBitboards[bitboardIndex(piece.getTeamColor(), piece.getPieceType())] &= bit;
+        colorBitboards[piece.getTeamColor().ordinal()] &= bit;
+        pieceKey ^= Zobrist.piece(piece, square);
+        removeScores(piece, square);
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
@@ -64,8 +345,8 @@ public class ChessBoard {
     public void resetBoard() {
         // Fill pawns
         for (int col = 1; col <= 8; ++col) {
-            addPiece(new ChessPosition(2, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            addPiece(new ChessPosition(7, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(2, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
 
         int col = 1;
@@ -79,15 +360,15 @@ public class ChessBoard {
                 ChessPiece.PieceType.KNIGHT,
                 ChessPiece.PieceType.ROOK
         }) {
-            addPiece(new ChessPosition(1, col), new ChessPiece(ChessGame.TeamColor.WHITE, piece));
-            addPiece(new ChessPosition(8, col), new ChessPiece(ChessGame.TeamColor.BLACK, piece));
+            addPiece(ChessPosition.of(1, col), ChessPiece.of(ChessGame.TeamColor.WHITE, piece));
+            addPiece(ChessPosition.of(8, col), ChessPiece.of(ChessGame.TeamColor.BLACK, piece));
             ++col;
         }
 
         // All other tiles null, just in case
         for (int row = 3; row <= 6; ++row) {
             for (col = 1; col <= 8; ++col) {
-                addPiece(new ChessPosition(row, col), null);
+                addPiece(ChessPosition.of(row, col), null);
             }
         }
     }
@@ -104,12 +385,15 @@ public class ChessBoard {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ChessBoard that = (ChessBoard) o;
-        return Arrays.deepEquals(board, that.board);
+        ensureBitboards();
+        that.ensureBitboards();
+        // The bitboards always mirror the board array, so comparing them is enough
+        return Arrays.equals(pieceBitboards, that.pieceBitboards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Long.hashCode(getPieceKey());
     }
 
     @Override
@@ -1,8 +1,15 @@
 package chess;
 
+import chess.pieceRules.Attacks;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * For a class that can manage a chess game, making moves on a board
@@ -10,6 +17,7 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(GameJsonAdapter.class)
 public class ChessGame {
     private ChessBoard chessBoard;
     private TeamColor teamTurn;
@@ -26,102 +34,224 @@ public class ChessGame {
     private ChessPosition lastWhitePawnToDoubleMove = null;
     private ChessPosition lastBlackPawnToDoubleMove = null;
 
-    private Collection<ChessMove> validEnPassantMoves(ChessPosition startPosition, ChessPiece piece) {
-        HashSet<ChessMove> legalMoves = new HashSet<>();
-        // If sideways neighbor is enemy pawn
-        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
-            ChessPosition toLeft = new ChessPosition(startPosition.getRow(), startPosition.getColumn() - 1);
-            ChessPosition toRight = new ChessPosition(startPosition.getRow(), startPosition.getColumn() + 1);
-
-            if (piece.getTeamColor() == TeamColor.WHITE) {
-                if (toLeft.equals(lastBlackPawnToDoubleMove) || toRight.equals(lastBlackPawnToDoubleMove)) {
-                    ChessPosition endPosition = new ChessPosition(lastBlackPawnToDoubleMove.getRow() + 1, lastBlackPawnToDoubleMove.getColumn());
-                    ChessMove move = new ChessMove(startPosition, endPosition, null);
-                    legalMoves.add(move);
-                }
-            } else {
-                if (toLeft.equals(lastWhitePawnToDoubleMove) || toRight.equals(lastWhitePawnToDoubleMove)) {
-                    ChessPosition endPosition = new ChessPosition(lastWhitePawnToDoubleMove.getRow() - 1, lastWhitePawnToDoubleMove.getColumn());
-                    ChessMove move = new ChessMove(startPosition, endPosition, null);
-                    legalMoves.add(move);
-                }
+    // Moves made so far, oldest first, each packed with what unmakeMove needs to take it back
+    private long[] history = new long[16];
+    private int historySize = 0;
+    // The position key before each move in history, for spotting repetitions. Not saved, since it can be
+    // worked out from the history (see GameJsonAdapter)
+    private transient long[] positionKeys = new long[16];
+    // Whether the history arrays are shared with a copy of the game, so must be copied before the next move
+    private transient boolean sharedHistory = false;
+    // A snapshot (see snapshot()) can no longer be changed and keeps no caches
+    private transient boolean frozen = false;
+
+    // Moves since the last capture or pawn move, for the fifty-move rule
+    private int halfmoveClock = 0;
+    // Starts at 1 and goes up after each black move, as in FEN
+    private int fullmoveNumber = 1;
+
+    // Layout of a history entry: the packed move (see Move) in the low bits, then what it overwrote
+    private static final long MOVE_MASK = 0xFFFFF;
+    // 4 bits, 0 for no capture or the captured piece's bitboard index plus one
+    private static final int CAPTURED_SHIFT = 20;
+    // 6 bits, the HasMoved flags in declaration order
+    private static final int CASTLING_SHIFT = 24;
+    // 7 bits, 0 for none or the square plus one of the pawn that had just double moved
+    private static final int EN_PASSANT_SHIFT = 30;
+    // 16 bits, the halfmove clock
+    private static final int HALFMOVE_SHIFT = 37;
+
+    // Squares like b1 and a2, the opposite color of a1
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    // Captured pieces stored in history entries, by bitboard index
+    private static final ChessPiece[] PIECES_BY_INDEX = new ChessPiece[12];
+
+    // FEN letters of the white pieces, by PieceType ordinal; black's are lower case
+    private static final String FEN_PIECES = "KQBNRP";
+
+    // Legal moves of positions seen by any game, or null to always generate them
+    private static volatile MoveCache moveCache = null;
+
+    static {
+        for (TeamColor color : TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES_BY_INDEX[color.ordinal() * 6 + type.ordinal()] = ChessPiece.of(color, type);
             }
         }
-        return legalMoves;
     }
 
-    private Collection<ChessMove> validCastlingMoves(ChessPosition startPosition, ChessPiece piece, TeamColor pieceColor) {
-        HashSet<ChessMove> legalMoves = new HashSet<>();
-        if (piece.getPieceType() == ChessPiece.PieceType.KING && !isInCheck(pieceColor)) {
-            if (pieceColor == TeamColor.WHITE && !whiteKingHasMoved) {
-                if (!whiteLeftRookHasMoved) {
-                    // Ensure path is clear
-                    if (
-                            chessBoard.getPiece(new ChessPosition(1, 4)) == null &&
-                                    chessBoard.getPiece(new ChessPosition(1, 3)) == null &&
-                                    chessBoard.getPiece(new ChessPosition(1, 2)) == null
-                    ) {
-                        ChessMove move = new ChessMove(startPosition, new ChessPosition(1, 3), null);
-                        // Move cannot cause the King or Rook to be in danger
-                        if (
-                                !doesMoveCauseCheck(move, pieceColor) &&
-                                        !doesMoveCausePositionDanger(move, new ChessPosition(1, 4), pieceColor)
-                        ) {
-                            legalMoves.add(move);
-                        }
-                    }
-                }
-                if (!whiteRightRookHasMoved) {
-                    // Ensure path is clear
-                    if (
-                            chessBoard.getPiece(new ChessPosition(1, 6)) == null &&
-                                    chessBoard.getPiece(new ChessPosition(1, 7)) == null
-                    ) {
-                        ChessMove move = new ChessMove(startPosition, new ChessPosition(1, 7), null);
-                        if (
-                                !doesMoveCauseCheck(move, pieceColor) &&
-                                        !doesMoveCausePositionDanger(move, new ChessPosition(1, 6), pieceColor)
-                        ) {
-                            legalMoves.add(move);
-                        }
-                    }
-                }
-            } else if (pieceColor == TeamColor.BLACK && !blackKingHasMoved) {
-                if (!blackLeftRookHasMoved) {
-                    // Ensure path is clear
-                    if (
-                            chessBoard.getPiece(new ChessPosition(8, 4)) == null &&
-                                    chessBoard.getPiece(new ChessPosition(8, 3)) == null &&
-                                    chessBoard.getPiece(new ChessPosition(8, 2)) == null
-                    ) {
-                        ChessMove move = new ChessMove(startPosition, new ChessPosition(8, 3), null);
-                        // Move cannot cause the King or Rook to be in danger
-                        if (
-                                !doesMoveCauseCheck(move, pieceColor) &&
-                                        !doesMoveCausePositionDanger(move, new ChessPosition(8, 4), pieceColor)
-                        ) {
-                            legalMoves.add(move);
-                        }
-                    }
-                }
-                if (!blackRightRookHasMoved) {
-                    // Ensure path is clear
-                    if (
-                            chessBoard.getPiece(new ChessPosition(8, 6)) == null &&
-                                    chessBoard.getPiece(new ChessPosition(8, 7)) == null
-                    ) {
-                        ChessMove move = new ChessMove(startPosition, new ChessPosition(8, 7), null);
-                        if (
-                                !doesMoveCauseCheck(move, pieceColor) &&
-                                        !doesMoveCausePositionDanger(move, new ChessPosition(8, 6), pieceColor)
-                        ) {
-                            legalMoves.add(move);
-                        }
-                    }
-                }
+    // King and attack state for each team, indexed by TeamColor ordinal
+    private final transient Analysis[] analyses = {new Analysis(), new Analysis()};
+
+    // Pawn structure scores, made on the first evaluate()
+    private transient PawnCache pawnCache;
+
+    // The last moves found in the shared move cache and the position they belong to, so asking about each
+    // piece in turn looks in the shared cache once
+    private transient int[] lastCachedMoves;
+    private transient ChessBoard lastCachedBoard;
+    private transient int lastCachedVersion;
+    private transient int lastCachedState;
+
+    /**
+     * What one team's King is up against, valid until the analyzed board changes
+     */
+    private static class Analysis {
+        private ChessBoard board = null;
+        private int version;
+        private int kingSquare;
+        // Enemy pieces attacking the King
+        private long checkers;
+        // Our pieces that cannot leave the line between the King and an enemy slider
+        private long pinned;
+        // Squares a non-King move must land on to resolve check
+        private long checkMask;
+        // Squares the enemy attacks, looking through our King
+        private long dangerSquares;
+    }
+
+    /**
+     * @return The En Passant capture the pawn on the start square can make, or Move.NONE if it has none
+     */
+    int enPassantMove(int startSquare, ChessPiece piece) {
+        if (piece.getPieceType() != ChessPiece.PieceType.PAWN) {
+            return Move.NONE;
+        }
+        TeamColor pieceColor = piece.getTeamColor();
+        ChessPosition doubleMovedPawn = pieceColor == TeamColor.WHITE ? lastBlackPawnToDoubleMove : lastWhitePawnToDoubleMove;
+        // If sideways neighbor is the enemy pawn that just double moved
+        if (doubleMovedPawn == null || doubleMovedPawn.getRow() != startSquare / 8 + 1 ||
+                Math.abs(doubleMovedPawn.getColumn() - (startSquare % 8 + 1)) != 1) {
+            return Move.NONE;
+        }
+        int capturedSquare = doubleMovedPawn.getSquare();
+        int endSquare = pieceColor == TeamColor.WHITE ? capturedSquare + 8 : capturedSquare - 8;
+        if (!isEnPassantSafe(startSquare, endSquare, capturedSquare, pieceColor)) {
+            return Move.NONE;
+        }
+        return Move.encode(startSquare, endSquare, null, Move.CAPTURE | Move.EN_PASSANT);
+    }
+
+    void addCastlingMoves(MoveList legalMoves, int startSquare, ChessPiece piece) {
+        int queenSide = castlingMove(startSquare, piece, false);
+        if (queenSide != Move.NONE) {
+            legalMoves.add(queenSide);
+        }
+        int kingSide = castlingMove(startSquare, piece, true);
+        if (kingSide != Move.NONE) {
+            legalMoves.add(kingSide);
+        }
+    }
+
+    /**
+     * @param kingSide true to castle toward column 8, false for column 1
+     * @return The castling move the piece on the start square can make, or Move.NONE if it cannot
+     */
+    private int castlingMove(int startSquare, ChessPiece piece, boolean kingSide) {
+        TeamColor pieceColor = piece.getTeamColor();
+        if (piece.getPieceType() != ChessPiece.PieceType.KING || analyze(pieceColor).checkers != 0) {
+            return Move.NONE;
+        }
+        int row = pieceColor == TeamColor.WHITE ? 1 : 8;
+        if (!hasCastlingRight(pieceColor, kingSide) || startSquare != (row - 1) * 8 + 4) {
+            return Move.NONE;
+        }
+        if (kingSide) {
+            // Columns 6-7 must be empty and safe
+            return canCastle(pieceColor, row, 8, new int[]{6, 7}, new int[]{6, 7})
+                    ? Move.encode(startSquare, startSquare + 2, null, Move.CASTLE)
+                    : Move.NONE;
+        }
+        // Columns 2-4 must be empty, and the King cannot pass through or land on a square in danger
+        return canCastle(pieceColor, row, 1, new int[]{2, 3, 4}, new int[]{3, 4})
+                ? Move.encode(startSquare, startSquare - 2, null, Move.CASTLE)
+                : Move.NONE;
+    }
+
+    private boolean canCastle(TeamColor teamColor, int row, int rookColumn, int[] emptyColumns, int[] safeColumns) {
+        int rowStart = (row - 1) * 8;
+        long rookBit = 1L << (rowStart + rookColumn - 1);
+        if ((chessBoard.getBitboard(teamColor, ChessPiece.PieceType.ROOK) & rookBit) == 0) {
+            return false;
+        }
+        long occupied = chessBoard.getOccupied();
+        for (int col : emptyColumns) {
+            if ((occupied & (1L << (rowStart + col - 1))) != 0) {
+                return false;
             }
         }
-        return legalMoves;
+        long dangerSquares = analyze(teamColor).dangerSquares;
+        for (int col : safeColumns) {
+            if ((dangerSquares & (1L << (rowStart + col - 1))) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isEnPassantSafe(int startSquare, int endSquare, int capturedSquare, TeamColor teamColor) {
+        long king = chessBoard.getBitboard(teamColor, ChessPiece.PieceType.KING);
+        if (king == 0) {
+            return true;
+        }
+        // Both pawns leave their squares at once, which can open a row to the King
+        long occupied = chessBoard.getOccupied();
+        occupied &= ~(1L << startSquare) & ~(1L << capturedSquare);
+        occupied |= 1L << endSquare;
+        return attackersTo(Long.numberOfTrailingZeros(king), opponent(teamColor), occupied) == 0;
+    }
+
+    /**
+     * Finds the team's King, checking pieces, pinned pieces and danger squares, unless they are already known
+     * for the current board
+     */
+    private Analysis analyze(TeamColor teamColor) {
+        Analysis analysis = analyses[teamColor.ordinal()];
+        // A snapshot's were worked out when it was taken and are never written again
+        if (frozen || (analysis.board == chessBoard && analysis.version == chessBoard.getVersion())) {
+            return analysis;
+        }
+        analysis.board = chessBoard;
+        analysis.version = chessBoard.getVersion();
+        analysis.checkers = 0;
+        analysis.pinned = 0;
+        analysis.checkMask = -1L;
+
+        long king = chessBoard.getBitboard(teamColor, ChessPiece.PieceType.KING);
+        TeamColor enemyColor = opponent(teamColor);
+        long occupied = chessBoard.getOccupied();
+        analysis.kingSquare = Long.numberOfTrailingZeros(king);
+        // Lift the King so it cannot hide from a slider by stepping along its ray
+        analysis.dangerSquares = attackedSquares(enemyColor, occupied & ~king);
+        if (king == 0) {
+            return analysis;
+        }
+        int kingSquare = analysis.kingSquare;
+        if ((analysis.dangerSquares & king) != 0) {
+            analysis.checkers = attackersTo(kingSquare, enemyColor, occupied);
+            if (Long.bitCount(analysis.checkers) > 1) {
+                // Only the King can escape a double check
+                analysis.checkMask = 0;
+            } else {
+                // Capture the checker or block it
+                int checker = Long.numberOfTrailingZeros(analysis.checkers);
+                analysis.checkMask = analysis.checkers | Attacks.between(kingSquare, checker);
+            }
+        }
+
+        // An enemy slider lined up with the King with exactly one of our pieces in between pins that piece
+        long queens = chessBoard.getBitboard(enemyColor, ChessPiece.PieceType.QUEEN);
+        long snipers = (Attacks.rookAttacks(kingSquare, 0) & (chessBoard.getBitboard(enemyColor, ChessPiece.PieceType.ROOK) | queens)) |
+                (Attacks.bishopAttacks(kingSquare, 0) & (chessBoard.getBitboard(enemyColor, ChessPiece.PieceType.BISHOP) | queens));
+        while (snipers != 0) {
+            long blockers = Attacks.between(kingSquare, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                analysis.pinned |= blockers & chessBoard.getTeamBitboard(teamColor);
+            }
+            snipers &= snipers - 1;
+        }
+        return analysis;
     }
 
     public ChessGame() {
@@ -130,8 +260,21 @@ public class ChessGame {
         teamTurn = TeamColor.WHITE;
     }
 
+    private ChessGame(ChessBoard board, TeamColor teamTurn) {
+        this.chessBoard = board;
+        this.teamTurn = teamTurn;
+    }
+
+    /**
+     * Copies the game. The copy shares the board and history with the original (see ChessBoard), so this
+     * takes the same time however long the game has gone on
+     */
     public ChessGame(ChessGame other) {
-        chessBoard = new ChessBoard(other.chessBoard);
+        this(other, new ChessBoard(other.chessBoard));
+    }
+
+    private ChessGame(ChessGame other, ChessBoard board) {
+        chessBoard = board;
         teamTurn = other.teamTurn;
         whiteKingHasMoved = other.whiteKingHasMoved;
         whiteLeftRookHasMoved = other.whiteLeftRookHasMoved;
@@ -141,6 +284,52 @@ public class ChessGame {
         blackRightRookHasMoved = other.blackRightRookHasMoved;
         lastWhitePawnToDoubleMove = other.lastWhitePawnToDoubleMove;
         lastBlackPawnToDoubleMove = other.lastBlackPawnToDoubleMove;
+        // Moves are only ever added past historySize, so both games can read the same arrays until one of
+        // them makes a move
+        history = other.history;
+        historySize = other.historySize;
+        positionKeys = other.positionKeys;
+        sharedHistory = true;
+        if (!other.frozen) {
+            other.sharedHistory = true;
+        }
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+    }
+
+    /**
+     * Takes a read-only copy of the game in its current state, for publishing to other threads or sending
+     * to clients while this game goes on. Its board is a {@link ChessBoard#snapshot()}, and what it caches
+     * is worked out before it is returned, so once safely published it can be read by any number of threads
+     * without locking. Changing
+     * it throws UnsupportedOperationException; new ChessGame(snapshot) gives a game that can be played on.
+     *
+     * @return A snapshot of the game
+     */
+    public ChessGame snapshot() {
+        if (frozen) {
+            return this;
+        }
+        ChessGame snapshot = new ChessGame(this, chessBoard.snapshot());
+        // Both Kings' checks, pins and danger squares, shared by every reader instead of worked out on each call
+        for (TeamColor color : TeamColor.values()) {
+            snapshot.analyze(color);
+        }
+        snapshot.frozen = true;
+        return snapshot;
+    }
+
+    /**
+     * @return Whether this game is a snapshot that can no longer be changed
+     */
+    public boolean isSnapshot() {
+        return frozen;
+    }
+
+    private void checkNotSnapshot() {
+        if (frozen) {
+            throw new UnsupportedOperationException("A game snapshot cannot be changed");
+        }
     }
 
     /**
@@ -156,6 +345,7 @@ public class ChessGame {
      * @param team the team whose turn it is
      */
     public void setTeamTurn(TeamColor team) {
+        checkNotSnapshot();
         this.teamTurn = team;
     }
 
@@ -167,6 +357,33 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Enum identifying the state of a game from the point of view of the team whose turn it is
+     */
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        THREEFOLD_REPETITION,
+        FIFTY_MOVE_RULE,
+        INSUFFICIENT_MATERIAL;
+
+        /**
+         * @return True if no more moves can be made
+         */
+        public boolean isGameOver() {
+            return this != IN_PROGRESS && this != CHECK;
+        }
+
+        /**
+         * @return True if the game ended without a winner
+         */
+        public boolean isDraw() {
+            return isGameOver() && this != CHECKMATE;
+        }
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -179,20 +396,589 @@ public class ChessGame {
         if (piece == null) {
             return null;
         }
-        Collection<ChessMove> moves = piece.pieceMoves(this.chessBoard, startPosition);
+        // The cache holds only the moves of the team to move
+        int[] cached = piece.getTeamColor() == teamTurn ? cachedLegalMoves(true) : null;
+        if (cached != null) {
+            HashSet<ChessMove> legalMoves = new HashSet<>();
+            for (int move : cached) {
+                if (Move.from(move) == startPosition.getSquare()) {
+                    legalMoves.add(Move.toChessMove(move));
+                }
+            }
+            return legalMoves;
+        }
+        MoveList moves = new MoveList();
+        addLegalMoves(moves, startPosition.getSquare(), piece);
         HashSet<ChessMove> legalMoves = new HashSet<>();
-        TeamColor pieceColor = piece.getTeamColor();
+        for (int i = 0; i < moves.size(); ++i) {
+            legalMoves.add(Move.toChessMove(moves.get(i)));
+        }
+        return legalMoves;
+    }
+
+    /**
+     * Shares a cache of legal moves between every game, so positions that come up again, as openings do, are
+     * not generated again. validMoves consults it and stores the positions it misses; isLegal and
+     * makeMove(ChessMove) only use positions already there, and otherwise check the one move directly. Search
+     * and the packed move methods never touch it.
+     *
+     * @param cache the cache to use, or null to stop caching
+     */
+    public static void setMoveCache(MoveCache cache) {
+        moveCache = cache;
+    }
 
-        for (ChessMove move : moves) {
-            if (!doesMoveCauseCheck(move, pieceColor)) {
-                legalMoves.add(move);
+    /**
+     * @return The cache of legal moves shared between games, or null if there is none
+     */
+    public static MoveCache getMoveCache() {
+        return moveCache;
+    }
+
+    /**
+     * @param generate whether to generate and store the moves if the cache does not have them
+     * @return The legal moves of the team to move from the shared cache, or null if there is no cache, or the
+     * position is not in it and generate is false
+     */
+    private int[] cachedLegalMoves(boolean generate) {
+        MoveCache cache = moveCache;
+        if (cache == null) {
+            return null;
+        }
+        int state = positionState();
+        if (lastCachedMoves != null && lastCachedBoard == chessBoard && lastCachedVersion == chessBoard.getVersion() &&
+                lastCachedState == state) {
+            return lastCachedMoves;
+        }
+        long key = positionKey();
+        int[] moves = cache.get(key, chessBoard, state);
+        if (moves == null) {
+            if (!generate) {
+                return null;
+            }
+            MoveList legalMoves = new MoveList();
+            legalMoves(legalMoves);
+            moves = legalMoves.toArray();
+            cache.put(key, chessBoard, state, moves);
+        }
+        // A snapshot is read by many threads, so it remembers nothing
+        if (!frozen) {
+            lastCachedMoves = moves;
+            lastCachedBoard = chessBoard;
+            lastCachedVersion = chessBoard.getVersion();
+            lastCachedState = state;
+        }
+        return moves;
+    }
+
+    /**
+     * @return Everything besides the pieces that decides the legal moves: whose turn it is, the castling rights
+     * and the pawn that can be taken En Passant
+     */
+    private int positionState() {
+        int state = teamTurn.ordinal();
+        int bit = 2;
+        for (TeamColor color : TeamColor.values()) {
+            for (boolean kingSide : new boolean[]{false, true}) {
+                if (hasCastlingRight(color, kingSide)) {
+                    state |= bit;
+                }
+                bit <<= 1;
             }
         }
+        ChessPosition enPassantPawn = getEnPassantPawn();
+        return enPassantPawn == null ? state : state | (enPassantPawn.getSquare() + 1) << 5;
+    }
+
+    /**
+     * Adds every valid move of the team whose turn it is to a buffer, as packed moves (see {@link Move})
+     *
+     * @param moves the buffer to add the moves to
+     */
+    public void legalMoves(MoveList moves) {
+        long pieces = chessBoard.getTeamBitboard(teamTurn);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            addLegalMoves(moves, square, chessBoard.getPiece(ChessPosition.fromSquare(square)));
+            pieces &= pieces - 1;
+        }
+    }
+
+    /**
+     * Hands out the valid moves of the team whose turn it is one at a time, captures first, generating and
+     * checking each only when it is asked for (see {@link StagedMoves})
+     *
+     * @return The moves, good while the game is in this position
+     */
+    public StagedMoves stagedMoves() {
+        return new StagedMoves(this, StagedMoves.allStages(), -1L);
+    }
+
+    /**
+     * @param stages which kinds of moves to hand out, such as only captures and promotions
+     * @see #stagedMoves()
+     */
+    public StagedMoves stagedMoves(Set<StagedMoves.Stage> stages) {
+        return new StagedMoves(this, stages, -1L);
+    }
+
+    /**
+     * @param startPosition the piece whose moves to hand out; it has none if it is not on the team to move
+     * @see #stagedMoves()
+     */
+    public StagedMoves stagedMoves(ChessPosition startPosition) {
+        return new StagedMoves(this, StagedMoves.allStages(), 1L << startPosition.getSquare());
+    }
+
+    private void addLegalMoves(MoveList moves, int square, ChessPiece piece) {
+        piece.pieceMoves(chessBoard, ChessPosition.fromSquare(square), legalTargets(square, piece), moves);
         // Castling
-        legalMoves.addAll(validCastlingMoves(startPosition, piece, pieceColor));
+        addCastlingMoves(moves, square, piece);
         // En Passant
-        legalMoves.addAll(validEnPassantMoves(startPosition, piece));
-        return legalMoves;
+        int enPassant = enPassantMove(square, piece);
+        if (enPassant != Move.NONE) {
+            moves.add(enPassant);
+        }
+    }
+
+    /**
+     * Determines if the given team has at least one valid move, stopping at the first one found
+     *
+     * @param teamColor which team to look for moves for
+     * @return True if any piece of the team has a valid move
+     */
+    public boolean hasAnyLegalMove(TeamColor teamColor) {
+        Analysis analysis = analyze(teamColor);
+        long team = chessBoard.getTeamBitboard(teamColor);
+        long king = chessBoard.getBitboard(teamColor, ChessPiece.PieceType.KING);
+
+        // Try the King first, it is the only piece that can answer a double check
+        // Castling never needs checking: it is only legal when the King can also step toward the rook
+        if (king != 0 && (Attacks.kingAttacks(analysis.kingSquare) & ~team & ~analysis.dangerSquares) != 0) {
+            return true;
+        }
+        if (analysis.checkMask == 0) {
+            return false;
+        }
+
+        long pieces = team & ~king;
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            ChessPosition position = ChessPosition.fromSquare(square);
+            if ((chessBoard.getPiece(position).pieceTargets(chessBoard, position) & allowedTargets(analysis, square)) != 0) {
+                return true;
+            }
+            pieces &= pieces - 1;
+        }
+
+        // En Passant is the only move left, and only pawns beside the one that just double moved can make it
+        ChessPosition doubleMovedPawn = teamColor == TeamColor.WHITE ? lastBlackPawnToDoubleMove : lastWhitePawnToDoubleMove;
+        if (doubleMovedPawn != null) {
+            long neighbors = Attacks.kingAttacks(doubleMovedPawn.getSquare()) & (0xFFL << ((doubleMovedPawn.getRow() - 1) * 8));
+            long pawns = neighbors & chessBoard.getBitboard(teamColor, ChessPiece.PieceType.PAWN);
+            while (pawns != 0) {
+                int square = Long.numberOfTrailingZeros(pawns);
+                if (enPassantMove(square, chessBoard.getPiece(ChessPosition.fromSquare(square))) != Move.NONE) {
+                    return true;
+                }
+                pawns &= pawns - 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether the game is in progress, in check, or over, for the team whose turn it is
+     *
+     * @return The status of the game
+     */
+    public GameStatus evaluateStatus() {
+        boolean inCheck = isInCheck(teamTurn);
+        if (!hasAnyLegalMove(teamTurn)) {
+            return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        // Checkmate on the hundredth halfmove still wins, so the draw rules come second
+        if (isInsufficientMaterial()) {
+            return GameStatus.INSUFFICIENT_MATERIAL;
+        } else if (isFiftyMoveRule()) {
+            return GameStatus.FIFTY_MOVE_RULE;
+        } else if (isThreefoldRepetition()) {
+            return GameStatus.THREEFOLD_REPETITION;
+        }
+        return inCheck ? GameStatus.CHECK : GameStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Counts how many times the current position came up before, with the same team to move, since the
+     * last capture or pawn move. Earlier positions cannot come back, so they are not checked
+     *
+     * @return The number of earlier occurrences of the current position
+     */
+    public int repetitions() {
+        long key = positionKey();
+        int count = 0;
+        int oldest = Math.max(0, historySize - halfmoveClock);
+        for (int ply = historySize - 2; ply >= oldest; ply -= 2) {
+            if (positionKeys[ply] == key) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return True if the current position has come up three times
+     */
+    public boolean isThreefoldRepetition() {
+        return repetitions() >= 2;
+    }
+
+    /**
+     * @return True if fifty moves by each team went by without a capture or pawn move
+     */
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * Determines if neither team has the pieces left to ever checkmate: only Kings, a King and one
+     * Bishop or Knight against a King, or Bishops that all stand on the same color of square
+     *
+     * @return True if checkmate is impossible
+     */
+    public boolean isInsufficientMaterial() {
+        long majorsAndPawns = 0;
+        long knights = 0;
+        long bishops = 0;
+        for (TeamColor color : TeamColor.values()) {
+            majorsAndPawns |= chessBoard.getBitboard(color, ChessPiece.PieceType.QUEEN) |
+                    chessBoard.getBitboard(color, ChessPiece.PieceType.ROOK) |
+                    chessBoard.getBitboard(color, ChessPiece.PieceType.PAWN);
+            knights |= chessBoard.getBitboard(color, ChessPiece.PieceType.KNIGHT);
+            bishops |= chessBoard.getBitboard(color, ChessPiece.PieceType.BISHOP);
+        }
+        if (majorsAndPawns != 0) {
+            return false;
+        }
+        if (Long.bitCount(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * @return How many moves were made since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return The number of the current move: 1 until black's first move is made, then one more after each
+     * black move
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Scores the position by material, piece placement and pawn structure (see Evaluation). The board keeps
+     * the material and placement sums as moves are made and pawn structure comes from a cache, so this does
+     * not walk the board unless the pawns have changed
+     *
+     * @return The score in centipawns for the team whose turn it is; positive is good for them
+     */
+    public int evaluate() {
+        long pawns;
+        if (frozen) {
+            pawns = Evaluation.pawnStructure(
+                    chessBoard.getBitboard(TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                    chessBoard.getBitboard(TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        } else {
+            if (pawnCache == null) {
+                pawnCache = new PawnCache();
+            }
+            pawns = pawnCache.probe(chessBoard);
+        }
+        return Evaluation.taper(
+                chessBoard.getMiddlegameScore() + Evaluation.middlegameScore(pawns),
+                chessBoard.getEndgameScore() + Evaluation.endgameScore(pawns),
+                chessBoard.getPhase(),
+                teamTurn);
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key identifying the position: the pieces, whose turn it is, the castling rights and
+     * whether an en passant capture is available. Equal positions always have equal keys, and different
+     * positions almost never do.
+     *
+     * @return The key of the current position
+     */
+    public long positionKey() {
+        // The pieces are hashed as they move; the rest is cheap to fold in here
+        long key = chessBoard.getPieceKey();
+        if (teamTurn == TeamColor.BLACK) {
+            key ^= Zobrist.blackToMove();
+        }
+        if (!whiteKingHasMoved && !whiteLeftRookHasMoved) {
+            key ^= Zobrist.castling(0);
+        }
+        if (!whiteKingHasMoved && !whiteRightRookHasMoved) {
+            key ^= Zobrist.castling(1);
+        }
+        if (!blackKingHasMoved && !blackLeftRookHasMoved) {
+            key ^= Zobrist.castling(2);
+        }
+        if (!blackKingHasMoved && !blackRightRookHasMoved) {
+            key ^= Zobrist.castling(3);
+        }
+        // Only count en passant when a pawn is beside the double moved pawn to take it
+        ChessPosition doubleMovedPawn = teamTurn == TeamColor.WHITE ? lastBlackPawnToDoubleMove : lastWhitePawnToDoubleMove;
+        if (doubleMovedPawn != null) {
+            long neighbors = Attacks.kingAttacks(doubleMovedPawn.getSquare()) & (0xFFL << ((doubleMovedPawn.getRow() - 1) * 8));
+            if ((neighbors & chessBoard.getBitboard(teamTurn, ChessPiece.PieceType.PAWN)) != 0) {
+                key ^= Zobrist.enPassant(doubleMovedPawn.getColumn());
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @param kingSide true for the right to castle toward column 8, false for column 1
+     * @return Whether the team's King and that Rook have both stayed put, so castling is still possible later
+     */
+    public boolean hasCastlingRight(TeamColor teamColor, boolean kingSide) {
+        if (teamColor == TeamColor.WHITE) {
+            return !whiteKingHasMoved && !(kingSide ? whiteRightRookHasMoved : whiteLeftRookHasMoved);
+        }
+        return !blackKingHasMoved && !(kingSide ? blackRightRookHasMoved : blackLeftRookHasMoved);
+    }
+
+    /**
+     * @return The pawn that double moved last turn, which the team to move may be able to capture en passant,
+     * or null if the last move was not a double move
+     */
+    public ChessPosition getEnPassantPawn() {
+        return teamTurn == TeamColor.WHITE ? lastBlackPawnToDoubleMove : lastWhitePawnToDoubleMove;
+    }
+
+    /**
+     * Reads a position in Forsyth-Edwards Notation (FEN), like
+     * {@code rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1}
+     * <p>
+     * Unlike setBoard, castling rights come from the castling field rather than from where the pieces stand,
+     * and the en passant square and both move counters are kept. The last two fields may be left off, as in
+     * EPD files, for a halfmove clock of 0 and fullmove number 1. The game has no moves to take back.
+     *
+     * @throws IllegalArgumentException if the text is not a FEN position, or names a castling right or en
+     *                                  passant square the pieces do not allow
+     */
+    public static ChessGame fromFen(String fen) {
+        ChessGame game = new ChessGame(new ChessBoard(), TeamColor.WHITE);
+        int length = fen.length();
+        int i = 0;
+
+        // Piece placement, row 8 first
+        int row = 7;
+        int column = 0;
+        for (; i < length && fen.charAt(i) != ' '; ++i) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (column != 8 || row == 0) {
+                    throw badFen(fen, "rows must have 8 squares");
+                }
+                --row;
+                column = 0;
+            } else if (c >= '1' && c <= '8') {
+                column += c - '0';
+            } else {
+                int type = FEN_PIECES.indexOf(Character.toUpperCase(c));
+                if (type < 0 || column >= 8) {
+                    throw badFen(fen, "bad piece placement");
+                }
+                TeamColor color = Character.isUpperCase(c) ? TeamColor.WHITE : TeamColor.BLACK;
+                game.chessBoard.putPiece(row * 8 + column, ChessPiece.of(color, ChessPiece.PieceType.values()[type]));
+                ++column;
+            }
+            if (column > 8) {
+                throw badFen(fen, "rows must have 8 squares");
+            }
+        }
+        if (row != 0 || column != 8) {
+            throw badFen(fen, "the board must have 8 rows of 8 squares");
+        }
+        for (TeamColor color : TeamColor.values()) {
+            if (Long.bitCount(game.chessBoard.getBitboard(color, ChessPiece.PieceType.KING)) != 1) {
+                throw badFen(fen, "each team needs one King");
+            }
+        }
+
+        // Side to move
+        if (i + 2 > length || fen.charAt(i) != ' ' || (fen.charAt(i + 1) != 'w' && fen.charAt(i + 1) != 'b')) {
+            throw badFen(fen, "the side to move must be w or b");
+        }
+        game.teamTurn = fen.charAt(i + 1) == 'w' ? TeamColor.WHITE : TeamColor.BLACK;
+        i += 2;
+
+        // Castling rights; every flag starts as moved and each right clears its King's and Rook's
+        if (i + 2 > length || fen.charAt(i) != ' ') {
+            throw badFen(fen, "missing castling rights");
+        }
+        ++i;
+        game.whiteKingHasMoved = game.whiteLeftRookHasMoved = game.whiteRightRookHasMoved = true;
+        game.blackKingHasMoved = game.blackLeftRookHasMoved = game.blackRightRookHasMoved = true;
+        if (fen.charAt(i) == '-') {
+            ++i;
+        } else {
+            for (; i < length && fen.charAt(i) != ' '; ++i) {
+                game.addCastlingRight(fen, fen.charAt(i));
+            }
+        }
+
+        // En passant square, behind the pawn that just double moved
+        if (i + 2 > length || fen.charAt(i) != ' ') {
+            throw badFen(fen, "missing en passant square");
+        }
+        ++i;
+        if (fen.charAt(i) == '-') {
+            ++i;
+        } else {
+            if (i + 2 > length) {
+                throw badFen(fen, "bad en passant square");
+            }
+            int file = fen.charAt(i) - 'a';
+            int rank = fen.charAt(i + 1) - '1';
+            TeamColor mover = opponent(game.teamTurn);
+            int pawnSquare = (mover == TeamColor.WHITE ? 3 : 4) * 8 + file;
+            if (file < 0 || file > 7 || rank != (mover == TeamColor.WHITE ? 2 : 5)
+                    || game.chessBoard.pieceAt(pawnSquare) != ChessPiece.of(mover, ChessPiece.PieceType.PAWN)) {
+                throw badFen(fen, "no pawn can have just double moved past the en passant square");
+            }
+            if (mover == TeamColor.WHITE) {
+                game.lastWhitePawnToDoubleMove = ChessPosition.fromSquare(pawnSquare);
+            } else {
+                game.lastBlackPawnToDoubleMove = ChessPosition.fromSquare(pawnSquare);
+            }
+            i += 2;
+        }
+
+        // Move counters, both optional
+        if (i < length) {
+            int end = fen.indexOf(' ', i + 1);
+            end = end < 0 ? length : end;
+            game.halfmoveClock = parseCounter(fen, i + 1, end, 0, 0xFFFF);
+            if (end < length) {
+                game.fullmoveNumber = parseCounter(fen, end + 1, length, 1, Integer.MAX_VALUE / 2);
+            }
+        }
+        return game;
+    }
+
+    private void addCastlingRight(String fen, char right) {
+        TeamColor color = Character.isUpperCase(right) ? TeamColor.WHITE : TeamColor.BLACK;
+        boolean kingSide = Character.toUpperCase(right) == 'K';
+        if (Character.toUpperCase(right) != 'K' && Character.toUpperCase(right) != 'Q') {
+            throw badFen(fen, "castling rights must be - or some of KQkq");
+        }
+        int rowStart = color == TeamColor.WHITE ? 0 : 56;
+        int rookSquare = rowStart + (kingSide ? 7 : 0);
+        if (chessBoard.pieceAt(rowStart + 4) != ChessPiece.of(color, ChessPiece.PieceType.KING)
+                || chessBoard.pieceAt(rookSquare) != ChessPiece.of(color, ChessPiece.PieceType.ROOK)) {
+            throw badFen(fen, "castling right " + right + " without its King and Rook in place");
+        }
+        if (color == TeamColor.WHITE) {
+            whiteKingHasMoved = false;
+            if (kingSide) {
+                whiteRightRookHasMoved = false;
+            } else {
+                whiteLeftRookHasMoved = false;
+            }
+        } else {
+            blackKingHasMoved = false;
+            if (kingSide) {
+                blackRightRookHasMoved = false;
+            } else {
+                blackLeftRookHasMoved = false;
+            }
+        }
+    }
+
+    private static int parseCounter(String fen, int start, int end, int min, int max) {
+        if (start >= end || end - start > 10) {
+            throw badFen(fen, "bad move counter");
+        }
+        long value = 0;
+        for (int i = start; i < end; ++i) {
+            char c = fen.charAt(i);
+            if (c < '0' || c > '9') {
+                throw badFen(fen, "bad move counter");
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (value < min || value > max) {
+            throw badFen(fen, "move counter out of range");
+        }
+        return (int) value;
+    }
+
+    private static IllegalArgumentException badFen(String fen, String reason) {
+        return new IllegalArgumentException("Invalid FEN, " + reason + ": " + fen);
+    }
+
+    /**
+     * Writes the current position in Forsyth-Edwards Notation (FEN), which {@link #fromFen(String)} reads back.
+     * The en passant square is written after every double pawn move, whether or not a pawn can take
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(96);
+        for (int row = 7; row >= 0; --row) {
+            int empty = 0;
+            for (int column = 0; column < 8; ++column) {
+                ChessPiece piece = chessBoard.pieceAt(row * 8 + column);
+                if (piece == null) {
+                    ++empty;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char letter = FEN_PIECES.charAt(piece.getPieceType().ordinal());
+                fen.append(piece.getTeamColor() == TeamColor.WHITE ? letter : Character.toLowerCase(letter));
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 0) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(teamTurn == TeamColor.WHITE ? " w " : " b ");
+        int rightsStart = fen.length();
+        if (hasCastlingRight(TeamColor.WHITE, true)) {
+            fen.append('K');
+        }
+        if (hasCastlingRight(TeamColor.WHITE, false)) {
+            fen.append('Q');
+        }
+        if (hasCastlingRight(TeamColor.BLACK, true)) {
+            fen.append('k');
+        }
+        if (hasCastlingRight(TeamColor.BLACK, false)) {
+            fen.append('q');
+        }
+        if (fen.length() == rightsStart) {
+            fen.append('-');
+        }
+
+        ChessPosition doubleMovedPawn = getEnPassantPawn();
+        if (doubleMovedPawn == null) {
+            fen.append(" -");
+        } else {
+            fen.append(' ').append((char) ('a' + doubleMovedPawn.getColumn() - 1)).append(doubleMovedPawn.getRow() == 4 ? '3' : '6');
+        }
+        return fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
     }
 
     /**
@@ -203,159 +989,335 @@ public class ChessGame {
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
         ChessPosition startPosition = move.getStartPosition();
-        ChessPosition endPosition = move.getEndPosition();
-        ChessPiece piece = chessBoard.getPiece(startPosition);
-        Collection<ChessMove> moves = validMoves(startPosition);
+        ChessPiece piece = ChessBoard.validTile(startPosition) ? chessBoard.getPiece(startPosition) : null;
 
-        if (piece.getTeamColor() != teamTurn) {
+        if (piece == null) {
+            throw new InvalidMoveException("Invalid move");
+        } else if (piece.getTeamColor() != teamTurn) {
             throw new InvalidMoveException("It is not your turn");
-        } else if (moves == null || !moves.contains(move)) {
+        }
+        int packedMove = legalMove(move);
+        if (packedMove == Move.NONE) {
             throw new InvalidMoveException("Invalid move");
         }
+        makeMove(packedMove);
+    }
+
+    /**
+     * Determines if a move is valid for the team whose turn it is, looking at that move alone: where the piece
+     * can go and what is in its way, whether it leaves the King in danger, and for castling and En Passant
+     * whether they are still allowed. Gives the same answer as finding the move in validMoves, without
+     * generating the piece's other moves, unless there is a shared move cache (see setMoveCache) to look in
+     *
+     * @param move the move to check
+     * @return True if the move can be made
+     */
+    public boolean isLegal(ChessMove move) {
+        return legalMove(move) != Move.NONE;
+    }
+
+    /**
+     * Checks a move the way isLegal does, for callers that go on to make it with makeMove(int) so it is not
+     * checked a second time
+     *
+     * @return The move packed (see {@link Move}) if it is valid for the team whose turn it is, or Move.NONE
+     */
+    public int legalMove(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        if (!ChessBoard.validTile(start) || !ChessBoard.validTile(end)) {
+            return Move.NONE;
+        }
+        int from = start.getSquare();
+        int to = end.getSquare();
+        // Only a position already in the cache is looked up; otherwise the one move is checked directly
+        int[] cached = cachedLegalMoves(false);
+        if (cached != null) {
+            for (int legalMove : cached) {
+                if (Move.from(legalMove) == from && Move.to(legalMove) == to && Move.promotion(legalMove) == move.getPromotionPiece()) {
+                    return legalMove;
+                }
+            }
+            return Move.NONE;
+        }
+        ChessPiece piece = chessBoard.pieceAt(from);
+        if (piece == null || piece.getTeamColor() != teamTurn) {
+            return Move.NONE;
+        }
+        ChessPiece.PieceType type = piece.getPieceType();
+
+        // A pawn reaching the last row must become a Queen, Rook, Bishop or Knight, and no other move promotes
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        boolean promotes = type == ChessPiece.PieceType.PAWN && (to < 8 || to >= 56);
+        if (promotes != (promotion != null) || promotion == ChessPiece.PieceType.KING || promotion == ChessPiece.PieceType.PAWN) {
+            return Move.NONE;
+        }
+
+        if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2 && from / 8 == to / 8) {
+            return castlingMove(from, piece, to > from);
+        }
+        if (type == ChessPiece.PieceType.PAWN && from % 8 != to % 8 && chessBoard.pieceAt(to) == null) {
+            int enPassant = enPassantMove(from, piece);
+            return enPassant != Move.NONE && Move.to(enPassant) == to ? enPassant : Move.NONE;
+        }
+        if ((piece.pieceTargets(chessBoard, start) & (1L << to)) == 0 || leavesKingInDanger(from, to, type)) {
+            return Move.NONE;
+        }
+        return Move.of(move, chessBoard);
+    }
+
+    /**
+     * Determines if moving a piece of the team to move would leave its King attacked, by looking from the
+     * King's square on the board as it would be after the move
+     */
+    private boolean leavesKingInDanger(int from, int to, ChessPiece.PieceType type) {
+        long king = chessBoard.getBitboard(teamTurn, ChessPiece.PieceType.KING);
+        if (king == 0) {
+            return false;
+        }
+        int kingSquare = type == ChessPiece.PieceType.KING ? to : Long.numberOfTrailingZeros(king);
+        long toBit = 1L << to;
+        long occupied = (chessBoard.getOccupied() & ~(1L << from)) | toBit;
+        // A piece taken on the end square no longer attacks
+        return (attackersTo(kingSquare, opponent(teamTurn), occupied) & ~toBit) != 0;
+    }
+
+    /**
+     * Makes a packed move without checking that it is valid, so it must come from
+     * {@link #legalMoves(MoveList)} or {@link Move#of(ChessMove, ChessBoard)} on a valid move.
+     * The move can be taken back with {@link #unmakeMove()}
+     *
+     * @param move the packed move to make
+     */
+    public void makeMove(int move) {
+        checkNotSnapshot();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece piece = chessBoard.pieceAt(from);
+        TeamColor color = piece.getTeamColor();
+        pushHistory(move);
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN || Move.isCapture(move)) {
+            halfmoveClock = 0;
+        } else {
+            ++halfmoveClock;
+        }
+        if (color == TeamColor.BLACK) {
+            ++fullmoveNumber;
+        }
 
         // Reset En Passant checks
         lastWhitePawnToDoubleMove = null;
         lastBlackPawnToDoubleMove = null;
 
-        // Castling
-        // Update castling checks or castle if it was a king
-        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-            if (piece.getTeamColor() == TeamColor.WHITE) {
-                whiteKingHasMoved = true;
-
-                // If the move was a king castling, update the rook
-                if (endPosition.getColumn() - startPosition.getColumn() == 2) {
-                    whiteRightRookHasMoved = true;
-                    ChessPosition rookPos = new ChessPosition(1, 8);
-                    chessBoard.movePiece(new ChessMove(rookPos, new ChessPosition(1, 6), null));
-                } else if (endPosition.getColumn() - startPosition.getColumn() == -2) {
-                    whiteLeftRookHasMoved = true;
-                    ChessPosition rookPos = new ChessPosition(1, 1);
-                    chessBoard.movePiece(new ChessMove(rookPos, new ChessPosition(1, 4), null));
+        switch (piece.getPieceType()) {
+            case KING -> {
+                // Castling
+                if (color == TeamColor.WHITE) {
+                    whiteKingHasMoved = true;
+                } else {
+                    blackKingHasMoved = true;
                 }
-            } else {
-                blackKingHasMoved = true;
-
                 // If the move was a king castling, update the rook
-                if (endPosition.getColumn() - startPosition.getColumn() == 2) {
-                    blackRightRookHasMoved = true;
-                    ChessPosition rookPos = new ChessPosition(8, 8);
-                    chessBoard.movePiece(new ChessMove(rookPos, new ChessPosition(8, 6), null));
-                } else if (endPosition.getColumn() - startPosition.getColumn() == -2) {
-                    blackLeftRookHasMoved = true;
-                    ChessPosition rookPos = new ChessPosition(8, 1);
-                    chessBoard.movePiece(new ChessMove(rookPos, new ChessPosition(8, 4), null));
+                if (Move.isCastle(move)) {
+                    int rookFrom = to > from ? from + 3 : from - 4;
+                    rookLeftCorner(rookFrom);
+                    chessBoard.putPiece((from + to) / 2, chessBoard.pieceAt(rookFrom));
+                    chessBoard.putPiece(rookFrom, null);
                 }
             }
-        } else if (piece.getPieceType() == ChessPiece.PieceType.ROOK) {
-            if (piece.getTeamColor() == TeamColor.WHITE) {
-                if (startPosition.equals(new ChessPosition(1, 1))) {
-                    whiteLeftRookHasMoved = true;
-                } else if (startPosition.equals(new ChessPosition(1, 8))) {
-                    whiteRightRookHasMoved = true;
-                }
-            } else {
-                if (startPosition.equals(new ChessPosition(8, 1))) {
-                    blackLeftRookHasMoved = true;
-                } else if (startPosition.equals(new ChessPosition(8, 8))) {
-                    blackRightRookHasMoved = true;
+            case ROOK -> rookLeftCorner(from);
+            case PAWN -> {
+                // If double moved, next turn enemy can en Passant
+                if (Move.isDoublePush(move)) {
+                    if (color == TeamColor.WHITE) {
+                        lastWhitePawnToDoubleMove = ChessPosition.fromSquare(to);
+                    } else {
+                        lastBlackPawnToDoubleMove = ChessPosition.fromSquare(to);
+                    }
                 }
-            }
-        }
-
-        // En Passant checks
-        else if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
-            // If double moved, next turn enemy can en Passant
-            if (Math.abs(endPosition.getRow() - startPosition.getRow()) == 2) {
-                if (piece.getTeamColor() == TeamColor.WHITE) {
-                    lastWhitePawnToDoubleMove = endPosition;
-                } else {
-                    lastBlackPawnToDoubleMove = endPosition;
+                // If move itself is en passant, remove enemy Pawn
+                if (Move.isEnPassant(move)) {
+                    chessBoard.putPiece(color == TeamColor.WHITE ? to - 8 : to + 8, null);
                 }
             }
-
-            // If move itself is en passant, remove enemy Pawn
-            // If it is a diagonal move but there is no enemy piece at the diagonal, it must be En Passant
-            // All horizontal moves made by a pawn are guaranteed to also be diagonal
-            if (endPosition.getColumn() - startPosition.getColumn() != 0) {
-                if (chessBoard.getPiece(endPosition) == null) {
-                    // It must be en passant
-                    int direction = piece.getTeamColor() == TeamColor.WHITE ? 1 : -1;
-                    ChessPosition pawnToRemovePos = new ChessPosition(endPosition.getRow() - direction, endPosition.getColumn());
-                    chessBoard.addPiece(pawnToRemovePos, null);
-                }
+            default -> {
             }
         }
 
+        // A rook captured in its corner can no longer castle
+        rookLeftCorner(to);
+
         // Move piece
-        chessBoard.movePiece(move);
+        ChessPiece.PieceType promotion = Move.promotion(move);
+        chessBoard.putPiece(from, null);
+        chessBoard.putPiece(to, promotion == null ? piece : ChessPiece.of(color, promotion));
         // Swap team color
-        this.teamTurn = this.teamTurn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        this.teamTurn = opponent(color);
     }
 
     /**
-     * Determines if the given team is in check
+     * Takes back the last move made, restoring the board, castling rights and En Passant state
      *
-     * @param teamColor which team to check for check
-     * @return True if the specified team is in check
+     * @throws IllegalStateException if no moves have been made
      */
-    public boolean isInCheck(TeamColor teamColor) {
-        for (int row = 1; row <= 8; ++row) {
-            for (int col = 1; col <= 8; ++col) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = chessBoard.getPiece(position);
-                if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor) {
-                    return isInDanger(position, teamColor);
-                }
+    public void unmakeMove() {
+        checkNotSnapshot();
+        if (historySize == 0) {
+            throw new IllegalStateException("No moves to take back");
+        }
+        long entry = history[--historySize];
+        int move = (int) (entry & MOVE_MASK);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece piece = chessBoard.pieceAt(to);
+        TeamColor color = piece.getTeamColor();
+
+        chessBoard.putPiece(from, Move.isPromotion(move) ? ChessPiece.of(color, ChessPiece.PieceType.PAWN) : piece);
+        int captured = (int) ((entry >>> CAPTURED_SHIFT) & 0xF);
+        chessBoard.putPiece(to, captured == 0 ? null : PIECES_BY_INDEX[captured - 1]);
+        if (Move.isEnPassant(move)) {
+            chessBoard.putPiece(color == TeamColor.WHITE ? to - 8 : to + 8, ChessPiece.of(opponent(color), ChessPiece.PieceType.PAWN));
+        } else if (Move.isCastle(move)) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            chessBoard.putPiece(rookFrom, chessBoard.pieceAt((from + to) / 2));
+            chessBoard.putPiece((from + to) / 2, null);
+        }
+
+        int castling = (int) (entry >>> CASTLING_SHIFT);
+        whiteKingHasMoved = (castling & 1) != 0;
+        whiteLeftRookHasMoved = (castling & 2) != 0;
+        whiteRightRookHasMoved = (castling & 4) != 0;
+        blackKingHasMoved = (castling & 8) != 0;
+        blackLeftRookHasMoved = (castling & 16) != 0;
+        blackRightRookHasMoved = (castling & 32) != 0;
+
+        halfmoveClock = (int) ((entry >>> HALFMOVE_SHIFT) & 0xFFFF);
+        // Games saved before the fullmove number was kept start counting at 1 part way through
+        if (color == TeamColor.BLACK && fullmoveNumber > 1) {
+            --fullmoveNumber;
+        }
+        int doubleMoved = (int) ((entry >>> EN_PASSANT_SHIFT) & 0x7F);
+        lastWhitePawnToDoubleMove = null;
+        lastBlackPawnToDoubleMove = null;
+        if (doubleMoved != 0) {
+            // Only white pawns land on row 4 after a double move, and only black ones on row 5
+            ChessPosition pawn = ChessPosition.fromSquare(doubleMoved - 1);
+            if (pawn.getRow() == 4) {
+                lastWhitePawnToDoubleMove = pawn;
+            } else {
+                lastBlackPawnToDoubleMove = pawn;
             }
         }
-        return false;
+        this.teamTurn = color;
     }
 
     /**
-     * Determines if the given team is in checkmate
-     *
-     * @param teamColor which team to check for checkmate
-     * @return True if the specified team is in checkmate
+     * @return How many moves have been made, and can be taken back with unmakeMove
      */
-    public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
-            return false;
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * @param ply 0 for the first move made
+     * @return The packed move (see {@link Move}) made at that ply
+     */
+    public int getHistoryMove(int ply) {
+        if (ply < 0 || ply >= historySize) {
+            throw new IndexOutOfBoundsException(ply);
         }
+        return (int) (history[ply] & MOVE_MASK);
+    }
 
-        // Determine King's position
-        ChessPosition kingPosition = null;
-        for (int row = 1; row <= 8; ++row) {
-            for (int col = 1; col <= 8; ++col) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = chessBoard.getPiece(position);
-                if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor) {
-                    kingPosition = position;
-                }
-            }
+    /**
+     * @return Every move made so far, oldest first
+     */
+    public List<ChessMove> getMoveHistory() {
+        List<ChessMove> moves = new ArrayList<>(historySize);
+        for (int ply = 0; ply < historySize; ++ply) {
+            moves.add(Move.toChessMove(getHistoryMove(ply)));
+        }
+        return moves;
+    }
+
+    /**
+     * Works out the position key before each move in history by taking the moves back on a copy, for a game
+     * just loaded from JSON
+     */
+    void rebuildPositionKeys() {
+        if (history == null) {
+            history = new long[16];
+            historySize = 0;
         }
+        positionKeys = new long[history.length];
+        ChessGame replay = new ChessGame(this);
+        for (int ply = historySize - 1; ply >= 0; --ply) {
+            replay.unmakeMove();
+            positionKeys[ply] = replay.positionKey();
+        }
+    }
 
-        Collection<ChessMove> kingMoves = validMoves(kingPosition);
-        if (kingMoves == null) {
-            return false; // idk man
+    /**
+     * Records a move about to be made along with the state it overwrites
+     */
+    private void pushHistory(int move) {
+        if (sharedHistory || historySize == history.length) {
+            int length = historySize == history.length ? Math.max(16, historySize * 2) : history.length;
+            history = Arrays.copyOf(history, length);
+            positionKeys = Arrays.copyOf(positionKeys, length);
+            sharedHistory = false;
+        } else if (historySize >= positionKeys.length) {
+            positionKeys = Arrays.copyOf(positionKeys, history.length);
         }
+        positionKeys[historySize] = positionKey();
+        ChessPiece captured = chessBoard.pieceAt(Move.to(move));
+        long capturedBits = captured == null ? 0 : captured.getTeamColor().ordinal() * 6 + captured.getPieceType().ordinal() + 1;
+        long castling = (whiteKingHasMoved ? 1 : 0) | (whiteLeftRookHasMoved ? 2 : 0) | (whiteRightRookHasMoved ? 4 : 0) |
+                (blackKingHasMoved ? 8 : 0) | (blackLeftRookHasMoved ? 16 : 0) | (blackRightRookHasMoved ? 32 : 0);
+        ChessPosition doubleMoved = lastWhitePawnToDoubleMove != null ? lastWhitePawnToDoubleMove : lastBlackPawnToDoubleMove;
+        long enPassant = doubleMoved == null ? 0 : doubleMoved.getSquare() + 1;
+        long clock = Math.min(halfmoveClock, 0xFFFF);
+        history[historySize++] = (move & MOVE_MASK) | (capturedBits << CAPTURED_SHIFT) |
+                (castling << CASTLING_SHIFT) | (enPassant << EN_PASSANT_SHIFT) | (clock << HALFMOVE_SHIFT);
+    }
 
-        for (int row = 1; row <= 8; ++row) {
-            for (int col = 1; col <= 8; ++col) {
-                ChessPosition piecePosition = new ChessPosition(row, col);
-                Collection<ChessMove> pieceMoves = validMoves(piecePosition);
-                if (pieceMoves == null) {
-                    continue;
-                }
-                kingMoves.removeAll(pieceMoves);
+    /**
+     * A rook that leaves or is captured on its starting corner can no longer castle
+     */
+    private void rookLeftCorner(int square) {
+        switch (square) {
+            case 0 -> whiteLeftRookHasMoved = true;
+            case 7 -> whiteRightRookHasMoved = true;
+            case 56 -> blackLeftRookHasMoved = true;
+            case 63 -> blackRightRookHasMoved = true;
+            default -> {
             }
         }
-        return kingMoves.isEmpty();
+    }
+
+    /**
+     * Determines if the given team is in check
+     *
+     * @param teamColor which team to check for check
+     * @return True if the specified team is in check
+     */
+    public boolean isInCheck(TeamColor teamColor) {
+        return analyze(teamColor).checkers != 0;
+    }
+
+    /**
+     * Determines if the given team is in checkmate
+     *
+     * @param teamColor which team to check for checkmate
+     * @return True if the specified team is in checkmate
+     */
+    public boolean isInCheckmate(TeamColor teamColor) {
+        return isInCheck(teamColor) && !hasAnyLegalMove(teamColor);
     }
 
     /**
      * Determines if the given team is in stalemate, which here is defined as having
-     * no valid moves
+     * no valid moves while it is their turn and they are not in check
      *
      * @param teamColor which team to check for stalemate
      * @return True if the specified team is in stalemate, otherwise false
@@ -364,21 +1326,7 @@ public class ChessGame {
         if (teamTurn != teamColor) {
             return false;
         }
-
-        for (int row = 1; row <= 8; ++row) {
-            for (int col = 1; col <= 8; ++col) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = chessBoard.getPiece(position);
-                if (piece == null || piece.getTeamColor() != teamColor) {
-                    continue;
-                }
-                Collection<ChessMove> moves = validMoves(position);
-                if (moves != null && !moves.isEmpty()) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return !isInCheck(teamColor) && !hasAnyLegalMove(teamColor);
     }
 
     /**
@@ -387,14 +1335,19 @@ public class ChessGame {
      * @param board the new board to use
      */
     public void setBoard(ChessBoard board) {
+        checkNotSnapshot();
         this.chessBoard = board;
+        // Earlier moves were made on a different board and cannot be taken back or repeated
+        this.historySize = 0;
+        this.halfmoveClock = 0;
+        this.fullmoveNumber = 1;
 
-        ChessPosition whiteKingPos = new ChessPosition(1, 5);
-        ChessPosition whiteLeftRookPos = new ChessPosition(1, 1);
-        ChessPosition whiteRightRookPos = new ChessPosition(1, 8);
-        ChessPosition blackKingPos = new ChessPosition(8, 5);
-        ChessPosition blackLeftRookPos = new ChessPosition(8, 1);
-        ChessPosition blackRightRookPos = new ChessPosition(8, 8);
+        ChessPosition whiteKingPos = ChessPosition.of(1, 5);
+        ChessPosition whiteLeftRookPos = ChessPosition.of(1, 1);
+        ChessPosition whiteRightRookPos = ChessPosition.of(1, 8);
+        ChessPosition blackKingPos = ChessPosition.of(8, 5);
+        ChessPosition blackLeftRookPos = ChessPosition.of(8, 1);
+        ChessPosition blackRightRookPos = ChessPosition.of(8, 8);
 
         whiteKingHasMoved = board.getPiece(whiteKingPos) == null ||
                 board.getPiece(whiteKingPos).getPieceType() != ChessPiece.PieceType.KING ||
@@ -430,56 +1383,78 @@ public class ChessGame {
         return this.chessBoard;
     }
 
-    private boolean isInDanger(ChessPosition pos, TeamColor teamColor) {
-        for (int row = 1; row <= 8; ++row) {
-            for (int col = 1; col <= 8; ++col) {
-                ChessPosition startPosition = new ChessPosition(row, col);
-                ChessPiece piece = chessBoard.getPiece(startPosition);
+    /**
+     * Finds the squares a piece may move to without leaving its King in danger, not counting castling and
+     * En Passant
+     */
+    long legalTargets(int square, ChessPiece piece) {
+        Analysis analysis = analyze(piece.getTeamColor());
+        // The King cannot step onto a square in danger, including ones it currently shields
+        return piece.getPieceType() == ChessPiece.PieceType.KING
+                ? ~analysis.dangerSquares
+                : allowedTargets(analysis, square);
+    }
 
-                if (piece == null || piece.getTeamColor() == teamColor) {
-                    continue;
-                }
+    /**
+     * Finds the squares a piece other than the King may move to without leaving the King in danger:
+     * it must resolve any check and stay on its pin line
+     */
+    private static long allowedTargets(Analysis analysis, int square) {
+        long allowed = analysis.checkMask;
+        if ((analysis.pinned & (1L << square)) != 0) {
+            allowed &= Attacks.line(analysis.kingSquare, square);
+        }
+        return allowed;
+    }
 
-                Collection<ChessMove> pieceMoves = piece.pieceMoves(chessBoard, startPosition);
-                for (ChessMove move : pieceMoves) {
-                    ChessPosition endPosition = move.getEndPosition();
-                    if (endPosition.equals(pos)) {
-                        return true;
-                    }
-                }
+    /**
+     * Finds every square a team attacks
+     *
+     * @param attackerColor the team doing the attacking
+     * @param occupied      the occupied squares to use for blocking sliders
+     * @return A mask of the attacked squares
+     */
+    private long attackedSquares(TeamColor attackerColor, long occupied) {
+        long attacked = 0;
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            long pieces = chessBoard.getBitboard(attackerColor, type);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                attacked |= switch (type) {
+                    case KING -> Attacks.kingAttacks(square);
+                    case QUEEN -> Attacks.queenAttacks(square, occupied);
+                    case BISHOP -> Attacks.bishopAttacks(square, occupied);
+                    case KNIGHT -> Attacks.knightAttacks(square);
+                    case ROOK -> Attacks.rookAttacks(square, occupied);
+                    case PAWN -> Attacks.pawnAttacks(attackerColor, square);
+                };
+                pieces &= pieces - 1;
             }
         }
-        return false;
+        return attacked;
     }
 
-    private boolean doesMoveCauseCheck(ChessMove move, TeamColor teamColor) {
-        ChessPosition startPosition = move.getStartPosition();
-        ChessPosition endPosition = move.getEndPosition();
-        ChessPiece startPositionPiece = chessBoard.getPiece(startPosition);
-        ChessPiece endPositionPiece = chessBoard.getPiece(endPosition);
-        // Make the move
-        chessBoard.movePiece(move);
-        boolean res = isInCheck(teamColor);
-        // Revert the move
-        chessBoard.addPiece(startPosition, startPositionPiece);
-        chessBoard.addPiece(endPosition, endPositionPiece);
-
-        return res;
+    /**
+     * Finds the pieces of a team that attack a square
+     *
+     * @param square        the square being attacked
+     * @param attackerColor the team doing the attacking
+     * @param occupied      the occupied squares to use for blocking; pieces outside it are ignored
+     * @return A mask of the attacking pieces
+     */
+    private long attackersTo(int square, TeamColor attackerColor, long occupied) {
+        long queens = chessBoard.getBitboard(attackerColor, ChessPiece.PieceType.QUEEN);
+        // Look outwards from the square with each piece's movement to find enemies of that type
+        long attackers = (Attacks.pawnAttacks(opponent(attackerColor), square) & chessBoard.getBitboard(attackerColor, ChessPiece.PieceType.PAWN)) |
+                (Attacks.knightAttacks(square) & chessBoard.getBitboard(attackerColor, ChessPiece.PieceType.KNIGHT)) |
+                (Attacks.kingAttacks(square) & chessBoard.getBitboard(attackerColor, ChessPiece.PieceType.KING)) |
+                (Attacks.bishopAttacks(square, occupied) & (chessBoard.getBitboard(attackerColor, ChessPiece.PieceType.BISHOP) | queens)) |
+                (Attacks.rookAttacks(square, occupied) & (chessBoard.getBitboard(attackerColor, ChessPiece.PieceType.ROOK) | queens));
+        return attackers & occupied;
     }
 
-    private boolean doesMoveCausePositionDanger(ChessMove move, ChessPosition piecePosition, TeamColor teamColor) {
-        ChessPosition startPosition = move.getStartPosition();
-        ChessPosition endPosition = move.getEndPosition();
-        ChessPiece startPositionPiece = chessBoard.getPiece(startPosition);
-        ChessPiece endPositionPiece = chessBoard.getPiece(endPosition);
-        // Make the move
-        chessBoard.movePiece(move);
-        boolean res = isInDanger(piecePosition, teamColor);
-        // Revert the move
-        chessBoard.addPiece(startPosition, startPositionPiece);
-        chessBoard.addPiece(endPosition, endPositionPiece);
-
-        return res;
+    private static TeamColor opponent(TeamColor teamColor) {
+        return teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
     @Override
@@ -492,6 +1467,6 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(chessBoard, teamTurn, whiteKingHasMoved, whiteLeftRookHasMoved, whiteRightRookHasMoved, blackKingHasMoved, blackLeftRookHasMoved, blackRightRookHasMoved, lastWhitePawnToDoubleMove, lastBlackPawnToDoubleMove);
+        return Long.hashCode(positionKey());
     }
 }
\ No newline at end of file
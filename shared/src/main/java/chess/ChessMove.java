@@ -13,6 +13,17 @@ public class ChessMove {
     private final ChessPosition endPosition;
     private final ChessPiece.PieceType promotionPiece;
 
+    // One shared instance per start and end square for moves without a promotion
+    private static final ChessMove[] MOVES = new ChessMove[64 * 64];
+
+    static {
+        for (int from = 0; from < 64; ++from) {
+            for (int to = 0; to < 64; ++to) {
+                MOVES[from * 64 + to] = new ChessMove(ChessPosition.fromSquare(from), ChessPosition.fromSquare(to), null);
+            }
+        }
+    }
+
     public ChessMove(ChessPosition startPosition, ChessPosition endPosition,
                      ChessPiece.PieceType promotionPiece) {
         this.startPosition = startPosition;
@@ -20,6 +31,29 @@ public class ChessMove {
         this.promotionPiece = promotionPiece;
     }
 
+    /**
+     * Moves are immutable, so move generation shares one instance per pair of squares
+     * instead of allocating a new one for every target
+     *
+     * @return the shared move, or a new one for promotions and positions off the board
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        if (promotionPiece != null || !ChessBoard.validTile(startPosition) || !ChessBoard.validTile(endPosition)) {
+            return new ChessMove(startPosition, endPosition, promotionPiece);
+        }
+        return MOVES[startPosition.getSquare() * 64 + endPosition.getSquare()];
+    }
+
+    /**
+     * @param from a bitboard square, 0 through 63
+     * @param to   a bitboard square, 0 through 63
+     * @return the shared move between two squares, without a promotion
+     */
+    public static ChessMove of(int from, int to) {
+        return MOVES[from * 64 + to];
+    }
+
     /**
      * @return ChessPosition of starting location
      */
@@ -63,6 +97,9 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(startPosition, endPosition, promotionPiece);
+        // Spelled out rather than Objects.hash to avoid allocating a varargs array per lookup
+        int result = Objects.hashCode(startPosition);
+        result = 31 * result + Objects.hashCode(endPosition);
+        return 31 * result + Objects.hashCode(promotionPiece);
     }
 }
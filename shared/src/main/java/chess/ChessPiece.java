@@ -3,7 +3,7 @@ package chess;
 import chess.pieceRules.*;
 
 import java.util.Collection;
-import java.util.Objects;
+import java.util.HashSet;
 
 /**
  * Represents a single chess piece
@@ -14,6 +14,18 @@ import java.util.Objects;
 public class ChessPiece {
     private final ChessGame.TeamColor pieceColor;
     private final ChessPiece.PieceType type;
+
+    // One shared instance per color and type, indexed like the board's bitboards
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         this.pieceColor = pieceColor;
         this.type = type;
@@ -24,6 +36,15 @@ public class ChessPiece {
         this.type = other.type;
     }
 
+    /**
+     * Pieces are immutable, so boards can share these instead of copying them
+     *
+     * @return the shared piece of the given team and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[pieceColor.ordinal() * 6 + type.ordinal()];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -58,13 +79,64 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
+        HashSet<ChessMove> moves = new HashSet<>();
+        pieceMoves(board, myPosition, -1L, moves);
+        return moves;
+    }
+
+    /**
+     * Adds the moves this piece can make to a caller-supplied buffer, without allocating
+     * positions or non-promotion moves
+     * Does not take into account moves that are illegal due to leaving the king in
+     * danger
+     *
+     * @param targetMask only moves landing on a square in this mask are added
+     * @param moves      the buffer to add the moves to
+     */
+    public void pieceMoves(ChessBoard board, ChessPosition myPosition, long targetMask, Collection<ChessMove> moves) {
+        long targets = pieceTargets(board, myPosition) & targetMask;
+        if (this.type == PieceType.PAWN) {
+            PawnMoves.addMoves(moves, myPosition, targets);
+        } else {
+            PieceMoves.addMoves(moves, myPosition, targets);
+        }
+    }
+
+    /**
+     * Adds the moves this piece can make to a caller-supplied buffer of packed moves (see {@link Move})
+     * Does not take into account moves that are illegal due to leaving the king in
+     * danger, nor castling and En Passant
+     *
+     * @param targetMask only moves landing on a square in this mask are added
+     * @param moves      the buffer to add the moves to
+     */
+    public void pieceMoves(ChessBoard board, ChessPosition myPosition, long targetMask, MoveList moves) {
+        long targets = pieceTargets(board, myPosition) & targetMask;
+        ChessGame.TeamColor enemyColor = pieceColor == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long enemies = board.getTeamBitboard(enemyColor);
+        if (this.type == PieceType.PAWN) {
+            PawnMoves.addMoves(moves, myPosition.getSquare(), targets, enemies);
+        } else {
+            PieceMoves.addMoves(moves, myPosition.getSquare(), targets, enemies);
+        }
+    }
+
+    /**
+     * Calculates all the squares a chess piece can move to, as a bitboard
+     * Does not take into account moves that are illegal due to leaving the king in
+     * danger
+     *
+     * @return Mask with a bit set for each target square
+     */
+    public long pieceTargets(ChessBoard board, ChessPosition myPosition) {
+        int square = myPosition.getSquare();
         return switch (this.type) {
-            case KING -> new KingMoves(board, myPosition, pieceColor).getMoves();
-            case QUEEN -> new QueenMoves(board, myPosition, pieceColor).getMoves();
-            case BISHOP -> new BishopMoves(board, myPosition, pieceColor).getMoves();
-            case KNIGHT -> new KnightMoves(board, myPosition, pieceColor).getMoves();
-            case ROOK -> new RookMoves(board, myPosition, pieceColor).getMoves();
-            case PAWN -> new PawnMoves(board, myPosition, pieceColor).getMoves();
+            case KING -> KingMoves.targets(board, square, pieceColor);
+            case QUEEN -> QueenMoves.targets(board, square, pieceColor);
+            case BISHOP -> BishopMoves.targets(board, square, pieceColor);
+            case KNIGHT -> KnightMoves.targets(board, square, pieceColor);
+            case ROOK -> RookMoves.targets(board, square, pieceColor);
+            case PAWN -> PawnMoves.targets(board, square, pieceColor);
         };
     }
 
@@ -86,6 +158,6 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(pieceColor, type);
+        return pieceColor.ordinal() * 6 + type.ordinal();
     }
 }
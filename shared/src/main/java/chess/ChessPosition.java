@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -12,6 +10,15 @@ public class ChessPosition {
     private final int row;
     private final int col;
 
+    // One shared instance per square, see of() and fromSquare()
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; ++square) {
+            SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
+
     public ChessPosition(int row, int col) {
         this.row = row;
         this.col = col;
@@ -33,6 +40,35 @@ public class ChessPosition {
         return this.col;
     }
 
+    /**
+     * @return the bitboard square of this position
+     * 0 codes for row 1 column 1, 63 for row 8 column 8
+     */
+    public int getSquare() {
+        return (this.row - 1) * 8 + (this.col - 1);
+    }
+
+    /**
+     * @param square a bitboard square, 0 through 63
+     * @return the position of the given square
+     */
+    public static ChessPosition fromSquare(int square) {
+        return SQUARES[square];
+    }
+
+    /**
+     * Positions are immutable, so move generation shares one instance per square
+     * instead of allocating a new one for every probe
+     *
+     * @return the shared position for the given row and column, or a new one if it is off the board
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return SQUARES[(row - 1) * 8 + (col - 1)];
+    }
+
     @Override
     public String toString() {
         return String.format("%c%d", (char) col + 'A' - 1, row);
@@ -48,6 +84,6 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        return row * 31 + col;
     }
 }
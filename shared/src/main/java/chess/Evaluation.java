@@ -0,0 +1,269 @@
+package chess;
+
+/**
+ * Static evaluation terms: material, piece placement and pawn structure, each with a middlegame and an
+ * endgame value. A position's score blends the two by its phase, the material left on the board, so a King
+ * that should hide early is drawn to the center once the Queens and Rooks come off.
+ * <p>
+ * ChessBoard keeps the material and placement sums up to date as pieces are added and removed, and
+ * {@link ChessGame#evaluate()} adds the pawn structure from a cache, so scoring a position does not walk
+ * the board. {@link #fullRescan(ChessGame)} computes the same score from scratch.
+ */
+public final class Evaluation {
+    // The phase of the starting position; more material than this (after promotions) counts as this
+    public static final int MAX_PHASE = 24;
+
+    // Indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] PHASE = {0, 4, 1, 1, 2, 0};
+    private static final int[] MIDDLEGAME_VALUES = {0, 900, 330, 320, 500, 100};
+    private static final int[] ENDGAME_VALUES = {0, 900, 310, 290, 520, 120};
+
+    // Placement bonuses for white, laid out as seen from white's side: row 8 first, column 1 on the left
+    private static final int[][] MIDDLEGAME_PLACEMENT = {
+            // King
+            {
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20
+            },
+            // Queen
+            {
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20
+            },
+            // Bishop
+            {
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20
+            },
+            // Knight
+            {
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50
+            },
+            // Rook
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0
+            },
+            // Pawn
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            }
+    };
+
+    // The endgame wants an active King and advanced pawns; the other pieces keep their middlegame squares
+    private static final int[] ENDGAME_KING = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+    private static final int[] ENDGAME_PAWN = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            15, 15, 15, 15, 15, 15, 15, 15,
+            5, 5, 5, 5, 5, 5, 5, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    // Pawn structure, per pawn
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    // Passed pawn bonuses by how many rows the pawn has advanced
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 55, 80, 110, 0};
+
+    private static final long COLUMN_1 = 0x0101010101010101L;
+
+    // Material plus placement for each piece on each square, positive for white and negative for black,
+    // indexed by bitboard index (color * 6 + type) and square
+    private static final int[][] MIDDLEGAME = new int[12][64];
+    private static final int[][] ENDGAME = new int[12][64];
+    // The columns beside each column
+    private static final long[] ADJACENT_COLUMNS = new long[8];
+    // The squares in front of a pawn, on its column and the two beside it, by color and square
+    private static final long[][] PASSED_SPANS = new long[2][64];
+
+    static {
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            int t = type.ordinal();
+            int[] endgamePlacement = type == ChessPiece.PieceType.KING ? ENDGAME_KING
+                    : type == ChessPiece.PieceType.PAWN ? ENDGAME_PAWN : MIDDLEGAME_PLACEMENT[t];
+            for (int square = 0; square < 64; ++square) {
+                // Flip the row for white, the tables have row 8 first; black's row 8 is white's row 1
+                MIDDLEGAME[t][square] = MIDDLEGAME_VALUES[t] + MIDDLEGAME_PLACEMENT[t][square ^ 56];
+                ENDGAME[t][square] = ENDGAME_VALUES[t] + endgamePlacement[square ^ 56];
+                MIDDLEGAME[6 + t][square] = -(MIDDLEGAME_VALUES[t] + MIDDLEGAME_PLACEMENT[t][square]);
+                ENDGAME[6 + t][square] = -(ENDGAME_VALUES[t] + endgamePlacement[square]);
+            }
+        }
+        for (int col = 0; col < 8; ++col) {
+            ADJACENT_COLUMNS[col] = (col > 0 ? COLUMN_1 << (col - 1) : 0) | (col < 7 ? COLUMN_1 << (col + 1) : 0);
+        }
+        for (int square = 0; square < 64; ++square) {
+            long span = (COLUMN_1 << (square % 8)) | ADJACENT_COLUMNS[square % 8];
+            int row = square / 8;
+            // Keep the rows strictly ahead of the pawn
+            PASSED_SPANS[ChessGame.TeamColor.WHITE.ordinal()][square] = row == 7 ? 0 : span & (-1L << ((row + 1) * 8));
+            PASSED_SPANS[ChessGame.TeamColor.BLACK.ordinal()][square] = span & ((1L << (row * 8)) - 1);
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    static int middlegame(ChessPiece piece, int square) {
+        return MIDDLEGAME[piece.getTeamColor().ordinal() * 6 + piece.getPieceType().ordinal()][square];
+    }
+
+    static int endgame(ChessPiece piece, int square) {
+        return ENDGAME[piece.getTeamColor().ordinal() * 6 + piece.getPieceType().ordinal()][square];
+    }
+
+    static int phase(ChessPiece piece) {
+        return PHASE[piece.getPieceType().ordinal()];
+    }
+
+    /**
+     * Blends middlegame and endgame scores by phase
+     *
+     * @return The score for the given team, from scores that are positive for white
+     */
+    static int taper(int middlegame, int endgame, int phase, ChessGame.TeamColor teamColor) {
+        phase = Math.min(phase, MAX_PHASE);
+        int score = (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+        return teamColor == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * Scores doubled, isolated and passed pawns
+     *
+     * @return The middlegame score in the low 32 bits and the endgame score in the high 32, positive for white
+     */
+    static long pawnStructure(long whitePawns, long blackPawns) {
+        int middlegame = 0;
+        int endgame = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            long ours = color == ChessGame.TeamColor.WHITE ? whitePawns : blackPawns;
+            long theirs = color == ChessGame.TeamColor.WHITE ? blackPawns : whitePawns;
+            int sign = color == ChessGame.TeamColor.WHITE ? 1 : -1;
+            for (int col = 0; col < 8; ++col) {
+                int count = Long.bitCount(ours & (COLUMN_1 << col));
+                if (count > 1) {
+                    middlegame += sign * DOUBLED_MIDDLEGAME * (count - 1);
+                    endgame += sign * DOUBLED_ENDGAME * (count - 1);
+                }
+                if (count > 0 && (ours & ADJACENT_COLUMNS[col]) == 0) {
+                    middlegame += sign * ISOLATED_MIDDLEGAME * count;
+                    endgame += sign * ISOLATED_ENDGAME * count;
+                }
+            }
+            long pawns = ours;
+            while (pawns != 0) {
+                int square = Long.numberOfTrailingZeros(pawns);
+                if ((PASSED_SPANS[color.ordinal()][square] & theirs) == 0) {
+                    int advanced = color == ChessGame.TeamColor.WHITE ? square / 8 : 7 - square / 8;
+                    middlegame += sign * PASSED_MIDDLEGAME[advanced];
+                    endgame += sign * PASSED_ENDGAME[advanced];
+                }
+                pawns &= pawns - 1;
+            }
+        }
+        return pack(middlegame, endgame);
+    }
+
+    static long pack(int middlegame, int endgame) {
+        return ((long) endgame << 32) | (middlegame & 0xFFFFFFFFL);
+    }
+
+    static int middlegameScore(long scores) {
+        return (int) scores;
+    }
+
+    static int endgameScore(long scores) {
+        return (int) (scores >> 32);
+    }
+
+    /**
+     * Scores the position from scratch by walking every square of the board, without the incremental sums
+     * or the pawn structure cache
+     *
+     * @return The same score as {@link ChessGame#evaluate()}
+     */
+    public static int fullRescan(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int middlegame = 0;
+        int endgame = 0;
+        int phase = 0;
+        long whitePawns = 0;
+        long blackPawns = 0;
+        for (int row = 1; row <= 8; ++row) {
+            for (int col = 1; col <= 8; ++col) {
+                ChessPosition position = ChessPosition.of(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece == null) {
+                    continue;
+                }
+                int square = position.getSquare();
+                middlegame += middlegame(piece, square);
+                endgame += endgame(piece, square);
+                phase += phase(piece);
+                if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+                    if (piece.getTeamColor() == ChessGame.TeamColor.WHITE) {
+                        whitePawns |= 1L << square;
+                    } else {
+                        blackPawns |= 1L << square;
+                    }
+                }
+            }
+        }
+        long pawns = pawnStructure(whitePawns, blackPawns);
+        return taper(middlegame + middlegameScore(pawns), endgame + endgameScore(pawns), phase, game.getTeamTurn());
+    }
+}
@@ -0,0 +1,53 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Saves a ChessGame field by field as Gson would, except that only the moves made are written from the
+ * history, not the spare room after them. The position keys are left out altogether and worked out again
+ * from the history when the game is loaded
+ */
+final class GameJsonAdapter implements TypeAdapterFactory {
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != ChessGame.class) {
+            return null;
+        }
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+        return new TypeAdapter<>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                JsonElement json = delegate.toJsonTree(value);
+                if (json.isJsonObject()) {
+                    JsonObject game = json.getAsJsonObject();
+                    JsonArray history = game.getAsJsonArray("history");
+                    int historySize = ((ChessGame) value).getHistorySize();
+                    while (history != null && history.size() > historySize) {
+                        history.remove(history.size() - 1);
+                    }
+                }
+                elements.write(out, json);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                T value = delegate.read(in);
+                if (value != null) {
+                    ((ChessGame) value).rebuildPositionKeys();
+                }
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,144 @@
+package chess;
+
+/**
+ * Packs a chess move into an int, for code that generates and stores many moves at once
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square, numbered like
+ * {@link ChessPosition#getSquare()}. Bits 12-14 hold the promotion piece's ordinal plus one,
+ * or 0 for no promotion. The bits above that are flags describing what else the move does.
+ * Moves only become ChessMoves at the API boundary, see {@link #toChessMove(int)} and
+ * {@link #of(ChessMove, ChessBoard)}.
+ */
+public final class Move {
+    /**
+     * Never a legal move, it starts and ends on the same square
+     */
+    public static final int NONE = 0;
+
+    // The move takes an enemy piece, including En Passant
+    public static final int CAPTURE = 1 << 15;
+    // A pawn moves two squares forward
+    public static final int DOUBLE_PUSH = 1 << 16;
+    // A pawn takes the enemy pawn that just double moved beside it
+    public static final int EN_PASSANT = 1 << 17;
+    // The King moves two squares toward a rook, which jumps over it
+    public static final int CASTLE = 1 << 18;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private Move() {
+    }
+
+    /**
+     * @param from      the start square, 0 through 63
+     * @param to        the end square, 0 through 63
+     * @param promotion the piece a pawn promotes to, or null
+     * @param flags     any of CAPTURE, DOUBLE_PUSH, EN_PASSANT and CASTLE
+     * @return The packed move
+     */
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionBits << PROMOTION_SHIFT) | flags;
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & SQUARE_MASK;
+    }
+
+    /**
+     * @return The piece a pawn promotes to, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return promotionBits == 0 ? null : PIECE_TYPES[promotionBits - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return ((move >>> PROMOTION_SHIFT) & PROMOTION_MASK) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    /**
+     * @return The ChessMove with the same squares and promotion, dropping the flags
+     */
+    public static ChessMove toChessMove(int move) {
+        ChessPiece.PieceType promotion = promotion(move);
+        if (promotion == null) {
+            return ChessMove.of(from(move), to(move));
+        }
+        return new ChessMove(ChessPosition.fromSquare(from(move)), ChessPosition.fromSquare(to(move)), promotion);
+    }
+
+    /**
+     * Packs a ChessMove, working out its flags from the board it is about to be made on
+     *
+     * @param move  the move to pack
+     * @param board the board before the move is made
+     * @return The packed move, or NONE if either position is off the board
+     */
+    public static int of(ChessMove move, ChessBoard board) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        if (!ChessBoard.validTile(start) || !ChessBoard.validTile(end)) {
+            return NONE;
+        }
+        int from = start.getSquare();
+        int to = end.getSquare();
+        int flags = 0;
+        if (board.getPiece(end) != null) {
+            flags |= CAPTURE;
+        }
+        ChessPiece piece = board.getPiece(start);
+        if (piece != null && piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            if (Math.abs(to - from) == 16) {
+                flags |= DOUBLE_PUSH;
+            } else if (start.getColumn() != end.getColumn() && board.getPiece(end) == null) {
+                // A diagonal pawn move onto an empty square can only be En Passant
+                flags |= CAPTURE | EN_PASSANT;
+            }
+        } else if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            flags |= CASTLE;
+        }
+        return encode(from, to, move.getPromotionPiece(), flags);
+    }
+
+    /**
+     * @return The move in coordinate notation, such as e2e4 or a7a8q
+     */
+    public static String toString(int move) {
+        var sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+        ChessPiece.PieceType promotion = promotion(move);
+        if (promotion != null) {
+            sb.append(promotion == ChessPiece.PieceType.KNIGHT ? 'n' : Character.toLowerCase(promotion.name().charAt(0)));
+        }
+        return sb.toString();
+    }
+
+    private static void appendSquare(StringBuilder sb, int square) {
+        sb.append((char) ('a' + square % 8)).append((char) ('1' + square / 8));
+    }
+}
@@ -0,0 +1,164 @@
+package chess;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The legal moves of positions already seen, by position key, shared by every game and thread (see
+ * {@link ChessGame#setMoveCache})
+ * <p>
+ * Each position's moves are kept as an array of packed moves (see {@link Move}), along with the position's
+ * piece bitboards and the rest of its state (whose turn it is, castling rights and En Passant), so a
+ * position whose key collides with another's is never handed the other's moves. Once the entries take up
+ * more than the byte limit, the oldest are evicted by the CLOCK rule: an entry read since the hand last
+ * passed it gets a second chance and goes to the back of the queue. Lookups never lock.
+ */
+public final class MoveCache {
+    // What an entry costs besides its moves: the map node, boxed key, entry, queue node, piece bitboards and
+    // array headers
+    static final int ENTRY_OVERHEAD_BYTES = 240;
+
+    /**
+     * How the cache has been used since it was made or last cleared
+     *
+     * @param hits      lookups that found the position
+     * @param misses    lookups that did not
+     * @param evictions entries dropped to stay under the byte limit
+     * @param entries   positions held now
+     * @param bytes     the estimated memory the entries take up
+     * @param maxBytes  the byte limit
+     */
+    public record Stats(long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {
+        /**
+         * @return The fraction of lookups that found the position, or 0 before any lookups
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private static final class Entry {
+        private final long key;
+        private final long[] pieces;
+        private final int state;
+        private final int[] moves;
+        // Set on each read and cleared as the clock hand passes
+        private volatile boolean referenced;
+
+        private Entry(long key, long[] pieces, int state, int[] moves) {
+            this.key = key;
+            this.pieces = pieces;
+            this.state = state;
+            this.moves = moves;
+        }
+
+        private boolean matches(ChessBoard board, int state) {
+            return this.state == state && board.hasPieceBitboards(pieces);
+        }
+
+        private long bytes() {
+            return ENTRY_OVERHEAD_BYTES + 4L * moves.length;
+        }
+    }
+
+    private final long maxBytes;
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    // Entries in the order the clock hand reaches them
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes roughly how much memory the entries may take up
+     */
+    public MoveCache(long maxBytes) {
+        if (maxBytes < ENTRY_OVERHEAD_BYTES) {
+            throw new IllegalArgumentException("The cache needs room for at least one position");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param state everything besides the pieces that decides the legal moves, as ChessGame packs it
+     * @return The legal moves stored for the position, which must not be changed, or null if it is not held
+     */
+    int[] get(long key, ChessBoard board, int state) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.matches(board, state)) {
+            misses.increment();
+            return null;
+        }
+        // Only written when it changes, so hot entries do not bounce between cores
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        hits.increment();
+        return entry.moves;
+    }
+
+    /**
+     * Stores the legal moves of a position, evicting others if they no longer fit
+     *
+     * @param moves the moves, which must not be changed afterward
+     */
+    void put(long key, ChessBoard board, int state, int[] moves) {
+        Entry entry = new Entry(key, board.copyPieceBitboards(), state, moves);
+        Entry previous = entries.putIfAbsent(key, entry);
+        if (previous != null) {
+            // Another thread stored the same position first, or lost the entry to a colliding position
+            if (previous.matches(board, state) || !entries.replace(key, previous, entry)) {
+                return;
+            }
+            // The replaced entry is left in the queue for the clock hand to skip
+            bytes.addAndGet(-previous.bytes());
+        }
+        bytes.addAndGet(entry.bytes());
+        clock.offer(entry);
+        evict();
+    }
+
+    private void evict() {
+        while (bytes.get() > maxBytes) {
+            Entry entry = clock.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entries.get(entry.key) != entry) {
+                // Already replaced, and its bytes already given back
+                continue;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                clock.offer(entry);
+            } else if (entries.remove(entry.key, entry)) {
+                bytes.addAndGet(-entry.bytes());
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops every entry and resets the counts
+     */
+    public void clear() {
+        entries.clear();
+        clock.clear();
+        bytes.set(0);
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), bytes.get(), maxBytes);
+    }
+}
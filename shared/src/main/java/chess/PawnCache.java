@@ -0,0 +1,29 @@
+package chess;
+
+/**
+ * Pawn structure scores by pawn key. Pawns move far less often than the other pieces, so most positions
+ * reuse the score of one seen a few moves ago
+ */
+final class PawnCache {
+    // A power of two, so the low bits of a key pick the entry
+    private static final int ENTRIES = 512;
+
+    private final long[] keys = new long[ENTRIES];
+    private final long[] scores = new long[ENTRIES];
+
+    /**
+     * @return The board's pawn structure scores, packed as by Evaluation.pawnStructure
+     */
+    long probe(ChessBoard board) {
+        long key = board.getPawnKey();
+        int index = (int) key & (ENTRIES - 1);
+        // An empty entry has key 0, which is also the key of a board without pawns, whose scores are 0
+        if (keys[index] != key) {
+            keys[index] = key;
+            scores[index] = Evaluation.pawnStructure(
+                    board.getBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                    board.getBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        }
+        return scores[index];
+    }
+}
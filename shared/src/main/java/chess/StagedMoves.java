@@ -0,0 +1,274 @@
+package chess;
+
+import chess.pieceRules.Attacks;
+
+import java.util.ConcurrentModificationException;
+import java.util.EnumSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * Hands out the legal moves of a position one at a time as packed moves (see {@link Move}), a stage at a
+ * time: captures, then promotions, quiet moves, castling and En Passant
+ * <p>
+ * Nothing is generated up front. Each stage finds its pieces when it is reached, each piece its target
+ * squares when it is reached, and each move is checked against pins and check only when it is pulled. A
+ * caller that stops at the first move, or asks only for captures, pays only for what it looked at. Within
+ * a stage, moves come piece by piece in square order, and promotions come queen first.
+ * <p>
+ * Moves may be made and taken back between pulls, as a search does, as long as the position is back the way
+ * it was each time a move is pulled; pulling a move in a different position throws
+ * ConcurrentModificationException.
+ */
+public final class StagedMoves implements PrimitiveIterator.OfInt {
+    /**
+     * The kinds of moves, in the order they are handed out. Each legal move is in exactly one stage
+     */
+    public enum Stage {
+        // Moves that take a piece, other than promotions and En Passant
+        CAPTURES,
+        // Pawn moves onto the last row, with or without a capture, one for each piece they can become
+        PROMOTIONS,
+        // Moves onto empty squares, other than promotions, castling and En Passant
+        QUIETS,
+        CASTLING,
+        EN_PASSANT
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final long LAST_ROWS = 0xFF000000000000FFL;
+    // Pawns one step from promoting, by TeamColor ordinal
+    private static final long[] PROMOTING_ROWS = {0x00FF000000000000L, 0x000000000000FF00L};
+    // Best first, the same order the full generator uses
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP
+    };
+
+    private final ChessGame game;
+    private final ChessBoard board;
+    private final long pieceKey;
+    private final ChessGame.TeamColor color;
+    private final long enemies;
+    // One bit per Stage ordinal
+    private final int stages;
+    // The squares whose pieces may move
+    private final long startSquares;
+
+    // The stage being worked through, or null once every stage is done
+    private boolean started;
+    private Stage stage;
+    // Pieces the stage has not reached yet
+    private long pieces;
+    // The piece being worked through and the squares it may still go to, before legality is checked
+    private int from;
+    private ChessPiece piece;
+    private long targets;
+    // Where the piece may go without leaving its King in danger, worked out on its first pulled move
+    private long legalTargets;
+    private boolean legalTargetsKnown;
+    // A legal promotion being handed out one piece at a time
+    private int promotionMove = Move.NONE;
+    private int promotionIndex = PROMOTIONS.length;
+    private final MoveList castles = new MoveList(2);
+    private int castleIndex;
+
+    // The move found by hasNext and not yet taken
+    private int next = Move.NONE;
+    private Stage nextStage;
+    private Stage lastStage;
+
+    /**
+     * @param game         the position, with the team to move's moves handed out
+     * @param stages       which kinds of moves to hand out
+     * @param startSquares a mask of the squares whose pieces may move
+     */
+    StagedMoves(ChessGame game, Set<Stage> stages, long startSquares) {
+        this.game = game;
+        this.board = game.getBoard();
+        this.pieceKey = board.getPieceKey();
+        this.color = game.getTeamTurn();
+        this.enemies = board.getTeamBitboard(color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        int stageBits = 0;
+        for (Stage s : stages) {
+            stageBits |= 1 << s.ordinal();
+        }
+        this.stages = stageBits;
+        this.startSquares = startSquares;
+    }
+
+    /**
+     * @return Every stage, for asking for all legal moves
+     */
+    public static Set<Stage> allStages() {
+        return EnumSet.allOf(Stage.class);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == Move.NONE) {
+            checkForChanges();
+            next = advance();
+            nextStage = stage;
+        }
+        return next != Move.NONE;
+    }
+
+    /**
+     * @return The next legal move
+     * @throws NoSuchElementException if every move was handed out
+     */
+    @Override
+    public int nextInt() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int move = next;
+        next = Move.NONE;
+        lastStage = nextStage;
+        return move;
+    }
+
+    /**
+     * @return The next legal move, or Move.NONE if every move was handed out
+     */
+    public int nextMove() {
+        return hasNext() ? nextInt() : Move.NONE;
+    }
+
+    /**
+     * @return The stage of the move nextInt last returned, or null before the first one
+     */
+    public Stage stage() {
+        return lastStage;
+    }
+
+    private void checkForChanges() {
+        if (game.getBoard() != board || board.getPieceKey() != pieceKey || game.getTeamTurn() != color) {
+            throw new ConcurrentModificationException("The game changed while its moves were being handed out");
+        }
+    }
+
+    private int advance() {
+        if (!started) {
+            started = true;
+            startStage(0);
+        }
+        while (stage != null) {
+            int move = switch (stage) {
+                case CAPTURES, PROMOTIONS, QUIETS -> nextPieceMove();
+                case CASTLING -> nextCastle();
+                case EN_PASSANT -> nextEnPassant();
+            };
+            if (move != Move.NONE) {
+                return move;
+            }
+            startStage(stage.ordinal() + 1);
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Moves on to the first stage from the given one that was asked for, finding the pieces that may have
+     * moves in it
+     */
+    private void startStage(int ordinal) {
+        while (ordinal < STAGES.length && (stages & (1 << ordinal)) == 0) {
+            ++ordinal;
+        }
+        if (ordinal == STAGES.length) {
+            stage = null;
+            return;
+        }
+        stage = STAGES[ordinal];
+        targets = 0;
+        long team = board.getTeamBitboard(color) & startSquares;
+        long pawns = board.getBitboard(color, ChessPiece.PieceType.PAWN);
+        pieces = switch (stage) {
+            case CAPTURES, QUIETS -> team;
+            case PROMOTIONS -> team & pawns & PROMOTING_ROWS[color.ordinal()];
+            case CASTLING -> team & board.getBitboard(color, ChessPiece.PieceType.KING);
+            case EN_PASSANT -> {
+                // Only pawns beside the one that just double moved can take it
+                ChessPosition doubleMovedPawn = game.getEnPassantPawn();
+                yield doubleMovedPawn == null ? 0 : team & pawns & Attacks.kingAttacks(doubleMovedPawn.getSquare())
+                        & (0xFFL << ((doubleMovedPawn.getRow() - 1) * 8));
+            }
+        };
+        if (stage == Stage.CASTLING) {
+            castles.clear();
+            castleIndex = 0;
+            if (pieces != 0) {
+                int kingSquare = Long.numberOfTrailingZeros(pieces);
+                game.addCastlingMoves(castles, kingSquare, board.pieceAt(kingSquare));
+            }
+        }
+    }
+
+    private int nextPieceMove() {
+        while (true) {
+            if (promotionIndex < PROMOTIONS.length) {
+                return promotionMove | Move.encode(0, 0, PROMOTIONS[promotionIndex++], 0);
+            }
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (!legalTargetsKnown) {
+                    legalTargets = game.legalTargets(from, piece);
+                    legalTargetsKnown = true;
+                }
+                if ((legalTargets & (1L << to)) == 0) {
+                    continue;
+                }
+                int flags = (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0;
+                if (stage == Stage.PROMOTIONS) {
+                    promotionMove = Move.encode(from, to, null, flags);
+                    promotionIndex = 0;
+                    break;
+                }
+                if (piece.getPieceType() == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16) {
+                    flags |= Move.DOUBLE_PUSH;
+                }
+                return Move.encode(from, to, null, flags);
+            }
+            if (promotionIndex < PROMOTIONS.length) {
+                continue;
+            }
+            if (pieces == 0) {
+                return Move.NONE;
+            }
+            from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            piece = board.pieceAt(from);
+            legalTargetsKnown = false;
+            long pseudoTargets = piece.pieceTargets(board, ChessPosition.fromSquare(from));
+            if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+                pseudoTargets &= stage == Stage.PROMOTIONS ? LAST_ROWS : ~LAST_ROWS;
+            }
+            targets = switch (stage) {
+                case CAPTURES -> pseudoTargets & enemies;
+                case QUIETS -> pseudoTargets & ~enemies;
+                default -> pseudoTargets;
+            };
+        }
+    }
+
+    private int nextCastle() {
+        return castleIndex < castles.size() ? castles.get(castleIndex++) : Move.NONE;
+    }
+
+    private int nextEnPassant() {
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            int move = game.enPassantMove(square, board.pieceAt(square));
+            if (move != Move.NONE) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+}
@@ -0,0 +1,58 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the keys of everything in it, so it can be
+ * updated with one XOR whenever a piece, the turn, a castling right or the en passant file changes.
+ * <p>
+ * The keys come from a fixed seed because they end up in saved games; changing the seed invalidates every
+ * stored key.
+ */
+final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[4];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x240C4E55L);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; ++square) {
+                squares[square] = random.nextLong();
+            }
+        }
+        for (int i = 0; i < CASTLING.length; ++i) {
+            CASTLING[i] = random.nextLong();
+        }
+        for (int i = 0; i < EN_PASSANT_FILE.length; ++i) {
+            EN_PASSANT_FILE[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(ChessPiece piece, int square) {
+        return PIECE_SQUARE[piece.getTeamColor().ordinal() * 6 + piece.getPieceType().ordinal()][square];
+    }
+
+    /**
+     * @param right 0 and 1 for white's left and right rook, 2 and 3 for black's
+     */
+    static long castling(int right) {
+        return CASTLING[right];
+    }
+
+    /**
+     * @param column the column of the pawn that can be captured en passant, 1 through 8
+     */
+    static long enPassant(int column) {
+        return EN_PASSANT_FILE[column - 1];
+    }
+
+    static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+}
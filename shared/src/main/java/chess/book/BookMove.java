@@ -0,0 +1,12 @@
+package chess.book;
+
+import chess.ChessMove;
+
+/**
+ * A move an opening book suggests
+ *
+ * @param move   the move
+ * @param weight how often the book plays it, relative to the other moves from the same position
+ */
+public record BookMove(ChessMove move, int weight) {
+}
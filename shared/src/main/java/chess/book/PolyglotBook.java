@@ -0,0 +1,180 @@
+package chess.book;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Reads a Polyglot opening book (.bin file)
+ * <p>
+ * A book is a list of 16 byte big-endian entries sorted by position key: the 64-bit Polyglot key, a 16-bit
+ * move, a 16-bit weight and 32 bits of learning data, which is ignored. The file is memory-mapped and
+ * searched in place, so a book of any size costs no heap and lookups read only the pages they touch.
+ * <p>
+ * A book is safe to share between threads; lookups only read the mapping.
+ */
+public class PolyglotBook {
+    private static final int ENTRY_BYTES = 16;
+    // Each mapping is at most 1 GiB, a whole number of entries
+    private static final int SEGMENT_BYTES = 1 << 30;
+
+    // Polyglot move fields: to file, to row, from file, from row, promotion
+    private static final int FILE_BITS = 3;
+    // Indexed by the promotion field: none, knight, bishop, rook, queen
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            null,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.QUEEN
+    };
+
+    private final MappedByteBuffer[] segments;
+    private final long entries;
+    private final PolyglotKey keys;
+
+    private PolyglotBook(MappedByteBuffer[] segments, long entries, PolyglotKey keys) {
+        this.segments = segments;
+        this.entries = entries;
+        this.keys = keys;
+    }
+
+    /**
+     * Maps a book file. The file can be closed and reopened by other programs; the mapping stays valid
+     *
+     * @param keys the Polyglot key table the book was written with
+     * @throws IOException if the file cannot be read or is not a whole number of entries
+     */
+    public static PolyglotBook open(Path path, PolyglotKey keys) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0) {
+                throw new IOException("Not a Polyglot book: " + path);
+            }
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+            for (int i = 0; i < segments.length; ++i) {
+                long start = (long) i * SEGMENT_BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_BYTES, size - start));
+            }
+            return new PolyglotBook(segments, size / ENTRY_BYTES, keys);
+        }
+    }
+
+    /**
+     * @return How many entries the book holds
+     */
+    public long size() {
+        return entries;
+    }
+
+    /**
+     * Finds the book's moves for the game's current position. Entries that are not legal moves in the
+     * position, from a key collision or a broken book, are left out
+     *
+     * @return The moves in book order, most played first, or an empty list if the position is not in the book
+     */
+    public List<BookMove> moves(ChessGame game) {
+        long key = keys.key(game);
+        List<BookMove> moves = new ArrayList<>();
+        for (long entry = firstEntry(key); entry < entries && keyAt(entry) == key; ++entry) {
+            ByteBuffer segment = segment(entry);
+            int offset = offset(entry);
+            ChessMove move = decode(game, segment.getShort(offset + 8) & 0xFFFF);
+            int weight = segment.getShort(offset + 10) & 0xFFFF;
+            if (move != null) {
+                moves.add(new BookMove(move, weight));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Picks one of the book's moves at random, each as likely as its share of the total weight
+     *
+     * @return The move, or null if the position is not in the book or all its moves have weight 0
+     */
+    public ChessMove pick(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = moves(game);
+        int total = 0;
+        for (BookMove move : moves) {
+            total += move.weight();
+        }
+        if (total == 0) {
+            return null;
+        }
+        int target = random.nextInt(total);
+        for (BookMove move : moves) {
+            target -= move.weight();
+            if (target < 0) {
+                return move.move();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The index of the first entry whose key is not below the given one, comparing keys as unsigned
+     */
+    private long firstEntry(long key) {
+        long low = 0;
+        long high = entries;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(long entry) {
+        return segment(entry).getLong(offset(entry));
+    }
+
+    private ByteBuffer segment(long entry) {
+        return segments[(int) (entry * ENTRY_BYTES / SEGMENT_BYTES)];
+    }
+
+    private static int offset(long entry) {
+        return (int) (entry * ENTRY_BYTES % SEGMENT_BYTES);
+    }
+
+    /**
+     * Turns a Polyglot move into a legal move of the game, or null if it is not one
+     */
+    private static ChessMove decode(ChessGame game, int move) {
+        int toFile = move & 7;
+        int toRow = (move >>> FILE_BITS) & 7;
+        int fromFile = (move >>> (2 * FILE_BITS)) & 7;
+        int fromRow = (move >>> (3 * FILE_BITS)) & 7;
+        int promotion = (move >>> (4 * FILE_BITS)) & 7;
+        if (promotion >= PROMOTIONS.length) {
+            return null;
+        }
+        ChessPosition start = ChessPosition.of(fromRow + 1, fromFile + 1);
+        ChessPiece piece = game.getBoard().getPiece(start);
+        if (piece == null) {
+            return null;
+        }
+        // Polyglot writes castling as the King taking its own Rook
+        if (piece.getPieceType() == ChessPiece.PieceType.KING && fromFile == 4 && fromRow == toRow
+                && (toFile == 0 || toFile == 7)) {
+            toFile = toFile == 0 ? 2 : 6;
+        }
+        ChessMove decoded = new ChessMove(start, ChessPosition.of(toRow + 1, toFile + 1), PROMOTIONS[promotion]);
+        return game.isLegal(decoded) ? decoded : null;
+    }
+}
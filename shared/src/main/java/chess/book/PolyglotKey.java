@@ -0,0 +1,107 @@
+package chess.book;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.pieceRules.Attacks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Computes the Polyglot key of a position, which Polyglot opening books are sorted by
+ * <p>
+ * The key is the XOR of entries from a fixed table of 781 random numbers, "Random64" in the Polyglot book
+ * format: one per piece kind and square, four for the castling rights, eight for the en passant file and one
+ * for white to move. Books only match positions hashed with that exact table, so it is read from the table
+ * published with the format rather than made up here.
+ */
+public final class PolyglotKey {
+    public static final int RANDOM_COUNT = 781;
+
+    private static final int CASTLING_OFFSET = 768;
+    private static final int EN_PASSANT_OFFSET = 772;
+    private static final int TURN_OFFSET = 780;
+
+    // Polyglot numbers its piece kinds black pawn, white pawn, black knight, white knight and so on up to the
+    // white king. Indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] POLYGLOT_TYPE = {5, 4, 2, 1, 3, 0};
+
+    // 16 hex digits with an optional 0x, like 0x9D39247E33776D41 or U64(0x9D39247E33776D41)
+    private static final Pattern HEX_NUMBER = Pattern.compile("(?<![0-9a-fA-F])(?:0[xX])?([0-9a-fA-F]{16})(?![0-9a-fA-F])");
+
+    private final long[] randoms;
+
+    /**
+     * @param randoms the 781 numbers of the Random64 table, in order
+     */
+    public PolyglotKey(long[] randoms) {
+        if (randoms.length != RANDOM_COUNT) {
+            throw new IllegalArgumentException("The Random64 table has " + RANDOM_COUNT + " entries");
+        }
+        this.randoms = randoms.clone();
+    }
+
+    /**
+     * Reads the Random64 table from a text file holding its 781 numbers as 16 hexadecimal digits each. Anything
+     * around the numbers is ignored, so the C array from the format's documentation can be pasted in as is
+     */
+    public static PolyglotKey load(Path path) throws IOException {
+        long[] randoms = HEX_NUMBER.matcher(Files.readString(path)).results()
+                .mapToLong(match -> Long.parseUnsignedLong(match.group(1), 16))
+                .toArray();
+        if (randoms.length != RANDOM_COUNT) {
+            throw new IOException("Expected " + RANDOM_COUNT + " numbers in " + path + " but found " + randoms.length);
+        }
+        return new PolyglotKey(randoms);
+    }
+
+    /**
+     * @return The Polyglot key of the game's current position
+     */
+    public long key(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long key = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                int kind = POLYGLOT_TYPE[type.ordinal()] * 2 + (color == ChessGame.TeamColor.WHITE ? 1 : 0);
+                long pieces = board.getBitboard(color, type);
+                while (pieces != 0) {
+                    // Polyglot squares run a1 = 0 to h8 = 63, the same as bitboard squares
+                    key ^= randoms[kind * 64 + Long.numberOfTrailingZeros(pieces)];
+                    pieces &= pieces - 1;
+                }
+            }
+        }
+
+        if (game.hasCastlingRight(ChessGame.TeamColor.WHITE, true)) {
+            key ^= randoms[CASTLING_OFFSET];
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.WHITE, false)) {
+            key ^= randoms[CASTLING_OFFSET + 1];
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.BLACK, true)) {
+            key ^= randoms[CASTLING_OFFSET + 2];
+        }
+        if (game.hasCastlingRight(ChessGame.TeamColor.BLACK, false)) {
+            key ^= randoms[CASTLING_OFFSET + 3];
+        }
+
+        // Polyglot only counts en passant when a pawn of the team to move stands beside the double moved pawn
+        ChessPosition doubleMovedPawn = game.getEnPassantPawn();
+        if (doubleMovedPawn != null) {
+            long neighbors = Attacks.kingAttacks(doubleMovedPawn.getSquare()) & (0xFFL << ((doubleMovedPawn.getRow() - 1) * 8));
+            if ((neighbors & board.getBitboard(game.getTeamTurn(), ChessPiece.PieceType.PAWN)) != 0) {
+                key ^= randoms[EN_PASSANT_OFFSET + doubleMovedPawn.getColumn() - 1];
+            }
+        }
+
+        if (game.getTeamTurn() == ChessGame.TeamColor.WHITE) {
+            key ^= randoms[TURN_OFFSET];
+        }
+        return key;
+    }
+}
@@ -1,4 +1,11 @@
 package chess.dataModel.request;
 
-public record CreateGameRequest(String gameName)  {
+/**
+ * @param gameName the name of the new game
+ * @param botColor "WHITE" or "BLACK" to have the server play that color, or null for two players
+ */
+public record CreateGameRequest(String gameName, String botColor)  {
+    public CreateGameRequest(String gameName) {
+        this(gameName, null);
+    }
 }
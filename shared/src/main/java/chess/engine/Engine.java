@@ -0,0 +1,144 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds good moves for a chess game with an alpha-beta search
+ * <p>
+ * An engine keeps its transposition table between searches, so searching successive positions of the
+ * same game is faster. It runs one search at a time, which may use several threads; {@link #stop()} may be
+ * called from any thread.
+ * <p>
+ * Extra threads search the same position independently (Lazy SMP), sharing only the transposition table
+ * and the stop signal. What one thread learns speeds up the others, and the deepest finished result wins.
+ */
+public class Engine {
+    public static final int DEFAULT_HASH_MEGABYTES = 16;
+
+    private final TranspositionTable table;
+    private final AtomicBoolean stopSignal = new AtomicBoolean(false);
+
+    public Engine() {
+        this(DEFAULT_HASH_MEGABYTES);
+    }
+
+    /**
+     * @param hashMegabytes the memory to give the transposition table
+     */
+    public Engine(int hashMegabytes) {
+        this.table = new TranspositionTable(hashMegabytes);
+    }
+
+    /**
+     * Searches for the best move of the team whose turn it is
+     *
+     * @param game   the game to search; it is not modified
+     * @param limits when to stop searching
+     * @return The best move found, its score and the expected line of play
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        return search(game, limits, 1);
+    }
+
+    /**
+     * Searches for the best move of the team whose turn it is, unless it is called off. stop() only reaches
+     * a search that has begun, so callers that may call one off from another thread set their own flag and
+     * then call stop(). The search reads the flag once it has begun, so it ends early whichever comes first
+     *
+     * @param game      the game to search; it is not modified
+     * @param limits    when to stop searching
+     * @param cancelled whether the search has been called off
+     * @return The best move found, its score and the expected line of play
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits, BooleanSupplier cancelled) {
+        return search(game, limits, 1, cancelled);
+    }
+
+    /**
+     * Searches for the best move of the team whose turn it is as deep as it can in the given time
+     *
+     * @param game       the game to search; it is not modified
+     * @param timeMillis how long to search
+     * @param threads    how many threads to search with
+     * @return The best move found, its score and the expected line of play
+     */
+    public SearchResult bestMove(ChessGame game, long timeMillis, int threads) {
+        return search(game, SearchLimits.time(timeMillis), threads);
+    }
+
+    /**
+     * Searches for the best move of the team whose turn it is with several threads. The calling thread
+     * runs the main search, which alone applies the time and node limits and then stops the others
+     *
+     * @param game    the game to search; it is not modified
+     * @param limits  when to stop searching
+     * @param threads how many threads to search with, including the calling thread
+     * @return The best move found, its score and the expected line of play, with the nodes of every thread
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits, int threads) {
+        return search(game, limits, threads, () -> false);
+    }
+
+    private SearchResult search(ChessGame game, SearchLimits limits, int threads, BooleanSupplier cancelled) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread");
+        }
+        long start = System.nanoTime();
+        stopSignal.set(false);
+        // Read only after the signal is cleared, so a stop() that raced with the line above is not lost
+        if (cancelled.getAsBoolean()) {
+            stopSignal.set(true);
+        }
+        table.newSearch();
+        long deadline = limits.timeMillis() > 0 ? start + limits.timeMillis() * 1_000_000 : Long.MAX_VALUE;
+
+        Searcher[] helpers = new Searcher[threads - 1];
+        SearchResult[] helperResults = new SearchResult[threads - 1];
+        Thread[] helperThreads = new Thread[threads - 1];
+        for (int i = 0; i < helpers.length; ++i) {
+            int helper = i;
+            helpers[i] = new Searcher(new ChessGame(game), table, stopSignal, Long.MAX_VALUE, 0);
+            // Every other helper starts one ply deeper than the main search
+            helperThreads[i] = Thread.ofPlatform().daemon().name("search-helper-" + (i + 1)).start(
+                    () -> helperResults[helper] = helpers[helper].run(1 + (helper + 1) % 2, limits.depth(), start));
+        }
+
+        Searcher main = new Searcher(new ChessGame(game), table, stopSignal, deadline, limits.nodes());
+        SearchResult best = main.run(1, limits.depth(), start);
+        long nodes = main.getNodes();
+
+        stopSignal.set(true);
+        for (int i = 0; i < helpers.length; ++i) {
+            try {
+                helperThreads[i].join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            nodes += helpers[i].getNodes();
+            SearchResult result = helperResults[i];
+            if (result != null && result.bestMove() != null && result.depth() > best.depth()) {
+                best = result;
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, elapsedMillis, best.principalVariation());
+    }
+
+    /**
+     * Asks a running search to return as soon as it can, with the best move found so far
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    /**
+     * Forgets everything learned from earlier searches, for starting a new game
+     */
+    public void clear() {
+        table.clear();
+    }
+}
@@ -0,0 +1,21 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+/**
+ * Scores positions for the search, in centipawns
+ */
+public final class Evaluator {
+    // For ordering captures and promotions, indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    private Evaluator() {
+    }
+
+    /**
+     * @return The score of the position for the team whose turn it is; positive is good for them
+     */
+    public static int evaluate(ChessGame game) {
+        return game.evaluate();
+    }
+}
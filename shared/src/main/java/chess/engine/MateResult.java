@@ -0,0 +1,38 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * What the mate solver proved about a position, for the team whose turn it is
+ *
+ * @param outcome    whether a forced mate was proven, refuted, or neither in the time given
+ * @param moves      the moves to mate, counting the mating move, when a mate was proven; otherwise how many
+ *                   moves deep a mate was ruled out, or 0
+ * @param line       a mating line starting with the move to play, as far as the solver's table still holds
+ *                   it; empty unless a mate was proven
+ * @param nodes      the positions visited
+ * @param timeMillis how long the solver took
+ */
+public record MateResult(Outcome outcome, int moves, List<ChessMove> line, long nodes, long timeMillis) {
+    public enum Outcome {
+        // The team to move mates in the given number of moves, however the other team replies
+        MATE,
+        // No series of checks mates within the number of moves asked for
+        NO_MATE,
+        // The time ran out, or the solver was too busy, before either was shown
+        UNKNOWN
+    }
+
+    public boolean isMate() {
+        return outcome == Outcome.MATE;
+    }
+
+    /**
+     * @return The move that starts the mate, or null if none was proven
+     */
+    public ChessMove firstMove() {
+        return line.isEmpty() ? null : line.get(0);
+    }
+}
@@ -0,0 +1,435 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Move;
+import chess.MoveList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Proves or rules out a forced mate within a number of moves, with depth-first proof-number search (df-pn)
+ * <p>
+ * The team to move attacks and may only give check; the other team may make any legal move. Every position
+ * has a proof number, the fewest positions that must still be shown to end in mate to prove the attacker
+ * wins, and a disproof number, the same for showing the defender escapes. Df-pn always works on the
+ * position with the smallest number on the side it is trying, so it goes deep on forcing lines instead of
+ * searching every line to the same depth. Numbers are kept in a fixed-size table keyed by position and moves
+ * left, so memory does not grow with the search; positions pushed out of the table are searched again.
+ * <p>
+ * Mates are tried one move deep, then two and so on, so the mate found is the shortest. Each depth is searched
+ * by every worker at once, sharing the table and breaking ties between equally good moves differently, the
+ * way {@link Engine} shares its transposition table; the first worker to settle the question stops the
+ * others. {@link #solve} returns by its time limit whatever the workers are doing, so it is safe to call
+ * while a player waits. Draws by repetition or the fifty move rule are not considered.
+ * <p>
+ * A solver may be shared by many threads.
+ */
+public class MateSolver {
+    public static final int MAX_MOVES = 16;
+    public static final int DEFAULT_TABLE_MEGABYTES = 8;
+
+    // Proof and disproof numbers stop growing here; a number this big means it cannot be done
+    static final int INFINITY = (1 << 30) - 1;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int DELTA_SHIFT = 31;
+    private static final long NUMBER_MASK = (1L << DELTA_SHIFT) - 1;
+    // How many positions a worker visits between looks at the clock
+    private static final int CLOCK_INTERVAL = 1024;
+    // Mixed into position keys so each number of moves left, and each attacker, has its own entries
+    private static final long MOVES_LEFT_KEY = 0x9E3779B97F4A7C15L;
+    private static final long BLACK_ATTACKER_KEY = 0xD1B54A32D192ED03L;
+    // Searches that may wait for a worker, for each worker
+    private static final int QUEUE_PER_WORKER = 64;
+
+    // Each entry is the key XORed with the data, then the data: the mover's phi and delta (see Worker)
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private final int threads;
+    private final ThreadPoolExecutor pool;
+
+    public MateSolver() {
+        this(DEFAULT_TABLE_MEGABYTES, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * @param tableMegabytes the memory to give the table of proof numbers
+     * @param threads        how many workers search each depth
+     */
+    public MateSolver(int tableMegabytes, int threads) {
+        if (tableMegabytes < 1 || threads < 1) {
+            throw new IllegalArgumentException("A solver needs at least 1 MB and one worker");
+        }
+        long entries = Long.highestOneBit((long) tableMegabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = (int) Math.min(entries, 1 << 30);
+        this.keys = new long[size];
+        this.data = new long[size];
+        this.mask = size - 1;
+        this.threads = threads;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_WORKER),
+                runnable -> Thread.ofPlatform().daemon().name("mate-worker-" + threadCount.incrementAndGet()).unstarted(runnable));
+    }
+
+    /**
+     * Looks for a forced mate by the team whose turn it is
+     *
+     * @param game       the position to solve; it is not modified
+     * @param maxMoves   the most moves the mate may take, counting the mating move
+     * @param timeMillis the longest the call may take; the solver gives up with UNKNOWN when it runs out
+     * @return The shortest mate found, or how deep a mate was ruled out
+     */
+    public MateResult solve(ChessGame game, int maxMoves, long timeMillis) {
+        if (maxMoves < 1 || maxMoves > MAX_MOVES) {
+            throw new IllegalArgumentException("Mates must be between 1 and " + MAX_MOVES + " moves");
+        }
+        if (timeMillis < 1) {
+            throw new IllegalArgumentException("The solver needs some time");
+        }
+        long start = System.nanoTime();
+        long deadline = start + timeMillis * 1_000_000;
+        ChessGame position = new ChessGame(game);
+        LongAdder nodes = new LongAdder();
+
+        for (int moves = 1; moves <= maxMoves; ++moves) {
+            Boolean proven = prove(position, moves, deadline, nodes);
+            if (proven == null) {
+                return result(MateResult.Outcome.UNKNOWN, moves - 1, List.of(), nodes, start);
+            }
+            if (proven) {
+                return result(MateResult.Outcome.MATE, moves, mateLine(position, moves), nodes, start);
+            }
+        }
+        return result(MateResult.Outcome.NO_MATE, maxMoves, List.of(), nodes, start);
+    }
+
+    /**
+     * Stops the workers once their current searches give up
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Searches one depth on every worker, waiting until one of them settles it or time runs out
+     *
+     * @return True if the mate is proven, false if it is ruled out, or null if time ran out first
+     */
+    private Boolean prove(ChessGame position, int moves, long deadline, LongAdder nodes) {
+        AtomicBoolean stop = new AtomicBoolean(false);
+        CompletableFuture<Boolean> settled = new CompletableFuture<>();
+        try {
+            for (int helper = 0; helper < threads; ++helper) {
+                Worker worker = new Worker(new ChessGame(position), helper, stop, deadline, nodes);
+                pool.execute(() -> {
+                    try {
+                        Boolean proven = worker.solve(moves);
+                        if (proven != null) {
+                            settled.complete(proven);
+                        }
+                    } catch (RuntimeException ex) {
+                        settled.completeExceptionally(ex);
+                    }
+                });
+            }
+            return settled.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException | TimeoutException ex) {
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Mate search failed", ex.getCause());
+        } finally {
+            stop.set(true);
+        }
+    }
+
+    /**
+     * Follows the proof in the table: checks that keep the mate in reach, and replies that put it off longest
+     * as far as the table shows. Stops early where the proof has been pushed out of the table
+     */
+    private List<ChessMove> mateLine(ChessGame position, int moves) {
+        ChessGame.TeamColor attacker = position.getTeamTurn();
+        ChessGame game = new ChessGame(position);
+        List<ChessMove> line = new ArrayList<>();
+        MoveList legalMoves = new MoveList();
+        int movesLeft = moves;
+        while (true) {
+            boolean attacking = game.getTeamTurn() == attacker;
+            legalMoves.clear();
+            game.legalMoves(legalMoves);
+            if (legalMoves.isEmpty() || (!attacking && movesLeft == 0)) {
+                break;
+            }
+            int chosen = Move.NONE;
+            for (int i = 0; i < legalMoves.size() && chosen == Move.NONE; ++i) {
+                int move = legalMoves.get(i);
+                game.makeMove(move);
+                if (attacking) {
+                    // The defender to move has no way out
+                    long entry = probe(key(game, attacker, movesLeft - 1));
+                    if (game.isInCheck(game.getTeamTurn()) && entry != 0 && delta(entry) == 0) {
+                        chosen = move;
+                    }
+                } else {
+                    // A reply the attacker cannot also mate a move sooner after
+                    long sooner = probe(key(game, attacker, movesLeft - 1));
+                    if (movesLeft == 1 || sooner == 0 || phi(sooner) != 0) {
+                        chosen = move;
+                    }
+                }
+                game.unmakeMove();
+            }
+            if (chosen == Move.NONE && !attacking) {
+                chosen = legalMoves.get(0);
+            }
+            if (chosen == Move.NONE) {
+                break;
+            }
+            line.add(Move.toChessMove(chosen));
+            game.makeMove(chosen);
+            if (attacking) {
+                --movesLeft;
+            }
+        }
+        return line;
+    }
+
+    private static MateResult result(MateResult.Outcome outcome, int moves, List<ChessMove> line, LongAdder nodes, long start) {
+        return new MateResult(outcome, moves, line, nodes.sum(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static long key(ChessGame game, ChessGame.TeamColor attacker, int movesLeft) {
+        return game.positionKey() ^ (movesLeft * MOVES_LEFT_KEY) ^ (attacker == ChessGame.TeamColor.BLACK ? BLACK_ATTACKER_KEY : 0);
+    }
+
+    /**
+     * @return The entry stored for the key, or 0 if there is none
+     */
+    private long probe(long key) {
+        int index = (int) key & mask & ~1;
+        for (int slot = index; slot <= index + 1; ++slot) {
+            long entry = data[slot];
+            if ((keys[slot] ^ entry) == key && entry != 0) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a position's numbers. Buckets hold two entries: the first keeps settled positions, which are
+     * worth the most, and the second takes whatever is newest
+     */
+    private void store(long key, int phi, int delta) {
+        long entry = phi | ((long) delta << DELTA_SHIFT);
+        int index = (int) key & mask & ~1;
+        int slot = index + 1;
+        long first = data[index];
+        if ((keys[index] ^ first) == key || first == 0 || (phi(first) != 0 && delta(first) != 0) || phi == 0 || delta == 0) {
+            slot = index;
+        }
+        data[slot] = entry;
+        keys[slot] = key ^ entry;
+    }
+
+    private static int phi(long entry) {
+        return (int) (entry & NUMBER_MASK);
+    }
+
+    private static int delta(long entry) {
+        return (int) ((entry >>> DELTA_SHIFT) & NUMBER_MASK);
+    }
+
+    /**
+     * One df-pn search of a position. Numbers are kept for the team to move at each position: phi is its
+     * proof number if it attacks and its disproof number if it defends, and delta is the other one. So a
+     * position's phi is the smallest delta of its children and its delta is the sum of their phis, on both
+     * sides, and phi 0 means the team to move gets its way
+     */
+    private final class Worker {
+        private final ChessGame game;
+        private final ChessGame.TeamColor attacker;
+        private final int helper;
+        private final AtomicBoolean stop;
+        private final long deadline;
+        private final LongAdder nodes;
+        private final MoveList[] moves = new MoveList[2 * MAX_MOVES];
+        private final long[][] childKeys = new long[2 * MAX_MOVES][];
+        private long localNodes;
+        private boolean stopped;
+        // The numbers of the position searched last
+        private int phi;
+        private int delta;
+
+        private Worker(ChessGame game, int helper, AtomicBoolean stop, long deadline, LongAdder nodes) {
+            this.game = game;
+            this.attacker = game.getTeamTurn();
+            this.helper = helper;
+            this.stop = stop;
+            this.deadline = deadline;
+            this.nodes = nodes;
+        }
+
+        /**
+         * @return True if the attacker mates within the moves, false if it cannot, or null if stopped first
+         */
+        private Boolean solve(int movesLeft) {
+            search(movesLeft, INFINITY, INFINITY, 0);
+            nodes.add(localNodes % CLOCK_INTERVAL);
+            if (stopped) {
+                return null;
+            }
+            return phi == 0;
+        }
+
+        /**
+         * Searches the position until its phi reaches thresholdPhi or its delta reaches thresholdDelta,
+         * leaving its numbers in phi and delta
+         */
+        private void search(int movesLeft, int thresholdPhi, int thresholdDelta, int ply) {
+            if (++localNodes % CLOCK_INTERVAL == 0) {
+                nodes.add(CLOCK_INTERVAL);
+                stopped |= stop.get() || System.nanoTime() > deadline;
+            }
+            if (stopped) {
+                return;
+            }
+            long key = key(game, attacker, movesLeft);
+            boolean attacking = game.getTeamTurn() == attacker;
+            if (!attacking && movesLeft == 0) {
+                // Mated, or escaped because the attacker has no moves left
+                boolean mated = game.isInCheck(game.getTeamTurn()) && !game.hasAnyLegalMove(game.getTeamTurn());
+                settle(key, !mated);
+                return;
+            }
+
+            int count = expand(movesLeft, attacking, ply);
+            if (count == 0) {
+                // No check to give, or the defender is mated or stalemated
+                settle(key, !attacking && !game.isInCheck(game.getTeamTurn()));
+                return;
+            }
+            MoveList children = moves[ply];
+            long[] keysOfChildren = childKeys[ply];
+            int childMovesLeft = attacking ? movesLeft - 1 : movesLeft;
+            int lastChild = -1;
+            int lastPhi = 0;
+            int lastDelta = 0;
+            while (true) {
+                // Gather the children's numbers, trusting the last search over the table in case its entry was replaced
+                int minDelta = INFINITY + 1;
+                int secondDelta = INFINITY + 1;
+                long sumPhi = 0;
+                int best = -1;
+                for (int n = 0; n < count; ++n) {
+                    // Helpers start from different children, so they break ties differently
+                    int i = (n + helper * 7) % count;
+                    int childPhi;
+                    int childDelta;
+                    if (i == lastChild) {
+                        childPhi = lastPhi;
+                        childDelta = lastDelta;
+                    } else {
+                        long entry = probe(keysOfChildren[i]);
+                        childPhi = entry == 0 ? 1 : phi(entry);
+                        childDelta = entry == 0 ? 1 : delta(entry);
+                    }
+                    sumPhi += childPhi;
+                    if (childDelta < minDelta) {
+                        secondDelta = minDelta;
+                        minDelta = childDelta;
+                        best = i;
+                    } else if (childDelta < secondDelta) {
+                        secondDelta = childDelta;
+                    }
+                }
+                int nodePhi = minDelta;
+                int nodeDelta = (int) Math.min(sumPhi, INFINITY);
+                if (nodePhi >= thresholdPhi || nodeDelta >= thresholdDelta || stopped) {
+                    phi = nodePhi;
+                    delta = nodeDelta;
+                    if (!stopped) {
+                        store(key, nodePhi, nodeDelta);
+                    }
+                    return;
+                }
+
+                long bestEntry = best == lastChild ? 0 : probe(keysOfChildren[best]);
+                int bestPhi = best == lastChild ? lastPhi : bestEntry == 0 ? 1 : phi(bestEntry);
+                int childThresholdPhi = (int) Math.min((long) thresholdDelta - nodeDelta + bestPhi, INFINITY);
+                int childThresholdDelta = Math.min(thresholdPhi, Math.min(secondDelta, INFINITY - 1) + 1);
+
+                game.makeMove(children.get(best));
+                search(childMovesLeft, childThresholdPhi, childThresholdDelta, ply + 1);
+                game.unmakeMove();
+                lastChild = best;
+                lastPhi = phi;
+                lastDelta = delta;
+            }
+        }
+
+        /**
+         * Lists the moves of the position into moves[ply], only checks for the attacker, with the key of the
+         * position each one leads to
+         *
+         * @return How many moves there are
+         */
+        private int expand(int movesLeft, boolean attacking, int ply) {
+            if (moves[ply] == null) {
+                moves[ply] = new MoveList();
+            }
+            MoveList list = moves[ply];
+            list.clear();
+            game.legalMoves(list);
+            if (childKeys[ply] == null || childKeys[ply].length < list.size()) {
+                childKeys[ply] = new long[Math.max(64, list.size())];
+            }
+            int childMovesLeft = attacking ? movesLeft - 1 : movesLeft;
+            int count = 0;
+            for (int i = 0; i < list.size(); ++i) {
+                int move = list.get(i);
+                game.makeMove(move);
+                if (!attacking || game.isInCheck(game.getTeamTurn())) {
+                    list.set(count, move);
+                    childKeys[ply][count++] = key(game, attacker, childMovesLeft);
+                }
+                game.unmakeMove();
+            }
+            return count;
+        }
+
+        /**
+         * Records a position whose result is already known
+         *
+         * @param moverWins whether the team to move gets its way: the attacker mates, or the defender escapes
+         */
+        private void settle(long key, boolean moverWins) {
+            phi = moverWins ? 0 : INFINITY;
+            delta = moverWins ? INFINITY : 0;
+            store(key, phi, delta);
+        }
+    }
+}
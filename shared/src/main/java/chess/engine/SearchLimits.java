@@ -0,0 +1,35 @@
+package chess.engine;
+
+/**
+ * How far a search may go before it returns its best move so far
+ *
+ * @param depth      the deepest iteration to search, in plies
+ * @param timeMillis the time the search may take, or 0 for no time limit
+ * @param nodes      the positions the search may visit, or 0 for no node limit
+ */
+public record SearchLimits(int depth, long timeMillis, long nodes) {
+    public static final int MAX_DEPTH = Searcher.MAX_PLY - 1;
+
+    public SearchLimits {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+        }
+        if (timeMillis < 0 || nodes < 0) {
+            throw new IllegalArgumentException("Limits cannot be negative");
+        }
+    }
+
+    /**
+     * @return Limits that search to the given depth, however long it takes
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    /**
+     * @return Limits that search as deep as they can in the given time
+     */
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(MAX_DEPTH, timeMillis, 0);
+    }
+}
@@ -0,0 +1,45 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * What a search found
+ *
+ * @param bestMove           the move to play, or null if the side to move has no legal moves
+ * @param score              the value of the position for the side to move, in centipawns, or
+ *                           within {@link #MAX_MATE_PLY} of {@link #MATE} when a forced mate was found
+ * @param depth              the deepest iteration that finished
+ * @param nodes              the positions visited
+ * @param timeMillis         how long the search took
+ * @param principalVariation the line both sides are expected to play, starting with bestMove
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes, long timeMillis,
+                           List<ChessMove> principalVariation) {
+    public static final int MATE = 32000;
+    public static final int MAX_MATE_PLY = Searcher.MAX_PLY;
+
+    /**
+     * @return True if the score is a forced mate, for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= MATE - MAX_MATE_PLY;
+    }
+
+    /**
+     * @return The moves until mate, positive when the side to move mates and negative when it is mated,
+     * or 0 if the score is not a mate
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    public long nodesPerSecond() {
+        return timeMillis == 0 ? nodes * 1000 : nodes * 1000 / timeMillis;
+    }
+}
@@ -0,0 +1,375 @@
+package chess.engine;
+
+import chess.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One thread's iterative deepening principal variation search over its own copy of a game
+ */
+final class Searcher {
+    static final int MAX_PLY = 100;
+    private static final int INFINITY = SearchResult.MATE + 1;
+    private static final int ASPIRATION_WINDOW = 50;
+    // How many nodes to visit between looking at the clock and the stop signal
+    private static final int CHECK_INTERVAL = 1024;
+
+    // Move ordering: the transposition table's move, captures by victim then attacker, promotions,
+    // killer moves, then quiet moves by history
+    private static final int TABLE_MOVE_SCORE = 2_000_000;
+    private static final int CAPTURE_SCORE = 1_000_000;
+    private static final int PROMOTION_SCORE = 900_000;
+    private static final int KILLER_SCORE = 800_000;
+    private static final int HISTORY_LIMIT = 500_000;
+
+    private final ChessGame game;
+    private final TranspositionTable table;
+    private final AtomicBoolean stopSignal;
+    private final long deadline;
+    private final long maxNodes;
+
+    private long nodes = 0;
+    private boolean stopped = false;
+    private int completedDepth = 0;
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[][] moveScores = new int[MAX_PLY + 1][256];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    // Indexed by team, then start square * 64 + end square
+    private final int[][] history = new int[2][64 * 64];
+    // Triangular table of the best line found from each ply
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    /**
+     * @param game       the game to search; it is changed while searching and put back afterward
+     * @param deadline   the System.nanoTime() to stop at, or Long.MAX_VALUE for none
+     * @param maxNodes   the nodes to stop at, or 0 for no limit
+     */
+    Searcher(ChessGame game, TranspositionTable table, AtomicBoolean stopSignal, long deadline, long maxNodes) {
+        this.game = game;
+        this.table = table;
+        this.stopSignal = stopSignal;
+        this.deadline = deadline;
+        this.maxNodes = maxNodes;
+        for (int ply = 0; ply <= MAX_PLY; ++ply) {
+            moveLists[ply] = new MoveList(256);
+        }
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Searches one iteration deeper at a time until the depth is reached or the search is stopped.
+     * The time and node limits only apply once the first iteration is done, so there is always a move
+     *
+     * @param firstDepth the first iteration to search; helper threads start at different depths so they
+     *                   spread out over the tree instead of repeating each other's work
+     * @return The result of the last iteration that finished
+     */
+    SearchResult run(int firstDepth, int maxDepth, long startNanos) {
+        int[] bestLine = new int[0];
+        int bestScore = 0;
+        int score = 0;
+        for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; ++depth) {
+            int alpha = -INFINITY;
+            int beta = INFINITY;
+            // Expect about the same score as last time, and widen the window if it is wrong
+            if (depth >= 4 && Math.abs(score) < SearchResult.MATE - MAX_PLY) {
+                alpha = score - ASPIRATION_WINDOW;
+                beta = score + ASPIRATION_WINDOW;
+            }
+            while (true) {
+                score = negamax(depth, 0, alpha, beta);
+                if (stopped || (score > alpha && score < beta)) {
+                    break;
+                }
+                if (score <= alpha) {
+                    alpha = -INFINITY;
+                } else {
+                    beta = INFINITY;
+                }
+            }
+            if (stopped) {
+                break;
+            }
+            completedDepth = depth;
+            bestScore = score;
+            bestLine = Arrays.copyOf(pv[0], pvLength[0]);
+            // A mate this close cannot get any closer by searching deeper
+            if (bestLine.length == 0 || SearchResult.MATE - Math.abs(score) <= depth) {
+                break;
+            }
+        }
+
+        if (bestLine.length == 0 && completedDepth == 0) {
+            // Stopped by the signal before finishing one iteration, so fall back to any legal move
+            MoveList moves = new MoveList();
+            game.legalMoves(moves);
+            bestLine = moves.isEmpty() ? new int[0] : new int[]{moves.get(0)};
+        }
+        List<ChessMove> line = new ArrayList<>(bestLine.length);
+        for (int move : bestLine) {
+            line.add(Move.toChessMove(move));
+        }
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        return new SearchResult(line.isEmpty() ? null : line.get(0), bestScore, completedDepth, nodes, elapsedMillis, line);
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (ply > 0 && isDraw()) {
+            return 0;
+        }
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        // Look one move further when in check, where there are few replies and tactics hide
+        if (inCheck) {
+            ++depth;
+        }
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluator.evaluate(game);
+        }
+        if (shouldStop()) {
+            return 0;
+        }
+        ++nodes;
+
+        boolean pvNode = beta - alpha > 1;
+        long key = game.positionKey();
+        long entry = table.probe(key);
+        int tableMove = Move.NONE;
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry, ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT ||
+                        (bound == TranspositionTable.LOWER && score >= beta) ||
+                        (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        game.legalMoves(moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -SearchResult.MATE + ply : 0;
+        }
+        scoreMoves(ply, moves, tableMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < moves.size(); ++i) {
+            int move = pickMove(ply, moves, i);
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+            game.makeMove(move);
+            boolean givesCheck = game.isInCheck(game.getTeamTurn());
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                // Late quiet moves are rarely best, so search them shallower first
+                int reduction = 0;
+                if (quiet && !inCheck && !givesCheck && depth >= 3 && i >= 3 &&
+                        move != killers[ply][0] && move != killers[ply][1]) {
+                    reduction = i >= 8 && depth >= 6 ? 2 : 1;
+                }
+                // Prove the move is no better than the first with a null window, then search it fully if it is
+                score = -negamax(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && reduction > 0) {
+                    score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                }
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            game.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (quiet) {
+                            recordCutoff(ply, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, bestScore, depth, bound, ply);
+        return bestScore;
+    }
+
+    /**
+     * Searches captures and promotions until the position is quiet, so the evaluation is not taken
+     * in the middle of an exchange
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (ply >= MAX_PLY) {
+            return Evaluator.evaluate(game);
+        }
+        if (shouldStop()) {
+            return 0;
+        }
+        ++nodes;
+
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            // The side to move can usually do at least as well as standing still
+            bestScore = Evaluator.evaluate(game);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        MoveList moves = moveLists[ply];
+        moves.clear();
+        game.legalMoves(moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -SearchResult.MATE + ply : 0;
+        }
+        scoreMoves(ply, moves, Move.NONE);
+
+        for (int i = 0; i < moves.size(); ++i) {
+            int move = pickMove(ply, moves, i);
+            // Captures and promotions sort first, so the rest are all quiet; only check evasions need them
+            if (!inCheck && !Move.isCapture(move) && !Move.isPromotion(move)) {
+                break;
+            }
+            game.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private boolean isDraw() {
+        return game.getHalfmoveClock() >= 100 || game.isInsufficientMaterial() || game.repetitions() > 0;
+    }
+
+    private boolean shouldStop() {
+        if (stopped) {
+            return true;
+        }
+        if (nodes % CHECK_INTERVAL == 0) {
+            if (stopSignal.get()) {
+                stopped = true;
+            } else if (completedDepth > 0 && (System.nanoTime() >= deadline || (maxNodes > 0 && nodes >= maxNodes))) {
+                stopped = true;
+                stopSignal.set(true);
+            }
+        }
+        return stopped;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    private void recordCutoff(int ply, int move, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] teamHistory = history[game.getTeamTurn().ordinal()];
+        int index = Move.from(move) * 64 + Move.to(move);
+        teamHistory[index] += depth * depth;
+        if (teamHistory[index] > HISTORY_LIMIT) {
+            // Halve everything so recent cutoffs count for more than old ones
+            for (int i = 0; i < teamHistory.length; ++i) {
+                teamHistory[i] /= 2;
+            }
+        }
+    }
+
+    private void scoreMoves(int ply, MoveList moves, int tableMove) {
+        ChessBoard board = game.getBoard();
+        int[] scores = moveScores[ply];
+        int[] teamHistory = history[game.getTeamTurn().ordinal()];
+        for (int i = 0; i < moves.size(); ++i) {
+            int move = moves.get(i);
+            int score;
+            if (move == tableMove) {
+                score = TABLE_MOVE_SCORE;
+            } else if (Move.isCapture(move)) {
+                // Most valuable victim first, then least valuable attacker
+                int victim = Move.isEnPassant(move) ? Evaluator.PIECE_VALUES[ChessPiece.PieceType.PAWN.ordinal()]
+                        : Evaluator.PIECE_VALUES[board.getPiece(ChessPosition.fromSquare(Move.to(move))).getPieceType().ordinal()];
+                ChessPiece.PieceType attacker = board.getPiece(ChessPosition.fromSquare(Move.from(move))).getPieceType();
+                int attackerValue = attacker == ChessPiece.PieceType.KING ? 1000 : Evaluator.PIECE_VALUES[attacker.ordinal()];
+                score = CAPTURE_SCORE + victim * 16 - attackerValue / 8;
+                if (Move.isPromotion(move)) {
+                    score += Evaluator.PIECE_VALUES[Move.promotion(move).ordinal()];
+                }
+            } else if (Move.isPromotion(move)) {
+                score = PROMOTION_SCORE + Evaluator.PIECE_VALUES[Move.promotion(move).ordinal()];
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORE;
+            } else {
+                score = teamHistory[Move.from(move) * 64 + Move.to(move)];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Moves the best scored of the remaining moves to the given index and returns it
+     */
+    private int pickMove(int ply, MoveList moves, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); ++i) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            moves.swap(index, best);
+            int score = scores[index];
+            scores[index] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(index);
+    }
+}
@@ -0,0 +1,141 @@
+package chess.engine;
+
+import chess.Move;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size table of search results keyed by position key, shared by every thread searching a game
+ * <p>
+ * Each entry is two longs: the data, and the key XORed with the data. Threads read and write without
+ * locking; an entry half overwritten by another thread no longer XORs back to its key and reads as a miss.
+ * Entries sit in buckets of two: the first slot keeps the deepest result, the second always takes the newest.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    // The score is at least the stored score
+    public static final int LOWER = 2;
+    // The score is at most the stored score
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+
+    // Layout of an entry's data
+    private static final long MOVE_MASK = 0xFFFFF;
+    private static final int SCORE_SHIFT = 20;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int AGE_SHIFT = 46;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private volatile int age = 0;
+
+    /**
+     * @param megabytes the memory to use, rounded down to a power of two number of entries
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("The table needs at least 1 MB");
+        }
+        long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = (int) Math.min(entries, 1 << 30);
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return The number of entries the table holds
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Marks entries from earlier searches as replaceable, without clearing them
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * @return The entry stored for the key, or 0 if there is none
+     */
+    public long probe(long key) {
+        int index = (int) key & mask & ~1;
+        for (int slot = index; slot <= index + 1; ++slot) {
+            long entry = data[slot];
+            if ((keys[slot] ^ entry) == key && entry != 0) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param move  the best move found, or Move.NONE
+     * @param score the score, with mates counted from the root
+     * @param ply   how far the position is from the root, to store mates counted from the position instead
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        if (score >= SearchResult.MATE - SearchResult.MAX_MATE_PLY) {
+            score += ply;
+        } else if (score <= -SearchResult.MATE + SearchResult.MAX_MATE_PLY) {
+            score -= ply;
+        }
+        int index = (int) key & mask & ~1;
+        long existing = data[index];
+        boolean sameKey = (keys[index] ^ existing) == key;
+        int slot = index;
+        if (existing != 0 && !sameKey && ageOf(existing) == age && depth(existing) > depth) {
+            // Keep the deeper result from this search, the second slot takes this one
+            slot = index + 1;
+        } else if (sameKey && move == Move.NONE) {
+            // Do not forget the best move of a shallower search of the same position
+            move = move(existing);
+        }
+        long entry = (move & MOVE_MASK) |
+                ((long) (score & 0xFFFF) << SCORE_SHIFT) |
+                ((long) Math.min(depth, 0xFF) << DEPTH_SHIFT) |
+                ((long) bound << BOUND_SHIFT) |
+                ((long) age << AGE_SHIFT);
+        data[slot] = entry;
+        keys[slot] = key ^ entry;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & MOVE_MASK);
+    }
+
+    /**
+     * @param ply how far the position is from the root, to count mates from the root again
+     */
+    public static int score(long entry, int ply) {
+        int score = (short) (entry >>> SCORE_SHIFT);
+        if (score >= SearchResult.MATE - SearchResult.MAX_MATE_PLY) {
+            return score - ply;
+        } else if (score <= -SearchResult.MATE + SearchResult.MAX_MATE_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int ageOf(long entry) {
+        return (int) ((entry >>> AGE_SHIFT) & 0xFF);
+    }
+}
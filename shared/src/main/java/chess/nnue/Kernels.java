@@ -0,0 +1,31 @@
+package chess.nnue;
+
+/**
+ * The int16 arithmetic of the network, so it can run with the Vector API where that is available
+ */
+interface Kernels {
+    /**
+     * accumulator[i] += weights[offset + i] for every i
+     */
+    void add(short[] accumulator, short[] weights, int offset);
+
+    /**
+     * accumulator[i] -= weights[offset + i] for every i
+     */
+    void subtract(short[] accumulator, short[] weights, int offset);
+
+    /**
+     * @return The sum over i of clamp(us[i], 0, QA) * weights[i] + clamp(them[i], 0, QA) * weights[n + i]
+     */
+    int output(short[] us, short[] them, short[] weights);
+
+    /**
+     * @return The Vector API kernels if the jdk.incubator.vector module is loaded, otherwise the scalar ones
+     */
+    static Kernels best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return VectorKernels.INSTANCE;
+        }
+        return ScalarKernels.INSTANCE;
+    }
+}
@@ -0,0 +1,142 @@
+package chess.nnue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * The quantized weights of a small evaluation network: 768 piece-square inputs, one hidden layer seen from
+ * each side, and a single output.
+ * <p>
+ * An input is a piece of one color and type on one square, seen from one side: from black's side the colors
+ * swap and the board flips, so both sides share the same weights. Each side's hidden layer (its accumulator)
+ * is the sum of the weight rows of the inputs present, plus a bias. The output clamps both accumulators to
+ * [0, {@link #QA}], the side to move first, and takes their dot product with the output weights.
+ * <p>
+ * The weight file is little-endian:
+ * <pre>
+ *   int   MAGIC, int VERSION, int hiddenSize
+ *   short featureWeights[768 * hiddenSize]   one row of hiddenSize per input
+ *   short featureBiases[hiddenSize]
+ *   short outputWeights[2 * hiddenSize]      side to move first
+ *   int   outputBias
+ * </pre>
+ */
+public final class Network {
+    public static final int INPUTS = 768;
+    // Accumulator values are clamped to [0, QA] before the output layer, and output weights are scaled by QB
+    public static final int QA = 255;
+    public static final int QB = 64;
+    // Converts the network's output to centipawns
+    public static final int SCALE = 400;
+
+    private static final int MAGIC = 0x45554E43; // "CNUE"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    final int hiddenSize;
+    final short[] featureWeights;
+    final short[] featureBiases;
+    final short[] outputWeights;
+    final int outputBias;
+
+    private Network(int hiddenSize, short[] featureWeights, short[] featureBiases, short[] outputWeights, int outputBias) {
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    /**
+     * Reads a weight file
+     *
+     * @throws IOException if the file cannot be read or is not a network of this format
+     */
+    public static Network load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a network file: " + path);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a network file: " + path);
+            }
+            int hiddenSize = buffer.getInt();
+            if (hiddenSize < 1 || size != fileSize(hiddenSize)) {
+                throw new IOException("Network file has the wrong size: " + path);
+            }
+            short[] featureWeights = new short[INPUTS * hiddenSize];
+            short[] featureBiases = new short[hiddenSize];
+            short[] outputWeights = new short[2 * hiddenSize];
+            buffer.asShortBuffer().get(featureWeights);
+            buffer.position(buffer.position() + featureWeights.length * 2);
+            buffer.asShortBuffer().get(featureBiases);
+            buffer.position(buffer.position() + featureBiases.length * 2);
+            buffer.asShortBuffer().get(outputWeights);
+            buffer.position(buffer.position() + outputWeights.length * 2);
+            return new Network(hiddenSize, featureWeights, featureBiases, outputWeights, buffer.getInt());
+        }
+    }
+
+    /**
+     * Writes the network in the format {@link #load(Path)} reads
+     */
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize(hiddenSize)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hiddenSize);
+        for (short weight : featureWeights) {
+            buffer.putShort(weight);
+        }
+        for (short bias : featureBiases) {
+            buffer.putShort(bias);
+        }
+        for (short weight : outputWeights) {
+            buffer.putShort(weight);
+        }
+        buffer.putInt(outputBias).flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Makes an untrained network with small random weights, for measuring speed and testing the arithmetic
+     */
+    public static Network random(int hiddenSize, long seed) {
+        if (hiddenSize < 1) {
+            throw new IllegalArgumentException("A network needs at least one hidden neuron");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        short[] featureWeights = new short[INPUTS * hiddenSize];
+        short[] featureBiases = new short[hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        // Small enough that 32 pieces cannot overflow an accumulator
+        for (int i = 0; i < featureWeights.length; ++i) {
+            featureWeights[i] = (short) random.nextInt(-64, 65);
+        }
+        for (int i = 0; i < featureBiases.length; ++i) {
+            featureBiases[i] = (short) random.nextInt(0, QA + 1);
+        }
+        for (int i = 0; i < outputWeights.length; ++i) {
+            outputWeights[i] = (short) random.nextInt(-QB, QB + 1);
+        }
+        return new Network(hiddenSize, featureWeights, featureBiases, outputWeights, random.nextInt(-1000, 1001));
+    }
+
+    private static long fileSize(int hiddenSize) {
+        return HEADER_BYTES + 2L * (INPUTS * (long) hiddenSize + hiddenSize + 2L * hiddenSize) + 4;
+    }
+}
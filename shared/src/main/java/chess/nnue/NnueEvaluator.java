@@ -0,0 +1,149 @@
+package chess.nnue;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Scores positions with a {@link Network}, an alternative to ChessGame.evaluate()
+ * <p>
+ * The evaluator remembers which pieces its accumulators hold. Scoring a position only adds and subtracts
+ * the weight rows of the pieces that moved, appeared or were captured since the last position it scored, so
+ * following one game through makeMove and unmakeMove touches two to four rows per move. A position too
+ * different from the last, like a new game, is refreshed from scratch.
+ * <p>
+ * An evaluator is not thread safe; give each searching thread its own. They can share one Network.
+ */
+public class NnueEvaluator {
+    // Past this many changed pieces a refresh is cheaper than the updates
+    private static final int MAX_UPDATES = 16;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private final Network network;
+    private final Kernels kernels;
+    // Indexed by the perspective's TeamColor ordinal
+    private final short[][] accumulators;
+    // The bitboards of the pieces the accumulators hold, by color * 6 + type
+    private final long[] bitboards = new long[12];
+    private boolean initialized = false;
+
+    public NnueEvaluator(Network network) {
+        this(network, true);
+    }
+
+    /**
+     * @param vectorized whether to use the Vector API if the jdk.incubator.vector module is loaded
+     */
+    public NnueEvaluator(Network network, boolean vectorized) {
+        this.network = network;
+        this.kernels = vectorized ? Kernels.best() : ScalarKernels.INSTANCE;
+        this.accumulators = new short[2][network.hiddenSize];
+    }
+
+    /**
+     * @return Whether the Vector API kernels are in use
+     */
+    public boolean isVectorized() {
+        return kernels != ScalarKernels.INSTANCE;
+    }
+
+    /**
+     * Scores the position, updating the accumulators from the last position scored
+     *
+     * @return The score in centipawns for the team whose turn it is; positive is good for them
+     */
+    public int evaluate(ChessGame game) {
+        update(game.getBoard());
+        return output(game.getTeamTurn());
+    }
+
+    /**
+     * Scores the position after rebuilding the accumulators from every piece on the board
+     *
+     * @return The same score as {@link #evaluate(ChessGame)}
+     */
+    public int evaluateFromScratch(ChessGame game) {
+        refresh(game.getBoard());
+        return output(game.getTeamTurn());
+    }
+
+    private int output(ChessGame.TeamColor teamTurn) {
+        short[] us = accumulators[teamTurn.ordinal()];
+        short[] them = accumulators[1 - teamTurn.ordinal()];
+        long sum = kernels.output(us, them, network.outputWeights) + (long) network.outputBias;
+        return (int) (sum * Network.SCALE / (Network.QA * Network.QB));
+    }
+
+    private void update(ChessBoard board) {
+        if (!initialized) {
+            refresh(board);
+            return;
+        }
+        int changes = 0;
+        for (int index = 0; index < 12; ++index) {
+            changes += Long.bitCount(bitboards[index] ^ board.getBitboard(color(index), type(index)));
+        }
+        if (changes > MAX_UPDATES) {
+            refresh(board);
+            return;
+        }
+        // Subtract first so no accumulator ever holds more pieces than a real position
+        for (int index = 0; index < 12; ++index) {
+            long current = board.getBitboard(color(index), type(index));
+            long removed = bitboards[index] & ~current;
+            while (removed != 0) {
+                int square = Long.numberOfTrailingZeros(removed);
+                kernels.subtract(accumulators[0], network.featureWeights, row(ChessGame.TeamColor.WHITE, index, square));
+                kernels.subtract(accumulators[1], network.featureWeights, row(ChessGame.TeamColor.BLACK, index, square));
+                removed &= removed - 1;
+            }
+        }
+        for (int index = 0; index < 12; ++index) {
+            long current = board.getBitboard(color(index), type(index));
+            long added = current & ~bitboards[index];
+            while (added != 0) {
+                int square = Long.numberOfTrailingZeros(added);
+                kernels.add(accumulators[0], network.featureWeights, row(ChessGame.TeamColor.WHITE, index, square));
+                kernels.add(accumulators[1], network.featureWeights, row(ChessGame.TeamColor.BLACK, index, square));
+                added &= added - 1;
+            }
+            bitboards[index] = current;
+        }
+    }
+
+    private void refresh(ChessBoard board) {
+        for (short[] accumulator : accumulators) {
+            System.arraycopy(network.featureBiases, 0, accumulator, 0, accumulator.length);
+        }
+        for (int index = 0; index < 12; ++index) {
+            long pieces = board.getBitboard(color(index), type(index));
+            bitboards[index] = pieces;
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                kernels.add(accumulators[0], network.featureWeights, row(ChessGame.TeamColor.WHITE, index, square));
+                kernels.add(accumulators[1], network.featureWeights, row(ChessGame.TeamColor.BLACK, index, square));
+                pieces &= pieces - 1;
+            }
+        }
+        initialized = true;
+    }
+
+    /**
+     * @return Where the weight row of a piece on a square starts, seen from the given side. From black's side
+     * the colors swap and the board flips, so the same weights serve both
+     */
+    private int row(ChessGame.TeamColor perspective, int index, int square) {
+        int input = perspective == ChessGame.TeamColor.WHITE
+                ? index * 64 + square
+                : ((index + 6) % 12) * 64 + (square ^ 56);
+        return input * network.hiddenSize;
+    }
+
+    private static ChessGame.TeamColor color(int index) {
+        return index < 6 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    private static ChessPiece.PieceType type(int index) {
+        return TYPES[index % 6];
+    }
+}
@@ -0,0 +1,36 @@
+package chess.nnue;
+
+/**
+ * Plain loops, which work on any JVM
+ */
+final class ScalarKernels implements Kernels {
+    static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels() {
+    }
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; ++i) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; ++i) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int output(short[] us, short[] them, short[] weights) {
+        int n = us.length;
+        int sum = 0;
+        for (int i = 0; i < n; ++i) {
+            sum += Math.clamp(us[i], 0, Network.QA) * weights[i];
+            sum += Math.clamp(them[i], 0, Network.QA) * weights[n + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,79 @@
+package chess.nnue;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels on the Vector API. Only referenced once Kernels.best() has seen the incubator module, since
+ * loading this class without it fails
+ */
+final class VectorKernels implements Kernels {
+    static final VectorKernels INSTANCE = new VectorKernels();
+
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    // The same width as SHORTS, so each short vector widens into two int vectors
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .add(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; ++i) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(accumulator.length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; ++i) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int output(short[] us, short[] them, short[] weights) {
+        int n = us.length;
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = SHORTS.loopBound(n); i < bound; i += SHORTS.length()) {
+            sum = sum.add(dot(us, i, weights, i)).add(dot(them, i, weights, n + i));
+        }
+        int total = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < n; ++i) {
+            total += Math.clamp(us[i], 0, Network.QA) * weights[i];
+            total += Math.clamp(them[i], 0, Network.QA) * weights[n + i];
+        }
+        return total;
+    }
+
+    /**
+     * Clamps one vector of accumulator values and multiplies it by the weights, widening to ints first since
+     * the products do not fit in shorts
+     */
+    private static IntVector dot(short[] accumulator, int index, short[] weights, int weightIndex) {
+        ShortVector clamped = ShortVector.fromArray(SHORTS, accumulator, index)
+                .max((short) 0)
+                .min((short) Network.QA);
+        ShortVector weight = ShortVector.fromArray(SHORTS, weights, weightIndex);
+        IntVector low = ((IntVector) clamped.convertShape(VectorOperators.S2I, INTS, 0))
+                .mul((IntVector) weight.convertShape(VectorOperators.S2I, INTS, 0));
+        IntVector high = ((IntVector) clamped.convertShape(VectorOperators.S2I, INTS, 1))
+                .mul((IntVector) weight.convertShape(VectorOperators.S2I, INTS, 1));
+        return low.add(high);
+    }
+}
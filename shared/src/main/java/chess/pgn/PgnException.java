@@ -0,0 +1,23 @@
+package chess.pgn;
+
+import java.io.IOException;
+
+/**
+ * A game in a PGN file that cannot be read, like one with a move that is not legal. The reader has already
+ * moved past the game, so the next one can still be read
+ */
+public class PgnException extends IOException {
+    private final long lineNumber;
+
+    public PgnException(String message, long lineNumber) {
+        super("Line " + lineNumber + ": " + message);
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * @return The line of the file the problem is on, counting from 1
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+}
@@ -0,0 +1,27 @@
+package chess.pgn;
+
+import chess.ChessGame;
+
+import java.util.Map;
+
+/**
+ * One game read from a PGN file
+ *
+ * @param tags   the tag pairs in file order, like Event, White and Result
+ * @param game   the game with every move of the main line made, so its move history can be replayed or taken
+ *               back to the starting position given by the FEN tag, or the standard one
+ * @param result 1-0, 0-1, 1/2-1/2, or * for a game still going or whose result is unknown
+ */
+public record PgnGame(Map<String, String> tags, ChessGame game, String result) {
+    public static final String WHITE_WINS = "1-0";
+    public static final String BLACK_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+    public static final String UNKNOWN = "*";
+
+    /**
+     * @return The value of a tag, or null if the game does not have it
+     */
+    public String tag(String name) {
+        return tags.get(name);
+    }
+}
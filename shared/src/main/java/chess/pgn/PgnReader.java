@@ -0,0 +1,450 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.MoveList;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Reads games from Portable Game Notation (PGN) one at a time, so files of any size are read in the memory
+ * of a few games
+ * <p>
+ * Each game's tag pairs are kept and its main line is played out on a {@link ChessGame}, resolving every SAN
+ * move against the legal moves of the position. Comments, variations, numeric annotations and escape lines
+ * are skipped. A game that cannot be read throws a {@link PgnException} and is passed over, so the games
+ * after it can still be read.
+ * <p>
+ * Splitting the file into games only looks for tag lines, so {@link #readAll(int, Consumer, Consumer)} can do
+ * that on one thread and hand the move resolution, which is most of the work, to others.
+ */
+public class PgnReader implements Closeable {
+    /**
+     * The longest game text read; longer games are skipped so a broken file cannot use up memory
+     */
+    public static final int MAX_GAME_CHARS = 1 << 20;
+
+    // Games parsed or waiting to be, for each worker in readAll
+    private static final int GAMES_PER_WORKER = 8;
+
+    private final BufferedReader in;
+    // The first line of the next game, read while looking for the end of the last one
+    private String pendingLine;
+    private long lineNumber;
+
+    private record GameText(String text, long firstLine) {
+    }
+
+    public PgnReader(Reader reader) {
+        this.in = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+    }
+
+    /**
+     * Opens a PGN file. It is read as UTF-8, and bytes that are not UTF-8 are read as a replacement character
+     */
+    public static PgnReader open(Path file) throws IOException {
+        return new PgnReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The next game, or null at the end of the file
+     * @throws PgnException if the next game cannot be read; the one after it can still be
+     */
+    public PgnGame next() throws IOException {
+        GameText text = nextGameText();
+        return text == null ? null : parse(text);
+    }
+
+    /**
+     * Reads every game left, parsing them on a pool of worker threads while this thread reads the file. At
+     * most a few games per worker are held at once, however long the file is
+     *
+     * @param threads how many threads parse games; 1 parses on this thread
+     * @param games   given each game, in file order, on this thread
+     * @param errors  given the problem with each game that cannot be read, on this thread
+     * @throws IOException if the file cannot be read
+     */
+    public void readAll(int threads, Consumer<PgnGame> games, Consumer<PgnException> errors) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Reading needs at least one thread");
+        }
+        if (threads == 1) {
+            while (true) {
+                try {
+                    PgnGame game = next();
+                    if (game == null) {
+                        return;
+                    }
+                    games.accept(game);
+                } catch (PgnException ex) {
+                    errors.accept(ex);
+                }
+            }
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+                runnable -> Thread.ofPlatform().daemon().name("pgn-worker-" + threadCount.incrementAndGet()).unstarted(runnable));
+        // Handed out in file order, so a slow game holds back the ones behind it rather than reordering them
+        ArrayDeque<Future<PgnGame>> parsing = new ArrayDeque<>();
+        try {
+            while (true) {
+                GameText text;
+                try {
+                    text = nextGameText();
+                } catch (PgnException ex) {
+                    errors.accept(ex);
+                    continue;
+                }
+                if (text == null) {
+                    break;
+                }
+                if (parsing.size() == threads * GAMES_PER_WORKER) {
+                    deliver(parsing.poll(), games, errors);
+                }
+                parsing.add(pool.submit(() -> parse(text)));
+            }
+            while (!parsing.isEmpty()) {
+                deliver(parsing.poll(), games, errors);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static void deliver(Future<PgnGame> parsed, Consumer<PgnGame> games, Consumer<PgnException> errors) throws IOException {
+        try {
+            games.accept(parsed.get());
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof PgnException pgnException) {
+                errors.accept(pgnException);
+            } else if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else {
+                throw new IOException(ex.getCause());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading games");
+        }
+    }
+
+    /**
+     * Reads the lines of the next game: its tag pairs, and its movetext up to the next tag line outside a
+     * comment
+     *
+     * @return The game's text, or null at the end of the file
+     */
+    private GameText nextGameText() throws IOException {
+        StringBuilder text = new StringBuilder();
+        long firstLine = -1;
+        boolean inMoves = false;
+        boolean inComment = false;
+        boolean tooLong = false;
+        while (true) {
+            String line = pendingLine;
+            pendingLine = null;
+            if (line == null) {
+                line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+                if (++lineNumber == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+            }
+            boolean tagLine = !inComment && line.startsWith("[");
+            if (tagLine && inMoves) {
+                pendingLine = line;
+                break;
+            }
+            // Escape lines hold data for other programs
+            if (!inComment && line.startsWith("%")) {
+                continue;
+            }
+            if (firstLine < 0) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                firstLine = lineNumber;
+            }
+            if (!tagLine) {
+                inMoves |= !line.isBlank();
+                inComment = commentOpenAfter(line, inComment);
+            }
+            tooLong |= text.length() + line.length() >= MAX_GAME_CHARS;
+            if (!tooLong) {
+                text.append(line).append('\n');
+            }
+        }
+        if (firstLine < 0) {
+            return null;
+        }
+        if (tooLong) {
+            throw new PgnException("Game is longer than " + MAX_GAME_CHARS + " characters", firstLine);
+        }
+        return new GameText(text.toString(), firstLine);
+    }
+
+    /**
+     * @return Whether a brace comment is still open at the end of the line
+     */
+    private static boolean commentOpenAfter(String line, boolean inComment) {
+        for (int i = 0; i < line.length(); ++i) {
+            char c = line.charAt(i);
+            if (inComment) {
+                inComment = c != '}';
+            } else if (c == '{') {
+                inComment = true;
+            } else if (c == ';') {
+                // The rest of the line is a comment
+                return false;
+            }
+        }
+        return inComment;
+    }
+
+    private static PgnGame parse(GameText gameText) throws PgnException {
+        return new GameParser(gameText.text(), gameText.firstLine()).parse();
+    }
+
+    /**
+     * Reads the tags and main line of one game's text
+     */
+    private static final class GameParser {
+        private final String text;
+        private final Map<String, String> tags = new LinkedHashMap<>();
+        private final MoveList moves = new MoveList();
+        private ChessGame game;
+        private int position;
+        private long line;
+
+        private GameParser(String text, long firstLine) {
+            this.text = text;
+            this.line = firstLine;
+        }
+
+        private PgnGame parse() throws PgnException {
+            String result = null;
+            while (result == null) {
+                skipSpace();
+                if (position == text.length()) {
+                    break;
+                }
+                char c = text.charAt(position);
+                if (c == '[') {
+                    if (game != null) {
+                        throw error("Tag pair after the moves");
+                    }
+                    readTag();
+                } else if (c == '{') {
+                    skipComment();
+                } else if (c == ';') {
+                    skipLine();
+                } else if (c == '(') {
+                    skipVariation();
+                } else if (c == ')' || c == '}') {
+                    throw error("Unmatched '" + c + "'");
+                } else if (c == '$') {
+                    ++position;
+                    readToken();
+                } else {
+                    result = readMoveOrResult();
+                }
+            }
+            startGame();
+            if (result == null) {
+                result = tags.getOrDefault("Result", PgnGame.UNKNOWN);
+            }
+            return new PgnGame(tags, game, result);
+        }
+
+        private void readTag() throws PgnException {
+            ++position;
+            skipSpace();
+            int nameStart = position;
+            while (position < text.length() && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+                ++position;
+            }
+            String name = text.substring(nameStart, position);
+            skipSpace();
+            if (name.isEmpty() || position == text.length() || text.charAt(position) != '"') {
+                throw error("Tag pair needs a name and a quoted value");
+            }
+            ++position;
+            StringBuilder value = new StringBuilder();
+            while (position < text.length() && text.charAt(position) != '"') {
+                char c = text.charAt(position++);
+                if (c == '\\' && position < text.length()) {
+                    c = text.charAt(position++);
+                } else if (c == '\n') {
+                    throw error("Tag value runs past the end of its line");
+                }
+                value.append(c);
+            }
+            ++position;
+            skipSpace();
+            if (position >= text.length() || text.charAt(position) != ']') {
+                throw error("Tag pair is missing its ']'");
+            }
+            ++position;
+            tags.put(name, value.toString());
+        }
+
+        /**
+         * @return The game's result if the token ends the game, otherwise null
+         */
+        private String readMoveOrResult() throws PgnException {
+            String token = readToken();
+            switch (token) {
+                case PgnGame.WHITE_WINS, PgnGame.BLACK_WINS, PgnGame.DRAW, PgnGame.UNKNOWN -> {
+                    return token;
+                }
+                default -> {
+                }
+            }
+            // A move number like 12. or 12... may run into the move after it
+            int san = 0;
+            while (san < token.length() && Character.isDigit(token.charAt(san))) {
+                ++san;
+            }
+            if (san < token.length() && token.charAt(san) == '.') {
+                while (san < token.length() && token.charAt(san) == '.') {
+                    ++san;
+                }
+            } else {
+                san = 0;
+            }
+            // Annotations written apart from their move, like "e4 !?"
+            boolean annotation = true;
+            for (int i = san; i < token.length(); ++i) {
+                annotation &= token.charAt(i) == '!' || token.charAt(i) == '?';
+            }
+            if (!annotation) {
+                playMove(token.substring(san));
+            }
+            return null;
+        }
+
+        private void playMove(String san) throws PgnException {
+            startGame();
+            moves.clear();
+            game.legalMoves(moves);
+            try {
+                game.makeMove(San.decode(game, san, moves));
+            } catch (IllegalArgumentException ex) {
+                throw error(ex.getMessage());
+            }
+        }
+
+        /**
+         * Sets up the starting position once the tags are read
+         */
+        private void startGame() throws PgnException {
+            if (game != null) {
+                return;
+            }
+            String fen = tags.get("FEN");
+            if (fen == null) {
+                game = new ChessGame();
+                return;
+            }
+            try {
+                game = ChessGame.fromFen(fen);
+            } catch (IllegalArgumentException ex) {
+                throw error(ex.getMessage());
+            }
+        }
+
+        private String readToken() {
+            int start = position;
+            while (position < text.length() && !Character.isWhitespace(text.charAt(position))
+                    && "{}();[]$".indexOf(text.charAt(position)) < 0) {
+                ++position;
+            }
+            // A lone * or a symbol the loop stops on at once is a token of its own
+            if (position == start) {
+                ++position;
+            }
+            return text.substring(start, position);
+        }
+
+        private void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                if (text.charAt(position++) == '\n') {
+                    ++line;
+                }
+            }
+        }
+
+        private void skipLine() {
+            while (position < text.length() && text.charAt(position) != '\n') {
+                ++position;
+            }
+        }
+
+        private void skipComment() throws PgnException {
+            long start = line;
+            while (++position < text.length() && text.charAt(position) != '}') {
+                if (text.charAt(position) == '\n') {
+                    ++line;
+                }
+            }
+            if (position == text.length()) {
+                line = start;
+                throw error("Comment is never closed");
+            }
+            ++position;
+        }
+
+        private void skipVariation() throws PgnException {
+            long start = line;
+            int depth = 0;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c == '{') {
+                    skipComment();
+                    continue;
+                } else if (c == ';') {
+                    skipLine();
+                    continue;
+                } else if (c == '\n') {
+                    ++line;
+                } else if (c == '(') {
+                    ++depth;
+                } else if (c == ')' && --depth == 0) {
+                    ++position;
+                    return;
+                }
+                ++position;
+            }
+            line = start;
+            throw error("Variation is never closed");
+        }
+
+        private PgnException error(String message) {
+            return new PgnException(message, line);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.MoveList;
+import chess.dataModel.GameData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games in Portable Game Notation (PGN), the export format other chess programs read
+ * <p>
+ * The seven standard tags come first in their standard order, then any others. Moves are written in SAN and
+ * lines are kept under 80 characters.
+ */
+public final class PgnWriter {
+    private static final List<String> SEVEN_TAG_ROSTER = List.of("Event", "Site", "Date", "Round", "White", "Black", "Result");
+    private static final String STANDARD_START = new ChessGame().toFen();
+    private static final int MAX_LINE_LENGTH = 79;
+
+    private PgnWriter() {
+    }
+
+    /**
+     * Writes a game stored by the server. The players' usernames and the game's name fill in the tags, and
+     * the result comes from the final position. Games that ended by resignation are stored without who
+     * resigned, so their result is written as unknown
+     */
+    public static String write(GameData gameData) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", gameData.gameName());
+        tags.put("White", gameData.whiteUsername() == null ? "?" : gameData.whiteUsername());
+        tags.put("Black", gameData.blackUsername() == null ? "?" : gameData.blackUsername());
+        return write(tags, gameData.game());
+    }
+
+    /**
+     * @param tags tags to write; any of the seven standard tags left out are written as unknown, and Result is
+     *             worked out from the game if it is not given
+     * @param game the game to write, with its whole move history
+     */
+    public static String write(Map<String, String> tags, ChessGame game) {
+        StringBuilder pgn = new StringBuilder(512);
+        try {
+            write(tags, game, pgn);
+        } catch (IOException ex) {
+            // StringBuilder never throws
+            throw new UncheckedIOException(ex);
+        }
+        return pgn.toString();
+    }
+
+    /**
+     * Writes a game and the blank line that ends it, so games can be written one after another to a file
+     *
+     * @see #write(Map, ChessGame)
+     */
+    public static void write(Map<String, String> tags, ChessGame game, Appendable out) throws IOException {
+        // Take the moves back on a copy to find the position the game started from
+        ChessGame replay = new ChessGame(game);
+        while (replay.getHistorySize() > 0) {
+            replay.unmakeMove();
+        }
+        String startFen = replay.toFen();
+
+        Map<String, String> allTags = new LinkedHashMap<>();
+        for (String name : SEVEN_TAG_ROSTER) {
+            allTags.put(name, tags.getOrDefault(name, defaultTag(name)));
+        }
+        String result = tags.containsKey("Result") ? tags.get("Result") : result(game);
+        allTags.put("Result", result);
+        if (!startFen.equals(STANDARD_START)) {
+            allTags.put("SetUp", "1");
+            allTags.put("FEN", startFen);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            allTags.putIfAbsent(tag.getKey(), tag.getValue());
+        }
+        for (Map.Entry<String, String> tag : allTags.entrySet()) {
+            out.append('[').append(tag.getKey()).append(" \"").append(escape(tag.getValue())).append("\"]\n");
+        }
+        out.append('\n');
+
+        StringBuilder line = new StringBuilder(MAX_LINE_LENGTH + 16);
+        StringBuilder token = new StringBuilder(16);
+        MoveList legalMoves = new MoveList();
+        for (int ply = 0; ply < game.getHistorySize(); ++ply) {
+            int move = game.getHistoryMove(ply);
+            token.setLength(0);
+            if (replay.getTeamTurn() == ChessGame.TeamColor.WHITE) {
+                token.append(replay.getFullmoveNumber()).append(". ");
+            } else if (ply == 0) {
+                token.append(replay.getFullmoveNumber()).append("... ");
+            }
+            legalMoves.clear();
+            replay.legalMoves(legalMoves);
+            San.appendMove(replay, move, legalMoves, token);
+            replay.makeMove(move);
+            appendToken(line, token, out);
+        }
+        token.setLength(0);
+        token.append(result);
+        appendToken(line, token, out);
+        out.append(line).append("\n\n");
+    }
+
+    /**
+     * @return The result shown by the game's final position: a win for the side that gave checkmate, a draw if
+     * no more moves can be made or a draw rule applies, and otherwise unknown
+     */
+    public static String result(ChessGame game) {
+        ChessGame.GameStatus status = game.evaluateStatus();
+        if (status == ChessGame.GameStatus.CHECKMATE) {
+            return game.getTeamTurn() == ChessGame.TeamColor.WHITE ? PgnGame.BLACK_WINS : PgnGame.WHITE_WINS;
+        }
+        return status.isDraw() ? PgnGame.DRAW : PgnGame.UNKNOWN;
+    }
+
+    private static void appendToken(StringBuilder line, StringBuilder token, Appendable out) throws IOException {
+        if (!line.isEmpty() && line.length() + 1 + token.length() > MAX_LINE_LENGTH) {
+            out.append(line).append('\n');
+            line.setLength(0);
+        }
+        if (!line.isEmpty()) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+
+    private static String defaultTag(String name) {
+        return switch (name) {
+            case "Date" -> "????.??.??";
+            case "Round" -> "-";
+            case "Result" -> PgnGame.UNKNOWN;
+            default -> "?";
+        };
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,243 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Move;
+import chess.MoveList;
+
+/**
+ * Standard Algebraic Notation (SAN), the move format of PGN, like Nbd7, exd6, O-O-O or e8=Q#
+ * <p>
+ * Both directions work from the game's legal moves, so a piece letter and destination only name a move
+ * when exactly one legal move fits them, and disambiguation is written only when another piece of the same
+ * kind could reach the same square.
+ */
+public final class San {
+    // By PieceType ordinal
+    private static final String PIECE_LETTERS = "KQBNR";
+
+    private San() {
+    }
+
+    /**
+     * Writes a legal move of the team whose turn it is, with + or # if it gives check or checkmate. The move
+     * is made and taken back to find that out, so the game is left as it was
+     *
+     * @param move a packed move (see {@link Move}) from the game's legal moves
+     */
+    public static String encode(ChessGame game, int move) {
+        StringBuilder san = new StringBuilder(8);
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        appendMove(game, move, moves, san);
+        return san.toString();
+    }
+
+    /**
+     * Writes a move given the legal moves of the position, so a caller writing many moves can reuse the list
+     */
+    static void appendMove(ChessGame game, int move, MoveList legalMoves, StringBuilder san) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece.PieceType type = pieceTypeAt(game, from);
+        if (Move.isCastle(move)) {
+            san.append(to > from ? "O-O" : "O-O-O");
+        } else if (type == ChessPiece.PieceType.PAWN) {
+            if (Move.isCapture(move)) {
+                san.append(file(from)).append('x');
+            }
+            appendSquare(to, san);
+            if (Move.isPromotion(move)) {
+                san.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move).ordinal()));
+            }
+        } else {
+            san.append(PIECE_LETTERS.charAt(type.ordinal()));
+            appendDisambiguation(game, move, legalMoves, san);
+            if (Move.isCapture(move)) {
+                san.append('x');
+            }
+            appendSquare(to, san);
+        }
+
+        ChessGame.TeamColor opponent = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        game.makeMove(move);
+        if (game.isInCheck(opponent)) {
+            san.append(game.hasAnyLegalMove(opponent) ? '+' : '#');
+        }
+        game.unmakeMove();
+    }
+
+    /**
+     * Reads a move of the team whose turn it is. Check and checkmate marks, annotations like !? and a missing
+     * = before a promotion piece are accepted, and castling may be written with zeros
+     *
+     * @return The packed move (see {@link Move})
+     * @throws IllegalArgumentException if the text is not SAN, or names no legal move or more than one
+     */
+    public static int decode(ChessGame game, String san) {
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        return decode(game, san, moves);
+    }
+
+    /**
+     * Reads a move given the legal moves of the position, so a caller reading many moves can reuse the list
+     */
+    static int decode(ChessGame game, CharSequence san, MoveList legalMoves) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            --end;
+        }
+        if (end == 0) {
+            throw badSan(san, "empty move");
+        }
+
+        if (isCastling(san, end)) {
+            boolean kingSide = end == 3;
+            for (int i = 0; i < legalMoves.size(); ++i) {
+                int move = legalMoves.get(i);
+                if (Move.isCastle(move) && (Move.to(move) > Move.from(move)) == kingSide) {
+                    return move;
+                }
+            }
+            throw badSan(san, "castling is not legal");
+        }
+
+        // The promotion piece, with or without =
+        ChessPiece.PieceType promotion = null;
+        int promotionIndex = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+        if (promotionIndex > 0) {
+            promotion = ChessPiece.PieceType.values()[promotionIndex];
+            --end;
+            if (end > 0 && san.charAt(end - 1) == '=') {
+                --end;
+            }
+        }
+
+        // The destination square is always the last two characters left
+        if (end < 2 || !isFile(san.charAt(end - 2)) || !isRank(san.charAt(end - 1))) {
+            throw badSan(san, "no destination square");
+        }
+        int to = (san.charAt(end - 1) - '1') * 8 + (san.charAt(end - 2) - 'a');
+        end -= 2;
+
+        // A piece letter, then any of a start file, a start rank and x
+        int start = 0;
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if (end > 0 && PIECE_LETTERS.indexOf(san.charAt(0)) >= 0) {
+            type = ChessPiece.PieceType.values()[PIECE_LETTERS.indexOf(san.charAt(0))];
+            start = 1;
+        }
+        if (end > start && (san.charAt(end - 1) == 'x' || san.charAt(end - 1) == ':')) {
+            --end;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end; ++i) {
+            char c = san.charAt(i);
+            if (isFile(c) && fromFile < 0 && fromRank < 0) {
+                fromFile = c - 'a';
+            } else if (isRank(c) && fromRank < 0) {
+                fromRank = c - '1';
+            } else if (c != '-') {
+                throw badSan(san, "unexpected '" + c + "'");
+            }
+        }
+        if (promotion != null && type != ChessPiece.PieceType.PAWN) {
+            throw badSan(san, "only pawns promote");
+        }
+
+        int found = Move.NONE;
+        for (int i = 0; i < legalMoves.size(); ++i) {
+            int move = legalMoves.get(i);
+            int from = Move.from(move);
+            if (Move.to(move) != to || Move.promotion(move) != promotion || Move.isCastle(move)
+                    || (fromFile >= 0 && (from & 7) != fromFile) || (fromRank >= 0 && (from >>> 3) != fromRank)
+                    || pieceTypeAt(game, from) != type) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                throw badSan(san, "more than one legal move fits");
+            }
+            found = move;
+        }
+        if (found == Move.NONE) {
+            throw badSan(san, "no legal move fits");
+        }
+        return found;
+    }
+
+    private static void appendDisambiguation(ChessGame game, int move, MoveList legalMoves, StringBuilder san) {
+        int from = Move.from(move);
+        ChessPiece.PieceType type = pieceTypeAt(game, from);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < legalMoves.size(); ++i) {
+            int other = legalMoves.get(i);
+            int otherFrom = Move.from(other);
+            if (Move.to(other) != Move.to(move) || otherFrom == from || pieceTypeAt(game, otherFrom) != type) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= (otherFrom & 7) == (from & 7);
+            sameRank |= (otherFrom >>> 3) == (from >>> 3);
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            san.append(file(from));
+        } else if (!sameRank) {
+            san.append(rank(from));
+        } else {
+            appendSquare(from, san);
+        }
+    }
+
+    private static boolean isCastling(CharSequence san, int end) {
+        if (end != 3 && end != 5) {
+            return false;
+        }
+        char letter = san.charAt(0);
+        if (letter != 'O' && letter != '0') {
+            return false;
+        }
+        for (int i = 0; i < end; ++i) {
+            if (san.charAt(i) != (i % 2 == 0 ? letter : '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ChessPiece.PieceType pieceTypeAt(ChessGame game, int square) {
+        ChessPiece piece = game.getBoard().getPiece(ChessPosition.fromSquare(square));
+        return piece == null ? null : piece.getPieceType();
+    }
+
+    private static void appendSquare(int square, StringBuilder san) {
+        san.append(file(square)).append(rank(square));
+    }
+
+    private static char file(int square) {
+        return (char) ('a' + (square & 7));
+    }
+
+    private static char rank(int square) {
+        return (char) ('1' + (square >>> 3));
+    }
+
+    private static boolean isFile(char c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(char c) {
+        return c >= '1' && c <= '8';
+    }
+
+    private static IllegalArgumentException badSan(CharSequence san, String reason) {
+        return new IllegalArgumentException("Invalid SAN, " + reason + ": " + san);
+    }
+}
@@ -6,65 +6,101 @@ import java.util.Collection;
 import java.util.HashSet;
 
 public class PawnMoves extends PieceMoves {
+    private static final long LAST_ROWS = 0xFF000000000000FFL;
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.QUEEN
+    };
+
+    // Best first, so searches try the queen before the rest
+    private static final ChessPiece.PieceType[] PACKED_PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP
+    };
+
     public PawnMoves(ChessBoard board, ChessPosition pos, ChessGame.TeamColor color) {
         super(board, pos, color);
     }
 
-    private HashSet<ChessMove> addPromotions(ChessMove move) {
-        ChessPosition endPosition = move.getEndPosition();
-        HashSet<ChessMove> moves = new HashSet<ChessMove>();
-        if ((color == ChessGame.TeamColor.WHITE && endPosition.getRow() == 8) || (color == ChessGame.TeamColor.BLACK && endPosition.getRow() == 1)) {
-            for (var piece: new ChessPiece.PieceType[]{
-                    ChessPiece.PieceType.ROOK,
-                    ChessPiece.PieceType.KNIGHT,
-                    ChessPiece.PieceType.BISHOP,
-                    ChessPiece.PieceType.QUEEN}) {
-                moves.add(new ChessMove(move.getStartPosition(), endPosition, piece));
+    /**
+     * Adds a move from the start position to each target square, expanding moves onto
+     * the first or last row into one move per promotion piece
+     *
+     * @param moves the buffer to add the moves to
+     */
+    public static void addMoves(Collection<ChessMove> moves, ChessPosition start, long targets) {
+        PieceMoves.addMoves(moves, start, targets & ~LAST_ROWS);
+        long promotions = targets & LAST_ROWS;
+        while (promotions != 0) {
+            ChessPosition end = ChessPosition.fromSquare(Long.numberOfTrailingZeros(promotions));
+            for (var piece : PROMOTIONS) {
+                moves.add(new ChessMove(start, end, piece));
             }
+            promotions &= promotions - 1;
         }
-        else {
-            moves.add(move);
+    }
+
+    /**
+     * Adds a packed move from the start square to each target square, flagging captures and double moves
+     * and expanding moves onto the first or last row into one move per promotion piece
+     *
+     * @param moves   the buffer to add the moves to
+     * @param enemies the squares holding enemy pieces
+     */
+    public static void addMoves(MoveList moves, int from, long targets, long enemies) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int flags = (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0;
+            if (Math.abs(to - from) == 16) {
+                flags |= Move.DOUBLE_PUSH;
+            }
+            if ((LAST_ROWS & (1L << to)) != 0) {
+                for (var piece : PACKED_PROMOTIONS) {
+                    moves.add(Move.encode(from, to, piece, flags));
+                }
+            } else {
+                moves.add(Move.encode(from, to, null, flags));
+            }
+            targets &= targets - 1;
         }
-        return moves;
     }
 
     @Override
-    public Collection<ChessMove> getMoves() {
-        HashSet<ChessMove> moves = new HashSet<>();
-        int direction = color == ChessGame.TeamColor.WHITE ? 1 : -1;
+    public long getTargets() {
+        return targets(board, square, color);
+    }
 
-        // Forward movement
-        ChessPosition forwardPosition = new ChessPosition(pos.getRow() + direction, pos.getColumn());
-        if (ChessBoard.validTile(forwardPosition) && board.getPiece(forwardPosition) == null) {
-            ChessMove move = new ChessMove(pos, forwardPosition, null);
-            moves.addAll(addPromotions(move));
-        }
+    public static long targets(ChessBoard board, int square, ChessGame.TeamColor color) {
+        ChessGame.TeamColor enemyColor = color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long empty = ~board.getOccupied();
+        long pawn = 1L << square;
+        int row = square / 8 + 1;
 
-        // Diagonal captures
-        for (ChessPosition diagonalPosition: new ChessPosition[] {
-                new ChessPosition(pos.getRow() + direction, pos.getColumn() - 1),
-                new ChessPosition(pos.getRow() + direction, pos.getColumn() + 1)
-        }) {
-            if (
-                    ChessBoard.validTile(diagonalPosition) &&
-                    board.getPiece(diagonalPosition) != null &&
-                    board.getPiece(diagonalPosition).getTeamColor() != this.color
-            ) {
-                ChessMove move = new ChessMove(pos, diagonalPosition, null);
-                moves.addAll(addPromotions(move));
-            }
-        }
+        // Forward movement
+        long forward = (color == ChessGame.TeamColor.WHITE ? pawn << 8 : pawn >>> 8) & empty;
 
         // If first move, Pawn can optionally move two squares
-        ChessPosition forwardTwoPosition = new ChessPosition(pos.getRow() + (2 * direction), pos.getColumn());
+        long forwardTwo = 0;
         if (
-                (color == ChessGame.TeamColor.WHITE && pos.getRow() == 2) ||
-                (color == ChessGame.TeamColor.BLACK && pos.getRow() == 7)
+                (color == ChessGame.TeamColor.WHITE && row == 2) ||
+                (color == ChessGame.TeamColor.BLACK && row == 7)
         ) {
-            if (board.getPiece(forwardPosition) == null && board.getPiece(forwardTwoPosition) == null) {
-                moves.add(new ChessMove(pos, forwardTwoPosition, null));
-            }
+            forwardTwo = (color == ChessGame.TeamColor.WHITE ? forward << 8 : forward >>> 8) & empty;
         }
+
+        // Diagonal captures
+        long captures = Attacks.pawnAttacks(color, square) & board.getTeamBitboard(enemyColor);
+        return forward | forwardTwo | captures;
+    }
+
+    @Override
+    public Collection<ChessMove> getMoves() {
+        HashSet<ChessMove> moves = new HashSet<>();
+        addMoves(moves, pos, getTargets());
         return moves;
     }
 }
@@ -4,6 +4,8 @@ import chess.ChessBoard;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPosition;
+import chess.Move;
+import chess.MoveList;
 
 import java.util.Collection;
 import java.util.HashSet;
@@ -12,39 +14,50 @@ public abstract class PieceMoves {
     protected ChessBoard board;
     protected ChessPosition pos;
     protected ChessGame.TeamColor color;
+    protected int square;
 
     public PieceMoves(ChessBoard board, ChessPosition pos, ChessGame.TeamColor color) {
         this.board = board;
         this.pos = pos;
         this.color = color;
+        this.square = pos.getSquare();
     }
 
-    protected HashSet<ChessMove> findMovesInDirection(int[] direction) {
-        int row = pos.getRow() + direction[0];
-        int col = pos.getColumn() + direction[1];
-        HashSet<ChessMove> moves = new HashSet<ChessMove>();
-
-        while (ChessBoard.validTile(new ChessPosition(row, col))) {
-            ChessPosition endPosition = new ChessPosition(row, col);
-            // If spot taken by ally, do not add and stop adding that direction to moves
-            if (board.getPiece(endPosition) != null && board.getPiece(endPosition).getTeamColor() == color) {
-                break;
-            }
-            moves.add(new ChessMove(pos, endPosition, null));
-            // If spot is an enemy, capture and stop adding that direction to moves
-            if (board.getPiece(endPosition) != null) {
-                break;
-            }
-            row += direction[0];
-            col += direction[1];
+    /**
+     * Adds a move from the start position to each target square, using the shared ChessMove instances
+     *
+     * @param moves the buffer to add the moves to
+     */
+    public static void addMoves(Collection<ChessMove> moves, ChessPosition start, long targets) {
+        int from = start.getSquare();
+        while (targets != 0) {
+            moves.add(ChessMove.of(from, Long.numberOfTrailingZeros(targets)));
+            targets &= targets - 1;
         }
-        return moves;
     }
 
-    protected boolean invalidTargetTile(ChessPosition endPosition) {
-        return !ChessBoard.validTile(endPosition) ||
-                (board.getPiece(endPosition) != null && board.getPiece(endPosition).getTeamColor() == color);
+    /**
+     * Adds a packed move from the start square to each target square, flagging captures
+     *
+     * @param moves   the buffer to add the moves to
+     * @param enemies the squares holding enemy pieces
+     */
+    public static void addMoves(MoveList moves, int from, long targets, long enemies) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            moves.add(Move.encode(from, to, null, (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0));
+            targets &= targets - 1;
+        }
     }
 
-    public abstract Collection<ChessMove> getMoves();
+    /**
+     * @return A mask of every square the piece can move to, not counting moves that leave the King in danger
+     */
+    public abstract long getTargets();
+
+    public Collection<ChessMove> getMoves() {
+        HashSet<ChessMove> moves = new HashSet<>();
+        addMoves(moves, pos, getTargets());
+        return moves;
+    }
 }
@@ -0,0 +1,294 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The pieces of one table, like KQKR: the white King and its pieces, then the black King and its pieces
+ * <p>
+ * Each table only holds one orientation. The side with more, or stronger, pieces is white, so KRKQ is
+ * looked up in KQKR with the colors swapped and the board flipped.
+ * <p>
+ * A position's index is its side to move and the square of each piece, in table order: white King, black
+ * King, white pieces, black pieces. Every index names exactly one placement, so the table needs no search
+ * and no stored keys. The board is mirrored left to right when the white King stands on files e-h, which
+ * halves the table; castling is never possible in a table position, so the mirror image plays the same.
+ * Indexes of impossible placements, like two pieces on one square, or two Rooks listed out of square
+ * order, stay in the table marked illegal.
+ */
+final class Material {
+    // A side's pieces are listed strongest first
+    private static final String LETTERS = "QRBNP";
+    private static final ChessPiece.PieceType[] TYPES = {
+            ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.PAWN
+    };
+    // King squares on files a-d
+    private static final int KING_SLOTS = 32;
+    // How many signatures there are: up to two pieces of each of five kinds for each side
+    static final int SIGNATURES = 59049;
+
+    final String name;
+    final int pieceCount;
+    // By slot, in table order
+    final ChessGame.TeamColor[] colors;
+    final ChessPiece.PieceType[] types;
+    // How many indexes the table has
+    final int size;
+
+    private Material(String whitePieces, String blackPieces) {
+        this.name = "K" + whitePieces + "K" + blackPieces;
+        this.pieceCount = 2 + whitePieces.length() + blackPieces.length();
+        this.colors = new ChessGame.TeamColor[pieceCount];
+        this.types = new ChessPiece.PieceType[pieceCount];
+        colors[0] = ChessGame.TeamColor.WHITE;
+        types[0] = ChessPiece.PieceType.KING;
+        colors[1] = ChessGame.TeamColor.BLACK;
+        types[1] = ChessPiece.PieceType.KING;
+        int slot = 2;
+        for (char letter : whitePieces.toCharArray()) {
+            colors[slot] = ChessGame.TeamColor.WHITE;
+            types[slot++] = TYPES[LETTERS.indexOf(letter)];
+        }
+        for (char letter : blackPieces.toCharArray()) {
+            colors[slot] = ChessGame.TeamColor.BLACK;
+            types[slot++] = TYPES[LETTERS.indexOf(letter)];
+        }
+        this.size = 2 * KING_SLOTS << (6 * (pieceCount - 1));
+    }
+
+    /**
+     * Parses a name like KQKR, in any piece order or orientation
+     *
+     * @throws IllegalArgumentException if it is not two Kings with up to {@link Tablebase#MAX_PIECES} pieces
+     */
+    static Material of(String name) {
+        String upper = name.toUpperCase();
+        int blackKing = upper.indexOf('K', 1);
+        if (!upper.startsWith("K") || blackKing < 0) {
+            throw new IllegalArgumentException("Not a material name like KQKR: " + name);
+        }
+        String white = sort(upper.substring(1, blackKing), name);
+        String black = sort(upper.substring(blackKing + 1), name);
+        if (2 + white.length() + black.length() > Tablebase.MAX_PIECES) {
+            throw new IllegalArgumentException("Tables hold at most " + Tablebase.MAX_PIECES + " pieces: " + name);
+        }
+        return compareSides(white, black) >= 0 ? new Material(white, black) : new Material(black, white);
+    }
+
+    /**
+     * @return A number for how many pieces of each kind the board holds, white's first; the same number as
+     * {@link #signature(boolean)} of the table holding the position
+     */
+    static int signature(ChessBoard board) {
+        int signature = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : TYPES) {
+                // No kind can have more than two pieces beside the Kings
+                signature = signature * 3 + Long.bitCount(board.getBitboard(color, type));
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @param flipped whether to count the table's black pieces as white
+     * @return The signature of the boards this table holds, or holds with the colors swapped if flipped
+     */
+    int signature(boolean flipped) {
+        int signature = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : TYPES) {
+                int count = 0;
+                for (int slot = 2; slot < pieceCount; ++slot) {
+                    if (types[slot] == type && (colors[slot] == color) != flipped) {
+                        ++count;
+                    }
+                }
+                signature = signature * 3 + count;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @return Every table a capture or promotion can lead to from this one, leaving out two bare Kings
+     */
+    List<Material> successors() {
+        String white = name.substring(1, name.indexOf('K', 1));
+        String black = name.substring(name.indexOf('K', 1) + 1);
+        Set<String> names = new LinkedHashSet<>();
+        for (String capturedWhite : withOneRemoved(white)) {
+            names.add("K" + capturedWhite + "K" + black);
+        }
+        for (String capturedBlack : withOneRemoved(black)) {
+            names.add("K" + white + "K" + capturedBlack);
+        }
+        // A promotion, with or without a capture
+        for (String promotedWhite : withOnePromoted(white)) {
+            names.add("K" + promotedWhite + "K" + black);
+            for (String capturedBlack : withOneRemoved(black)) {
+                names.add("K" + promotedWhite + "K" + capturedBlack);
+            }
+        }
+        for (String promotedBlack : withOnePromoted(black)) {
+            names.add("K" + white + "K" + promotedBlack);
+            for (String capturedWhite : withOneRemoved(white)) {
+                names.add("K" + capturedWhite + "K" + promotedBlack);
+            }
+        }
+        List<Material> successors = new ArrayList<>();
+        for (String successor : names) {
+            if (!successor.equals("KK")) {
+                successors.add(of(successor));
+            }
+        }
+        return successors;
+    }
+
+    /**
+     * Reads the square of each piece of the board in table order, flipping the board if the table is
+     * oriented the other way
+     *
+     * @param squares filled with the square of each slot
+     */
+    void squaresOf(ChessBoard board, boolean flipped, int[] squares) {
+        long pieces = 0;
+        for (int slot = 0; slot < pieceCount; ++slot) {
+            // Pieces of one kind take consecutive slots; index() puts them in square order
+            if (slot == 0 || !sameKind(slot - 1, slot)) {
+                pieces = board.getBitboard(flipped ? opponent(colors[slot]) : colors[slot], types[slot]);
+            }
+            int square = Long.numberOfTrailingZeros(pieces);
+            squares[slot] = flipped ? square ^ 56 : square;
+            pieces &= pieces - 1;
+        }
+    }
+
+    /**
+     * Computes the index of a placement, mirroring it and sorting pieces of one kind into square order first
+     *
+     * @param squares the square of each slot; changed in place to the placement the index names
+     * @param turn    0 for white to move, 1 for black
+     */
+    int index(int[] squares, int turn) {
+        if ((squares[0] & 7) >= 4) {
+            for (int slot = 0; slot < pieceCount; ++slot) {
+                squares[slot] ^= 7;
+            }
+        }
+        for (int slot = 3; slot < pieceCount; ++slot) {
+            for (int other = slot; other > 2 && sameKind(other - 1, other) && squares[other - 1] > squares[other]; --other) {
+                int swap = squares[other];
+                squares[other] = squares[other - 1];
+                squares[other - 1] = swap;
+            }
+        }
+        int index = (squares[0] >>> 3) * 4 + (squares[0] & 7);
+        for (int slot = 1; slot < pieceCount; ++slot) {
+            index = index * 64 + squares[slot];
+        }
+        return index * 2 + turn;
+    }
+
+    /**
+     * Reads the placement an index names
+     *
+     * @param squares filled with the square of each slot
+     * @return 0 for white to move, 1 for black
+     */
+    int decode(int index, int[] squares) {
+        int turn = index & 1;
+        index >>>= 1;
+        for (int slot = pieceCount - 1; slot > 0; --slot) {
+            squares[slot] = index & 63;
+            index >>>= 6;
+        }
+        squares[0] = (index >>> 2) * 8 + (index & 3);
+        return turn;
+    }
+
+    /**
+     * @return Whether index() gives back the same placement, rather than another index for the same position
+     */
+    boolean isCanonical(int[] squares) {
+        for (int slot = 3; slot < pieceCount; ++slot) {
+            if (sameKind(slot - 1, slot) && squares[slot - 1] >= squares[slot]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean sameKind(int slot, int other) {
+        return colors[slot] == colors[other] && types[slot] == types[other];
+    }
+
+    private static String sort(String pieces, String name) {
+        StringBuilder sorted = new StringBuilder();
+        for (char letter : LETTERS.toCharArray()) {
+            for (char piece : pieces.toCharArray()) {
+                if (piece == letter) {
+                    sorted.append(letter);
+                }
+            }
+        }
+        if (sorted.length() != pieces.length()) {
+            throw new IllegalArgumentException("Not a material name like KQKR: " + name);
+        }
+        return sorted.toString();
+    }
+
+    /**
+     * Orders two sides' sorted pieces: more pieces first, then stronger pieces first
+     */
+    private static int compareSides(String white, String black) {
+        if (white.length() != black.length()) {
+            return Integer.compare(white.length(), black.length());
+        }
+        for (int i = 0; i < white.length(); ++i) {
+            int compare = Integer.compare(LETTERS.indexOf(black.charAt(i)), LETTERS.indexOf(white.charAt(i)));
+            if (compare != 0) {
+                return compare;
+            }
+        }
+        return 0;
+    }
+
+    private static List<String> withOneRemoved(String pieces) {
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < pieces.length(); ++i) {
+            removed.add(pieces.substring(0, i) + pieces.substring(i + 1));
+        }
+        return removed;
+    }
+
+    private static List<String> withOnePromoted(String pieces) {
+        List<String> promoted = new ArrayList<>();
+        int pawn = pieces.indexOf('P');
+        if (pawn >= 0) {
+            for (char promotion : "QRBN".toCharArray()) {
+                promoted.add(pieces.substring(0, pawn) + promotion + pieces.substring(pawn + 1));
+            }
+        }
+        return promoted;
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
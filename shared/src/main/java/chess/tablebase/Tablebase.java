@@ -0,0 +1,211 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.pieceRules.Attacks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Looks up endgames with few pieces in tables written by {@link TablebaseGenerator}
+ * <p>
+ * A directory holds one file per material, like KQKR.ctb: an 8 byte little-endian header of MAGIC and
+ * VERSION, then one byte per index (see {@link Material}) for the side to move: 0 for a draw, n from 1 to
+ * 126 for a win with mate in n plies, -(n + 1) for a loss with mate in n plies, and 127 for an illegal
+ * placement. Files are memory-mapped and read in place, so probes cost no heap beyond the pages they touch.
+ * <p>
+ * Tables ignore castling, en passant and the fifty move rule, so positions where castling or en passant is
+ * possible are not looked up. A tablebase is safe to share between threads.
+ */
+public class Tablebase {
+    public static final int MAX_PIECES = 4;
+    public static final String EXTENSION = ".ctb";
+
+    static final int HEADER_BYTES = 8;
+    private static final int MAGIC = 0x4C425443; // "CTBL"
+    private static final int VERSION = 1;
+
+    // Values of a table entry, from the side to move
+    static final byte DRAW = 0;
+    static final byte ILLEGAL = 127;
+    // Only while a table is being generated
+    static final byte UNKNOWN = -128;
+    static final int MAX_PLIES = 126;
+
+    // The mapped entries of each table, by material name
+    private final ConcurrentHashMap<String, ByteBuffer> tables = new ConcurrentHashMap<>();
+    // The table holding each material signature (see Material), in whichever orientation it is stored
+    private final AtomicReferenceArray<Lookup> lookups = new AtomicReferenceArray<>(Material.SIGNATURES);
+
+    private record Lookup(Material material, ByteBuffer entries, boolean flipped) {
+    }
+
+    Tablebase() {
+    }
+
+    /**
+     * Maps every table in a directory
+     *
+     * @throws IOException if a table cannot be read or is not a table of this format
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        Tablebase tablebase = new Tablebase();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                Material material = Material.of(fileName.substring(0, fileName.length() - EXTENSION.length()));
+                if (!fileName.equals(material.name + EXTENSION)) {
+                    throw new IOException("Table is not named for its material: " + file);
+                }
+                tablebase.add(material, map(file, material));
+            }
+        }
+        return tablebase;
+    }
+
+    /**
+     * @return The names of the tables loaded, like KQKR
+     */
+    public Set<String> materials() {
+        return new TreeSet<>(tables.keySet());
+    }
+
+    /**
+     * Looks up the game's current position
+     *
+     * @return The result for the team whose turn it is, or null if the position has more than
+     * {@link #MAX_PIECES} pieces, its table is not loaded, or castling or en passant is possible
+     */
+    public TablebaseResult probe(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        if (Long.bitCount(board.getOccupied()) > MAX_PIECES || canCastleOrTakeEnPassant(game)) {
+            return null;
+        }
+        byte value = value(board, game.getTeamTurn());
+        if (value == UNKNOWN || value == ILLEGAL) {
+            return null;
+        }
+        if (value == DRAW) {
+            return new TablebaseResult(TablebaseResult.Outcome.DRAW, 0);
+        }
+        return new TablebaseResult(isWin(value) ? TablebaseResult.Outcome.WIN : TablebaseResult.Outcome.LOSS, plies(value));
+    }
+
+    /**
+     * @return The table entry of a position with at most {@link #MAX_PIECES} pieces, DRAW for bare Kings,
+     * or UNKNOWN if its table is not loaded
+     */
+    byte value(ChessBoard board, ChessGame.TeamColor turn) {
+        int signature = Material.signature(board);
+        if (signature == 0) {
+            return DRAW;
+        }
+        Lookup lookup = lookups.get(signature);
+        if (lookup == null) {
+            return UNKNOWN;
+        }
+        Material material = lookup.material();
+        int[] squares = new int[material.pieceCount];
+        material.squaresOf(board, lookup.flipped(), squares);
+        int tableTurn = (turn == ChessGame.TeamColor.WHITE) != lookup.flipped() ? 0 : 1;
+        return lookup.entries().get(HEADER_BYTES + material.index(squares, tableTurn));
+    }
+
+    void add(Material material, ByteBuffer table) {
+        tables.put(material.name, table);
+        lookups.set(material.signature(true), new Lookup(material, table, true));
+        // A table whose two sides are the same serves both orientations unflipped
+        lookups.set(material.signature(false), new Lookup(material, table, false));
+    }
+
+    private static boolean canCastleOrTakeEnPassant(ChessGame game) {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            if (game.hasCastlingRight(color, true) || game.hasCastlingRight(color, false)) {
+                return true;
+            }
+        }
+        ChessPosition doubleMovedPawn = game.getEnPassantPawn();
+        if (doubleMovedPawn == null) {
+            return false;
+        }
+        long neighbors = Attacks.kingAttacks(doubleMovedPawn.getSquare()) & (0xFFL << ((doubleMovedPawn.getRow() - 1) * 8));
+        return (neighbors & game.getBoard().getBitboard(game.getTeamTurn(), ChessPiece.PieceType.PAWN)) != 0;
+    }
+
+    static Path path(Path directory, Material material) {
+        return directory.resolve(material.name + EXTENSION);
+    }
+
+    static ByteBuffer map(Path file, Material material) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_BYTES + (long) material.size) {
+                throw new IOException("Table has the wrong size: " + file);
+            }
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION) {
+                throw new IOException("Not a table file: " + file);
+            }
+            return table;
+        }
+    }
+
+    static void write(Path file, byte[] values) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(VERSION).flip();
+        ByteBuffer entries = ByteBuffer.wrap(values);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining() || entries.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, entries});
+            }
+        }
+    }
+
+    static byte win(int plies) {
+        return (byte) plies;
+    }
+
+    static byte loss(int plies) {
+        return (byte) -(plies + 1);
+    }
+
+    static boolean isWin(byte value) {
+        return value > 0 && value != ILLEGAL;
+    }
+
+    static boolean isLoss(byte value) {
+        return value < 0 && value != UNKNOWN;
+    }
+
+    /**
+     * @return The plies to mate of a win or loss
+     */
+    static int plies(byte value) {
+        return value > 0 ? value : -value - 1;
+    }
+
+    /**
+     * @return The value of a position for the team that moved into it, from its value for the team to move
+     */
+    static byte negate(byte value) {
+        if (isWin(value)) {
+            return loss(plies(value) + 1);
+        }
+        if (isLoss(value)) {
+            return win(plies(value) + 1);
+        }
+        return value;
+    }
+}
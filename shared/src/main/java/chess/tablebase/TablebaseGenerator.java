@@ -0,0 +1,440 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Move;
+import chess.MoveList;
+import chess.pieceRules.Attacks;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Builds the tables a {@link Tablebase} reads, by retrograde analysis
+ * <p>
+ * A table is solved in two steps. First every position is set up on a ChessGame and its legal moves are
+ * generated: checkmates and stalemates are scored straight away, and every capture or promotion is looked up
+ * in the smaller table it leads to, which is generated first. The rest of the moves stay inside the table and
+ * are only counted. Then the table is solved backward one ply at a time: every position lost in n plies makes
+ * each position that can move into it a win in n + 1, and every position won in n plies takes one from the
+ * count of each position that can move into it, which is lost once none of its moves are left. Moves are
+ * taken back with the attack tables, which is far cheaper than generating every position's moves each ply.
+ * Whatever is left unsolved at the end is a draw.
+ * <p>
+ * Both steps split the table into chunks that the worker threads take in turn. Entries of other chunks are
+ * only changed with atomic updates, so the threads never lock.
+ */
+public class TablebaseGenerator {
+    // Entries are updated atomically through the aligned int holding them, which every platform supports
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final Path directory;
+    private final int threads;
+    private final Tablebase tablebase;
+
+    /**
+     * @param directory where to write the tables; tables already in it are reused
+     * @param threads   how many worker threads to solve each table on
+     * @throws IOException if the directory cannot be created or holds a broken table
+     */
+    public TablebaseGenerator(Path directory, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Generating needs at least one thread");
+        }
+        this.directory = directory;
+        this.threads = threads;
+        Files.createDirectories(directory);
+        this.tablebase = Tablebase.open(directory);
+    }
+
+    /**
+     * Generates the table for a material, like KQKR, and every smaller table it leads to, skipping tables
+     * the directory already holds
+     *
+     * @throws IllegalArgumentException if the name is not two Kings with at most {@link Tablebase#MAX_PIECES} pieces
+     */
+    public void generate(String material) throws IOException {
+        generate(Material.of(material));
+    }
+
+    /**
+     * @return The tables generated or reused so far
+     */
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    private void generate(Material material) throws IOException {
+        if (tablebase.materials().contains(material.name)) {
+            return;
+        }
+        for (Material successor : material.successors()) {
+            generate(successor);
+        }
+        long start = System.nanoTime();
+        Path file = Tablebase.path(directory, material);
+        Tablebase.write(file, solve(material));
+        tablebase.add(material, Tablebase.map(file, material));
+        System.out.printf("%s: %,d positions in %.1f s%n", material, material.size, (System.nanoTime() - start) / 1e9);
+    }
+
+    private byte[] solve(Material material) {
+        byte[] values = new byte[material.size];
+        // How many moves of each unsolved position stay in the table and are not yet known to lose
+        byte[] counts = new byte[material.size];
+        // The best a position can do by a capture or promotion, or UNKNOWN if it has none
+        byte[] exits = new byte[material.size];
+        Arrays.fill(values, Tablebase.UNKNOWN);
+        Arrays.fill(exits, Tablebase.UNKNOWN);
+
+        // The last ply an exit will decide a position on, so solving does not stop before it
+        AtomicLong lastExit = new AtomicLong();
+        ThreadLocal<Setup> setups = ThreadLocal.withInitial(() -> new Setup(material));
+        inParallel(material.size, (from, to) -> {
+            long last = setups.get().score(from, to, values, counts, exits);
+            lastExit.accumulateAndGet(last, Math::max);
+            return 0;
+        });
+
+        ThreadLocal<int[][]> scratch = ThreadLocal.withInitial(() -> new int[2][material.pieceCount]);
+        for (int ply = 1; ; ++ply) {
+            if (ply > Tablebase.MAX_PLIES) {
+                throw new IllegalStateException(material + " has mates too long to store");
+            }
+            int currentPly = ply;
+            long solved = inParallel(material.size, (from, to) -> {
+                int[][] squares = scratch.get();
+                return solvePly(material, currentPly, from, to, values, counts, exits, squares[0], squares[1]);
+            });
+            if (solved == 0 && ply >= lastExit.get()) {
+                break;
+            }
+        }
+
+        for (int index = 0; index < values.length; ++index) {
+            if (values[index] == Tablebase.UNKNOWN) {
+                values[index] = Tablebase.DRAW;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Solves the positions decided at one ply: the ones that can move into a position solved the ply before,
+     * and the ones whose best exit wins or loses at this ply
+     *
+     * @return How many positions were solved
+     */
+    private static long solvePly(Material material, int ply, int from, int to, byte[] values, byte[] counts,
+                                 byte[] exits, int[] squares, int[] previous) {
+        long solved = 0;
+        for (int index = from; index < to; ++index) {
+            byte value = values[index];
+            if (value == Tablebase.UNKNOWN) {
+                byte exit = exits[index];
+                if (exit != Tablebase.UNKNOWN && Tablebase.plies(exit) == ply
+                        && (Tablebase.isWin(exit) || (Tablebase.isLoss(exit) && getVolatile(counts, index) == 0))
+                        && compareAndSet(values, index, Tablebase.UNKNOWN, exit)) {
+                    ++solved;
+                }
+            } else if ((Tablebase.isWin(value) || Tablebase.isLoss(value)) && Tablebase.plies(value) == ply - 1) {
+                int turn = material.decode(index, squares);
+                solved += solvePredecessors(material, ply, Tablebase.isLoss(value), turn, values, counts, exits,
+                        squares, previous);
+            }
+        }
+        return solved;
+    }
+
+    /**
+     * Takes back every move the other team could have made into a position solved last ply
+     *
+     * @param lost whether the position is lost for its team to move, making every predecessor a win
+     * @return How many predecessors were solved
+     */
+    private static long solvePredecessors(Material material, int ply, boolean lost, int turn, byte[] values,
+                                          byte[] counts, byte[] exits, int[] squares, int[] previous) {
+        long occupied = 0;
+        for (int slot = 0; slot < material.pieceCount; ++slot) {
+            occupied |= 1L << squares[slot];
+        }
+        ChessGame.TeamColor mover = turn == 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long solved = 0;
+        for (int slot = 0; slot < material.pieceCount; ++slot) {
+            if (material.colors[slot] != mover) {
+                continue;
+            }
+            long origins = origins(material.types[slot], mover, squares[slot], occupied);
+            while (origins != 0) {
+                System.arraycopy(squares, 0, previous, 0, material.pieceCount);
+                previous[slot] = Long.numberOfTrailingZeros(origins);
+                origins &= origins - 1;
+                int predecessor = material.index(previous, 1 - turn);
+                if (values[predecessor] == Tablebase.ILLEGAL) {
+                    continue;
+                }
+                if (lost) {
+                    if (compareAndSet(values, predecessor, Tablebase.UNKNOWN, Tablebase.win(ply))) {
+                        ++solved;
+                    }
+                } else if (getVolatile(values, predecessor) == Tablebase.UNKNOWN
+                        && decrement(counts, predecessor) == 0) {
+                    // Every move left in the table loses. It is lost now unless an exit holds out longer
+                    byte exit = exits[predecessor];
+                    if ((exit == Tablebase.UNKNOWN || (Tablebase.isLoss(exit) && Tablebase.plies(exit) <= ply))
+                            && compareAndSet(values, predecessor, Tablebase.UNKNOWN, Tablebase.loss(ply))) {
+                        ++solved;
+                    }
+                }
+            }
+        }
+        return solved;
+    }
+
+    private static byte getVolatile(byte[] entries, int index) {
+        return (byte) ((int) INTS.getVolatile(entries, index & ~3) >> shift(index));
+    }
+
+    private static boolean compareAndSet(byte[] entries, int index, byte expected, byte value) {
+        int shift = shift(index);
+        while (true) {
+            int word = (int) INTS.getVolatile(entries, index & ~3);
+            if ((byte) (word >> shift) != expected) {
+                return false;
+            }
+            int updated = (word & ~(0xFF << shift)) | ((value & 0xFF) << shift);
+            if (INTS.compareAndSet(entries, index & ~3, word, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes one from a count, which must be above 0 so the borrow cannot reach the next entry
+     *
+     * @return The new count
+     */
+    private static int decrement(byte[] counts, int index) {
+        int shift = shift(index);
+        return (byte) (((int) INTS.getAndAdd(counts, index & ~3, -(1 << shift)) >> shift) - 1);
+    }
+
+    private static int shift(int index) {
+        return (index & 3) * 8;
+    }
+
+    /**
+     * @return The squares a piece could have moved to its square from, without capturing or promoting
+     */
+    private static long origins(ChessPiece.PieceType type, ChessGame.TeamColor color, int square, long occupied) {
+        long empty = ~occupied;
+        return switch (type) {
+            case KING -> Attacks.kingAttacks(square) & empty;
+            case QUEEN -> Attacks.queenAttacks(square, occupied) & empty;
+            case ROOK -> Attacks.rookAttacks(square, occupied) & empty;
+            case BISHOP -> Attacks.bishopAttacks(square, occupied) & empty;
+            case KNIGHT -> Attacks.knightAttacks(square) & empty;
+            case PAWN -> {
+                int back = color == ChessGame.TeamColor.WHITE ? -8 : 8;
+                int row = square / 8;
+                // A pawn never stands on its first row, and only a pawn on its fourth row can have double moved
+                long origins = 0;
+                if (row != (color == ChessGame.TeamColor.WHITE ? 1 : 6) && (empty & (1L << (square + back))) != 0) {
+                    origins |= 1L << (square + back);
+                    if (row == (color == ChessGame.TeamColor.WHITE ? 3 : 4) && (empty & (1L << (square + 2 * back))) != 0) {
+                        origins |= 1L << (square + 2 * back);
+                    }
+                }
+                yield origins;
+            }
+        };
+    }
+
+    /**
+     * Runs a task over the indexes of a table in chunks, on the worker threads
+     *
+     * @param task given the start and end of a chunk, returns a count
+     * @return The sum of the counts
+     */
+    private long inParallel(int size, ChunkTask task) {
+        AtomicInteger nextChunk = new AtomicInteger();
+        LongAdder total = new LongAdder();
+        Runnable worker = () -> {
+            for (int chunk; (chunk = nextChunk.getAndIncrement()) * (long) CHUNK_SIZE < size; ) {
+                int from = chunk * CHUNK_SIZE;
+                total.add(task.run(from, Math.min(size, from + CHUNK_SIZE)));
+            }
+        };
+        Thread[] helperThreads = new Thread[threads - 1];
+        for (int i = 0; i < helperThreads.length; ++i) {
+            helperThreads[i] = Thread.ofPlatform().daemon().name("tablebase-worker-" + (i + 1)).start(worker);
+        }
+        worker.run();
+        for (Thread helper : helperThreads) {
+            try {
+                helper.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while generating", ex);
+            }
+        }
+        return total.sum();
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        long run(int from, int to);
+    }
+
+    /**
+     * One worker's board for setting up positions and scoring their moves
+     */
+    private final class Setup {
+        private final Material material;
+        private final ChessGame game = new ChessGame();
+        private final MoveList moves = new MoveList();
+        private final int[] squares;
+        // The pieces on the board, to take off before the next position
+        private final int[] placed;
+        private int placedCount = 0;
+
+        private Setup(Material material) {
+            this.material = material;
+            this.squares = new int[material.pieceCount];
+            this.placed = new int[material.pieceCount];
+            // No King or Rook on its first square, so castling is never possible
+            game.setBoard(new ChessBoard());
+        }
+
+        /**
+         * Scores the positions that are over and the moves that leave the table, and counts the rest
+         *
+         * @return The last ply an exit decides a position on
+         */
+        private long score(int from, int to, byte[] values, byte[] counts, byte[] exits) {
+            int lastExit = 0;
+            for (int index = from; index < to; ++index) {
+                int turn = material.decode(index, squares);
+                if (!isPlaceable()) {
+                    values[index] = Tablebase.ILLEGAL;
+                    continue;
+                }
+                ChessGame.TeamColor teamTurn = turn == 0 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                place(teamTurn);
+                if (game.isInCheck(teamTurn == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE)) {
+                    values[index] = Tablebase.ILLEGAL;
+                    continue;
+                }
+                moves.clear();
+                game.legalMoves(moves);
+                if (moves.isEmpty()) {
+                    values[index] = game.isInCheck(teamTurn) ? Tablebase.loss(0) : Tablebase.DRAW;
+                    continue;
+                }
+                int count = 0;
+                byte exit = Tablebase.UNKNOWN;
+                for (int i = 0; i < moves.size(); ++i) {
+                    int move = moves.get(i);
+                    if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                        ++count;
+                        continue;
+                    }
+                    game.makeMove(move);
+                    byte after = tablebase.value(game.getBoard(), game.getTeamTurn());
+                    game.unmakeMove();
+                    if (after == Tablebase.UNKNOWN) {
+                        throw new IllegalStateException("A table " + material + " leads to is missing");
+                    }
+                    exit = better(exit, Tablebase.negate(after));
+                }
+                counts[index] = (byte) count;
+                exits[index] = exit;
+                if (Tablebase.isWin(exit) || Tablebase.isLoss(exit)) {
+                    lastExit = Math.max(lastExit, Tablebase.plies(exit));
+                }
+            }
+            return lastExit;
+        }
+
+        /**
+         * @return Whether the squares are a placement the table keeps: no two pieces on a square, Kings apart,
+         * no pawn on the first or last row and pieces of one kind in square order
+         */
+        private boolean isPlaceable() {
+            long occupied = 0;
+            for (int slot = 0; slot < material.pieceCount; ++slot) {
+                long bit = 1L << squares[slot];
+                if ((occupied & bit) != 0) {
+                    return false;
+                }
+                occupied |= bit;
+                int row = squares[slot] / 8;
+                if (material.types[slot] == ChessPiece.PieceType.PAWN && (row == 0 || row == 7)) {
+                    return false;
+                }
+            }
+            return (Attacks.kingAttacks(squares[0]) & (1L << squares[1])) == 0 && material.isCanonical(squares);
+        }
+
+        private void place(ChessGame.TeamColor teamTurn) {
+            ChessBoard board = game.getBoard();
+            for (int i = 0; i < placedCount; ++i) {
+                board.addPiece(ChessPosition.fromSquare(placed[i]), null);
+            }
+            for (int slot = 0; slot < material.pieceCount; ++slot) {
+                board.addPiece(ChessPosition.fromSquare(squares[slot]), ChessPiece.of(material.colors[slot], material.types[slot]));
+                placed[slot] = squares[slot];
+            }
+            placedCount = material.pieceCount;
+            game.setTeamTurn(teamTurn);
+        }
+    }
+
+    /**
+     * @return The better of two results for the team to move: the fastest win, then a draw, then the
+     * slowest loss. UNKNOWN counts as no result
+     */
+    static byte better(byte first, byte second) {
+        if (first == Tablebase.UNKNOWN) {
+            return second;
+        }
+        return rank(second) > rank(first) ? second : first;
+    }
+
+    private static int rank(byte value) {
+        if (Tablebase.isWin(value)) {
+            return 1000 - Tablebase.plies(value);
+        }
+        if (Tablebase.isLoss(value)) {
+            return -1000 + Tablebase.plies(value);
+        }
+        return 0;
+    }
+
+    /**
+     * Generates tables from the command line: a directory, then materials like KQK KRK KPK.
+     * Set the number of threads with -Dchess.tablebase.threads, by default one per core
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: TablebaseGenerator <directory> <material>... (like KQK KRK KPK KQKR)");
+            return;
+        }
+        int threads = Integer.getInteger("chess.tablebase.threads", Runtime.getRuntime().availableProcessors());
+        TablebaseGenerator generator = new TablebaseGenerator(Path.of(args[0]), threads);
+        for (int i = 1; i < args.length; ++i) {
+            generator.generate(args[i]);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package chess.tablebase;
+
+/**
+ * What a tablebase knows about a position, for the team whose turn it is
+ *
+ * @param outcome the result with perfect play
+ * @param plies   half moves until checkmate with perfect play, the winner mating as fast as it can and the
+ *                loser holding out as long as it can; 0 for a draw or a team already checkmated
+ */
+public record TablebaseResult(Outcome outcome, int plies) {
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * @return Full moves until checkmate, counting the mating move, or 0 for a draw
+     */
+    public int movesToMate() {
+        return (plies + 1) / 2;
+    }
+}
@@ -0,0 +1,19 @@
+package webSocketMessages.serverMessages;
+
+import chess.book.BookMove;
+
+import java.util.List;
+
+public class BookMoves extends ServerMessage {
+    // Most played first; empty when the position is not in the book
+    private final List<BookMove> moves;
+
+    public BookMoves(List<BookMove> moves) {
+        super(ServerMessageType.BOOK_MOVES);
+        this.moves = moves;
+    }
+
+    public List<BookMove> getMoves() {
+        return moves;
+    }
+}
@@ -0,0 +1,33 @@
+package webSocketMessages.serverMessages;
+
+import chess.ChessMove;
+import chess.engine.MateResult;
+
+import java.util.List;
+
+public class MateSolution extends ServerMessage {
+    private final MateResult.Outcome outcome;
+    // The moves to mate when one was found; otherwise how many moves deep a mate was ruled out
+    private final int moves;
+    // Starts with the move to play; empty unless a mate was found
+    private final List<ChessMove> line;
+
+    public MateSolution(MateResult result) {
+        super(ServerMessageType.MATE_SOLUTION);
+        this.outcome = result.outcome();
+        this.moves = result.moves();
+        this.line = result.line();
+    }
+
+    public MateResult.Outcome getOutcome() {
+        return outcome;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public List<ChessMove> getLine() {
+        return line;
+    }
+}
@@ -14,7 +14,9 @@ public class ServerMessage {
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        BOOK_MOVES,
+        MATE_SOLUTION
     }
 
     public ServerMessage(ServerMessageType type) {
@@ -0,0 +1,22 @@
+package webSocketMessages.userCommands;
+
+public class FindMate extends UserGameCommand {
+    private final int gameID;
+    // The most moves the mate may take
+    private final int moves;
+
+    public FindMate(String authToken, int gameID, int moves) {
+        super(authToken);
+        this.gameID = gameID;
+        this.moves = moves;
+        this.commandType = CommandType.FIND_MATE;
+    }
+
+    public int getGameID() {
+        return gameID;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+}
@@ -0,0 +1,15 @@
+package webSocketMessages.userCommands;
+
+public class GetBookMoves extends UserGameCommand {
+    private final int gameID;
+
+    public GetBookMoves(String authToken, int gameID) {
+        super(authToken);
+        this.gameID = gameID;
+        this.commandType = CommandType.GET_BOOK_MOVES;
+    }
+
+    public int getGameID() {
+        return gameID;
+    }
+}
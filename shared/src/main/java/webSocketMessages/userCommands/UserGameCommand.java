@@ -19,7 +19,9 @@ public class UserGameCommand {
         JOIN_OBSERVER,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        GET_BOOK_MOVES,
+        FIND_MATE
     }
 
     protected CommandType commandType;
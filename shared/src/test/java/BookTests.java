@@ -0,0 +1,122 @@
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.book.BookMove;
+import chess.book.PolyglotBook;
+import chess.book.PolyglotKey;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookTests {
+    // The real Random64 table is not part of the repository, so these tests hash with their own
+    private static PolyglotKey keys;
+    private static Path bookFile;
+    private static ChessGame castlingGame;
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+
+    private static int polyglotMove(int fromRow, int fromCol, int toRow, int toCol) {
+        return ((fromRow - 1) << 9) | ((fromCol - 1) << 6) | ((toRow - 1) << 3) | (toCol - 1);
+    }
+
+    private record Entry(long key, int move, int weight) {
+    }
+
+    @BeforeAll
+    public static void writeBook() throws IOException, InvalidMoveException {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] randoms = new long[PolyglotKey.RANDOM_COUNT];
+        for (int i = 0; i < randoms.length; ++i) {
+            randoms[i] = random.nextLong();
+        }
+        // Round trip the table through the C array format the documentation prints it in
+        Path keysFile = Files.createTempFile("random64", ".txt");
+        StringBuilder text = new StringBuilder("const U64 Random64[781] = {\n");
+        for (long value : randoms) {
+            text.append(String.format("   U64(0x%016X),%n", value));
+        }
+        Files.writeString(keysFile, text.append("};\n"));
+        keys = PolyglotKey.load(keysFile);
+        Files.delete(keysFile);
+
+        castlingGame = new ChessGame();
+        castlingGame.makeMove(move(2, 5, 4, 5));
+        castlingGame.makeMove(move(7, 5, 5, 5));
+        castlingGame.makeMove(move(1, 7, 3, 6));
+        castlingGame.makeMove(move(8, 2, 6, 3));
+        castlingGame.makeMove(move(1, 6, 4, 3));
+        castlingGame.makeMove(move(8, 6, 5, 3));
+
+        long start = keys.key(new ChessGame());
+        List<Entry> entries = new ArrayList<>();
+        entries.add(new Entry(start, polyglotMove(2, 5, 4, 5), 30));
+        entries.add(new Entry(start, polyglotMove(2, 4, 4, 4), 10));
+        // Not a legal move, as from a key collision
+        entries.add(new Entry(start, polyglotMove(1, 1, 5, 1), 50));
+        // King takes own Rook is how Polyglot writes castling
+        entries.add(new Entry(keys.key(castlingGame), polyglotMove(1, 5, 1, 8), 1));
+        // Unrelated positions around them
+        for (int i = 0; i < 1000; ++i) {
+            entries.add(new Entry(random.nextLong(), polyglotMove(2, 1, 3, 1), 1));
+        }
+        entries.sort(Comparator.comparing(Entry::key, Long::compareUnsigned));
+
+        ByteBuffer buffer = ByteBuffer.allocate(entries.size() * 16);
+        for (Entry entry : entries) {
+            buffer.putLong(entry.key()).putShort((short) entry.move()).putShort((short) entry.weight()).putInt(0);
+        }
+        bookFile = Files.createTempFile("book", ".bin");
+        Files.write(bookFile, buffer.array());
+    }
+
+    @AfterAll
+    public static void deleteBook() throws IOException {
+        Files.delete(bookFile);
+    }
+
+    @Test
+    @DisplayName("Find Book Moves")
+    public void findMoves() throws IOException {
+        PolyglotBook book = PolyglotBook.open(bookFile, keys);
+        assertEquals(1004, book.size());
+
+        List<BookMove> moves = book.moves(new ChessGame());
+        assertEquals(List.of(new BookMove(move(2, 5, 4, 5), 30), new BookMove(move(2, 4, 4, 4), 10)), moves);
+        assertEquals(List.of(new BookMove(move(1, 5, 1, 7), 1)), book.moves(castlingGame));
+    }
+
+    @Test
+    @DisplayName("Position Not In Book")
+    public void notInBook() throws IOException, InvalidMoveException {
+        PolyglotBook book = PolyglotBook.open(bookFile, keys);
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 8, 4, 8));
+        assertTrue(book.moves(game).isEmpty());
+        assertNull(book.pick(game, new SplittableRandom(1)));
+    }
+
+    @Test
+    @DisplayName("Pick Moves By Weight")
+    public void pickByWeight() throws IOException {
+        PolyglotBook book = PolyglotBook.open(bookFile, keys);
+        SplittableRandom random = new SplittableRandom(3);
+        Map<ChessMove, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 4000; ++i) {
+            counts.merge(book.pick(new ChessGame(), random), 1, Integer::sum);
+        }
+        assertEquals(2, counts.size());
+        // e4 has three times the weight of d4
+        int e4 = counts.get(move(2, 5, 4, 5));
+        assertTrue(e4 > 2800 && e4 < 3200, "e4 picked " + e4 + " times");
+    }
+}
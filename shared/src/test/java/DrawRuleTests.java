@@ -0,0 +1,118 @@
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrawRuleTests {
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    /**
+     * Both Knights jump out and back, bringing the position back once
+     */
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        game.makeMove(move(1, 7, 3, 6));
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(3, 6, 1, 7));
+        game.makeMove(move(6, 6, 8, 7));
+    }
+
+    @Test
+    @DisplayName("Threefold Repetition")
+    public void repetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(0, game.repetitions());
+        shuffleKnights(game);
+        assertEquals(1, game.repetitions());
+        assertFalse(game.isThreefoldRepetition());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.evaluateStatus());
+
+        shuffleKnights(game);
+        assertEquals(2, game.repetitions());
+        assertTrue(game.isThreefoldRepetition());
+        ChessGame.GameStatus status = game.evaluateStatus();
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, status);
+        assertTrue(status.isDraw());
+    }
+
+    @Test
+    @DisplayName("Lost Castling Rights Make A New Position")
+    public void castlingRights() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("r3k3/8/8/8/8/8/8/4K2R w K - 0 1");
+        game.makeMove(move(1, 5, 2, 5));
+        game.makeMove(move(8, 1, 7, 1));
+        game.makeMove(move(2, 5, 1, 5));
+        game.makeMove(move(7, 1, 8, 1));
+        // The pieces are back where they started, but White can no longer castle
+        assertEquals(0, game.repetitions());
+
+        game.makeMove(move(1, 5, 2, 5));
+        game.makeMove(move(8, 1, 7, 1));
+        game.makeMove(move(2, 5, 1, 5));
+        game.makeMove(move(7, 1, 8, 1));
+        assertEquals(1, game.repetitions());
+    }
+
+    @Test
+    @DisplayName("Fifty Move Rule")
+    public void fiftyMoves() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("8/8/4k3/8/8/3K4/8/R7 w - - 99 80");
+        assertFalse(game.isFiftyMoveRule());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.evaluateStatus());
+        game.makeMove(move(1, 1, 2, 1));
+        assertEquals(100, game.getHalfmoveClock());
+        assertTrue(game.isFiftyMoveRule());
+        assertEquals(ChessGame.GameStatus.FIFTY_MOVE_RULE, game.evaluateStatus());
+        assertEquals(ChessGame.GameStatus.FIFTY_MOVE_RULE, ChessGame.fromFen("8/8/4k3/8/8/3K4/8/R7 w - - 100 80").evaluateStatus());
+
+        // A pawn move starts the count again
+        ChessGame pawn = ChessGame.fromFen("8/8/4k3/8/8/3K4/P7/8 w - - 99 80");
+        pawn.makeMove(move(2, 1, 3, 1));
+        assertEquals(0, pawn.getHalfmoveClock());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, pawn.evaluateStatus());
+        // And so does a capture
+        ChessGame capture = ChessGame.fromFen("8/8/4k3/8/8/3K4/8/R6r w - - 99 80");
+        capture.makeMove(move(1, 1, 1, 8));
+        assertEquals(0, capture.getHalfmoveClock());
+    }
+
+    @Test
+    @DisplayName("Insufficient Material")
+    public void insufficientMaterial() {
+        String[] draws = {
+                // King against King
+                "8/8/4k3/8/8/3K4/8/8 w - - 0 1",
+                // King and Bishop against King
+                "8/8/4k3/8/8/3K4/8/5B2 w - - 0 1",
+                // King and Knight against King
+                "8/8/4k3/8/8/3K4/8/6n1 w - - 0 1",
+                // Bishops all on dark squares
+                "5b2/8/4k3/8/8/3K4/8/2B5 w - - 0 1",
+                "5b2/8/4k3/8/8/3K4/8/B1B5 w - - 0 1",
+        };
+        for (String fen : draws) {
+            ChessGame game = ChessGame.fromFen(fen);
+            assertTrue(game.isInsufficientMaterial(), fen);
+            assertEquals(ChessGame.GameStatus.INSUFFICIENT_MATERIAL, game.evaluateStatus(), fen);
+        }
+
+        String[] playable = {
+                // Bishops on both colors
+                "2b5/8/4k3/8/8/3K4/8/2B5 w - - 0 1",
+                // Two Knights, or a Knight with a Bishop, can mate with help
+                "8/8/4k3/8/8/3K4/8/1N4N1 w - - 0 1",
+                "8/8/4k3/8/8/3K4/8/1n3B2 w - - 0 1",
+                // Any pawn, Rook or Queen
+                "8/8/4k3/8/8/3K4/P7/8 w - - 0 1",
+                "8/8/4k3/8/8/3K4/8/r7 w - - 0 1",
+                "8/8/4k3/8/8/3K4/8/Q7 w - - 0 1",
+        };
+        for (String fen : playable) {
+            ChessGame game = ChessGame.fromFen(fen);
+            assertFalse(game.isInsufficientMaterial(), fen);
+            assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.evaluateStatus(), fen);
+        }
+        assertFalse(new ChessGame().isInsufficientMaterial());
+    }
+}
@@ -0,0 +1,200 @@
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Evaluation;
+import chess.MoveList;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import org.junit.jupiter.api.*;
+import passoffTests.TestFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EngineTests {
+    private Engine engine;
+
+    @BeforeEach
+    public void setup() {
+        engine = new Engine(1);
+    }
+
+    private static ChessGame loadGame(String boardText, ChessGame.TeamColor turn) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestFactory.loadBoard(boardText));
+        game.setTeamTurn(turn);
+        return game;
+    }
+
+    @Test
+    @DisplayName("Back Rank Mate In One")
+    public void mateInOne() {
+        ChessGame game = loadGame("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                | | | |R| | |K| |
+                """, ChessGame.TeamColor.WHITE);
+        SearchResult result = engine.search(game, SearchLimits.depth(4));
+
+        assertEquals(new ChessMove(new ChessPosition(1, 4), new ChessPosition(8, 4), null), result.bestMove());
+        assertEquals(1, result.mateIn());
+        assertEquals(result.bestMove(), result.principalVariation().get(0));
+    }
+
+    @Test
+    @DisplayName("Rook Mate In Two")
+    public void mateInTwo() {
+        ChessGame game = loadGame("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |k| | | | | | | |
+                | | |K| | | | |R|
+                """, ChessGame.TeamColor.WHITE);
+        SearchResult result = engine.search(game, SearchLimits.depth(6));
+
+        assertEquals(2, result.mateIn());
+        assertEquals(3, result.principalVariation().size());
+    }
+
+    @Test
+    @DisplayName("Wins Hanging Queen")
+    public void winsMaterial() {
+        ChessGame game = loadGame("""
+                |r|n|b| |k|b|n|r|
+                |p|p|p|p| |p|p|p|
+                | | | | | | | | |
+                | | | | |p| | | |
+                | | | | |P| | |q|
+                | | | | | |N| | |
+                |P|P|P|P| |P|P|P|
+                |R|N|B|Q|K|B| |R|
+                """, ChessGame.TeamColor.WHITE);
+        SearchResult result = engine.search(game, SearchLimits.depth(4));
+
+        assertEquals(new ChessMove(new ChessPosition(3, 6), new ChessPosition(4, 8), null), result.bestMove());
+        assertTrue(result.score() > 500);
+    }
+
+    @Test
+    @DisplayName("No Moves When Checkmated")
+    public void noMoves() {
+        ChessGame game = loadGame("""
+                |R| | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | |K| |
+                """, ChessGame.TeamColor.BLACK);
+        SearchResult result = engine.search(game, SearchLimits.depth(3));
+
+        assertNull(result.bestMove());
+        assertTrue(result.principalVariation().isEmpty());
+        assertEquals(-SearchResult.MATE, result.score());
+    }
+
+    @Test
+    @DisplayName("Search Leaves Game Unchanged")
+    public void gameUnchanged() {
+        ChessGame game = new ChessGame();
+        ChessGame copy = new ChessGame(game);
+        engine.search(game, SearchLimits.depth(4));
+
+        assertEquals(copy, game);
+        assertEquals(0, game.getHistorySize());
+    }
+
+    @Test
+    @DisplayName("Time Limit")
+    public void timeLimit() {
+        SearchResult result = engine.search(new ChessGame(), SearchLimits.time(200));
+
+        assertNotNull(result.bestMove());
+        assertTrue(result.depth() >= 1);
+        assertTrue(result.timeMillis() < 1000, "Search ran for " + result.timeMillis() + "ms");
+    }
+
+    @Test
+    @DisplayName("Parallel Search Finds Mate")
+    public void parallelMate() {
+        ChessGame game = loadGame("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                | | | |R| | |K| |
+                """, ChessGame.TeamColor.WHITE);
+        SearchResult result = engine.bestMove(game, 500, 3);
+
+        assertEquals(new ChessMove(new ChessPosition(1, 4), new ChessPosition(8, 4), null), result.bestMove());
+        assertEquals(1, result.mateIn());
+    }
+
+    @Test
+    @DisplayName("Stop Signal")
+    public void stopSignal() throws InterruptedException {
+        Thread stopper = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            engine.stop();
+        });
+        stopper.start();
+        SearchResult result = engine.search(new ChessGame(), SearchLimits.depth(SearchLimits.MAX_DEPTH), 2);
+        stopper.join();
+
+        assertNotNull(result.bestMove());
+        assertTrue(result.depth() < SearchLimits.MAX_DEPTH);
+    }
+
+    @Test
+    @DisplayName("Called Off Before It Begins")
+    public void calledOff() {
+        // A stop with no search running is forgotten
+        engine.stop();
+        assertEquals(3, engine.search(new ChessGame(), SearchLimits.depth(3)).depth());
+
+        // A search called off by its caller's flag ends at once, still with a move to play
+        SearchResult result = engine.search(new ChessGame(), SearchLimits.depth(SearchLimits.MAX_DEPTH), () -> true);
+        assertNotNull(result.bestMove());
+        assertTrue(result.timeMillis() < 1000, "Search ran for " + result.timeMillis() + "ms");
+        assertEquals(3, engine.search(new ChessGame(), SearchLimits.depth(3), () -> false).depth());
+    }
+
+    @Test
+    @DisplayName("Incremental Evaluation Matches Full Rescan")
+    public void incrementalEvaluation() {
+        ChessGame game = new ChessGame();
+        MoveList moves = new MoveList();
+        // Play a long, varied game with captures and promotions, checking every position on the way there and back
+        for (int ply = 0; ply < 300; ++ply) {
+            assertEquals(Evaluation.fullRescan(game), game.evaluate(), "After " + game.getMoveHistory());
+            moves.clear();
+            game.legalMoves(moves);
+            if (moves.isEmpty() || game.evaluateStatus().isGameOver()) {
+                break;
+            }
+            game.makeMove(moves.get((ply * 7 + 3) % moves.size()));
+        }
+        while (game.getHistorySize() > 0) {
+            game.unmakeMove();
+            assertEquals(Evaluation.fullRescan(game), game.evaluate());
+        }
+        assertEquals(0, new ChessGame().evaluate());
+    }
+}
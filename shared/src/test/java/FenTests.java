@@ -0,0 +1,132 @@
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.MoveList;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FenTests {
+    private static final String STARTPOS = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startingPosition() {
+        assertEquals(STARTPOS, new ChessGame().toFen());
+
+        ChessGame game = ChessGame.fromFen(STARTPOS);
+        assertEquals(new ChessGame().getBoard(), game.getBoard());
+        assertEquals(new ChessGame().positionKey(), game.positionKey());
+        assertEquals(0, game.getHistorySize());
+    }
+
+    @Test
+    @DisplayName("Fields Follow The Moves Played")
+    public void fieldsAfterMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.toFen());
+
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5), null));
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 2 2", game.toFen());
+
+        game.unmakeMove();
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 1 2", game.toFen());
+    }
+
+    @Test
+    @DisplayName("Every Field Is Read Back")
+    public void fieldsRead() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/Pp2P3/2N2Q1p/1PPBBPPP/R3K2R b Kq a3 17 42");
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        assertTrue(game.hasCastlingRight(ChessGame.TeamColor.WHITE, true));
+        assertFalse(game.hasCastlingRight(ChessGame.TeamColor.WHITE, false));
+        assertFalse(game.hasCastlingRight(ChessGame.TeamColor.BLACK, true));
+        assertTrue(game.hasCastlingRight(ChessGame.TeamColor.BLACK, false));
+        assertEquals(new ChessPosition(4, 1), game.getEnPassantPawn());
+        assertEquals(17, game.getHalfmoveClock());
+        assertEquals(42, game.getFullmoveNumber());
+
+        // The en passant capture is legal
+        assertTrue(game.validMoves(new ChessPosition(4, 2))
+                .contains(new ChessMove(new ChessPosition(4, 2), new ChessPosition(3, 1), null)));
+    }
+
+    @Test
+    @DisplayName("Castling Rights Come From The Castling Field")
+    public void castlingRights() {
+        // King and Rooks are home, but have moved
+        ChessGame game = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w - - 0 30");
+        assertTrue(game.validMoves(new ChessPosition(1, 5)).stream()
+                .noneMatch(move -> Math.abs(move.getEndPosition().getColumn() - 5) == 2));
+        assertEquals("r3k2r/8/8/8/8/8/8/R3K2R w - - 0 30", game.toFen());
+
+        game = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w Qk - 0 30");
+        assertEquals("r3k2r/8/8/8/8/8/8/R3K2R w Qk - 0 30", game.toFen());
+    }
+
+    @Test
+    @DisplayName("Counters Are Optional")
+    public void optionalCounters() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 b - -");
+        assertEquals(0, game.getHalfmoveClock());
+        assertEquals(1, game.getFullmoveNumber());
+        assertEquals("4k3/8/8/8/8/8/8/4K3 b - - 0 1", game.toFen());
+    }
+
+    @Test
+    @DisplayName("Random Games Round Trip")
+    public void randomGames() {
+        Random random = new Random(7);
+        MoveList moves = new MoveList();
+        for (int gameNumber = 0; gameNumber < 50; ++gameNumber) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 120; ++ply) {
+                String fen = game.toFen();
+                ChessGame loaded = ChessGame.fromFen(fen);
+                assertEquals(fen, loaded.toFen());
+                assertEquals(game.getBoard(), loaded.getBoard(), fen);
+                assertEquals(game.positionKey(), loaded.positionKey(), fen);
+                assertEquals(game.evaluate(), loaded.evaluate(), fen);
+
+                MoveList loadedMoves = new MoveList();
+                loaded.legalMoves(loadedMoves);
+                moves.clear();
+                game.legalMoves(moves);
+                assertEquals(moves.size(), loadedMoves.size(), fen);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Invalid FEN")
+    public void invalidFen() {
+        String[] invalid = {
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNRR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbq1bnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkx - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBN1 w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e3 0 1",
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e6 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - -1 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 0",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1 extra",
+        };
+        for (String fen : invalid) {
+            assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), fen);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStatusTests {
+    private static ChessGame.GameStatus status(String fen) {
+        return ChessGame.fromFen(fen).evaluateStatus();
+    }
+
+    @Test
+    @DisplayName("Checkmate")
+    public void checkmate() {
+        // Fool's mate
+        ChessGame.GameStatus foolsMate = status("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertEquals(ChessGame.GameStatus.CHECKMATE, foolsMate);
+        assertTrue(foolsMate.isGameOver());
+        assertFalse(foolsMate.isDraw());
+        // Back rank mate
+        assertEquals(ChessGame.GameStatus.CHECKMATE, status("R5k1/5ppp/8/8/8/8/8/6K1 b - - 1 1"));
+        // Mate on the hundredth halfmove still wins
+        assertEquals(ChessGame.GameStatus.CHECKMATE, status("R5k1/5ppp/8/8/8/8/8/6K1 b - - 100 80"));
+    }
+
+    @Test
+    @DisplayName("Stalemate")
+    public void stalemate() {
+        ChessGame.GameStatus stalemate = status("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals(ChessGame.GameStatus.STALEMATE, stalemate);
+        assertTrue(stalemate.isGameOver());
+        assertTrue(stalemate.isDraw());
+
+        // The King cannot move and the pawn is blocked, but it may still take en passant
+        assertEquals(ChessGame.GameStatus.STALEMATE, status("7k/5K2/6P1/8/5Pp1/6P1/8/8 b - - 0 1"));
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, status("7k/5K2/6P1/8/5Pp1/6P1/8/8 b - f3 0 1"));
+    }
+
+    @Test
+    @DisplayName("Check And Play On")
+    public void inProgress() {
+        ChessGame.GameStatus check = status("4k3/8/8/8/8/8/3P4/4R1K1 b - - 0 1");
+        assertEquals(ChessGame.GameStatus.CHECK, check);
+        assertFalse(check.isGameOver());
+        assertFalse(check.isDraw());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, new ChessGame().evaluateStatus());
+        // The King's only way out is to take the Queen, unless something guards her
+        assertEquals(ChessGame.GameStatus.CHECK, status("k7/8/8/8/8/8/1q6/K7 w - - 0 1"));
+        assertEquals(ChessGame.GameStatus.CHECKMATE, status("k7/8/8/8/8/3n4/1q6/K7 w - - 0 1"));
+    }
+}
@@ -0,0 +1,108 @@
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Collection;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsLegalTests {
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            null,
+            ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.KING,
+            ChessPiece.PieceType.PAWN
+    };
+
+    /**
+     * Tries every move of every piece of the team to move, legal or not, against validMoves
+     */
+    private static void assertAgreesWithValidMoves(ChessGame game) {
+        long pieces = game.getBoard().getTeamBitboard(game.getTeamTurn());
+        while (pieces != 0) {
+            ChessPosition start = ChessPosition.fromSquare(Long.numberOfTrailingZeros(pieces));
+            pieces &= pieces - 1;
+            boolean pawn = game.getBoard().getPiece(start).getPieceType() == ChessPiece.PieceType.PAWN;
+            Collection<ChessMove> validMoves = game.validMoves(start);
+            for (int to = 0; to < 64; ++to) {
+                for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                    if (promotion != null && !pawn) {
+                        break;
+                    }
+                    ChessMove move = new ChessMove(start, ChessPosition.fromSquare(to), promotion);
+                    assertEquals(validMoves.contains(move), game.isLegal(move), move + " in " + game.toFen());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Same Answer As Valid Moves")
+    public void agreesWithValidMoves() {
+        Random random = new Random(23);
+        String[] fens = {
+                new ChessGame().toFen(),
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+        };
+        for (String fen : fens) {
+            for (int game = 0; game < 5; ++game) {
+                ChessGame chessGame = ChessGame.fromFen(fen);
+                MoveList moves = new MoveList();
+                for (int ply = 0; ply < 40; ++ply) {
+                    assertAgreesWithValidMoves(chessGame);
+                    moves.clear();
+                    chessGame.legalMoves(moves);
+                    if (moves.isEmpty()) {
+                        break;
+                    }
+                    int move = moves.get(random.nextInt(moves.size()));
+                    // Checking a move gives back the same packed move, flags and all, ready to be made
+                    assertEquals(move, chessGame.legalMove(Move.toChessMove(move)));
+                    chessGame.makeMove(move);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Pins, Checks And En Passant")
+    public void specialCases() {
+        // The knight is pinned by the bishop and the rook gives check
+        ChessGame pinned = ChessGame.fromFen("4r1k1/8/8/8/1b6/8/3N4/R3K3 w - - 0 1");
+        assertFalse(pinned.isLegal(new ChessMove(new ChessPosition(2, 4), new ChessPosition(3, 6), null)));
+        assertFalse(pinned.isLegal(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 5), null)));
+        assertTrue(pinned.isLegal(new ChessMove(new ChessPosition(1, 5), new ChessPosition(2, 6), null)));
+        // No castling out of check
+        assertFalse(pinned.isLegal(new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 3), null)));
+
+        // Taking en passant would open the row to the rook
+        ChessGame enPassant = ChessGame.fromFen("8/8/8/KPp4r/8/8/8/6k1 w - c6 0 1");
+        assertFalse(enPassant.isLegal(new ChessMove(new ChessPosition(5, 2), new ChessPosition(6, 3), null)));
+        ChessGame open = ChessGame.fromFen("8/8/K7/1Pp4r/8/8/8/6k1 w - c6 0 1");
+        assertTrue(open.isLegal(new ChessMove(new ChessPosition(5, 2), new ChessPosition(6, 3), null)));
+    }
+
+    @Test
+    @DisplayName("Bad Moves Are Turned Away")
+    public void badMoves() {
+        ChessGame game = new ChessGame();
+        // Off the board
+        ChessMove offBoard = new ChessMove(new ChessPosition(0, 5), new ChessPosition(3, 5), null);
+        assertFalse(game.isLegal(offBoard));
+        assertThrows(InvalidMoveException.class, () -> game.makeMove(offBoard));
+        // Not this team's turn
+        ChessMove blackMove = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        assertFalse(game.isLegal(blackMove));
+        assertThrows(InvalidMoveException.class, () -> game.makeMove(blackMove));
+        // A promotion piece on a move that does not promote
+        ChessMove notPromoting = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), ChessPiece.PieceType.QUEEN);
+        assertFalse(game.isLegal(notPromoting));
+        assertThrows(InvalidMoveException.class, () -> game.makeMove(notPromoting));
+        assertEquals(new ChessGame(), game);
+    }
+}
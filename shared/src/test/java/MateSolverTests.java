@@ -0,0 +1,130 @@
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.engine.MateResult;
+import chess.engine.MateSolver;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MateSolverTests {
+    private static MateSolver solver;
+
+    @BeforeAll
+    public static void startSolver() {
+        // Two workers, so they share the table even on a single core
+        solver = new MateSolver(4, 2);
+    }
+
+    @AfterAll
+    public static void stopSolver() {
+        solver.shutdown();
+    }
+
+    /**
+     * Plays the line from the position and checks it ends in mate within the given number of moves. The
+     * replies in the line may lose sooner than the defender's best
+     */
+    private static void assertMatingLine(ChessGame game, MateResult result, int moves) throws InvalidMoveException {
+        assertEquals(MateResult.Outcome.MATE, result.outcome());
+        assertEquals(moves, result.moves());
+        assertTrue(result.line().size() <= 2 * moves - 1);
+        ChessGame replay = new ChessGame(game);
+        for (ChessMove move : result.line()) {
+            replay.makeMove(move);
+        }
+        assertEquals(ChessGame.GameStatus.CHECKMATE, replay.evaluateStatus());
+    }
+
+    @Test
+    @DisplayName("Mate In One")
+    public void mateInOne() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        MateResult result = solver.solve(game, 3, 10_000);
+        assertMatingLine(game, result, 1);
+        assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.firstMove());
+    }
+
+    @Test
+    @DisplayName("Mate In Two For Black")
+    public void mateInTwo() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("6k1/pp4p1/2p5/2bp4/8/P5Pb/1P3rrP/2BRRN1K b - - 0 1");
+        assertMatingLine(game, solver.solve(game, 4, 10_000), 2);
+    }
+
+    @Test
+    @DisplayName("Shortest Mate Is Found")
+    public void smotheredMate() throws InvalidMoveException {
+        // The smothered mate: the knight checks, the queen is sacrificed on g8 and the knight mates on f7
+        ChessGame game = ChessGame.fromFen("4r2k/6pp/8/6N1/2Q5/8/8/6K1 w - - 0 1");
+        MateResult result = solver.solve(game, 6, 10_000);
+        assertMatingLine(game, result, 4);
+        assertEquals(MateResult.Outcome.NO_MATE, solver.solve(game, 3, 10_000).outcome());
+    }
+
+    @Test
+    @DisplayName("Mate After Quiet Replies")
+    public void mateInFive() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("2q1nk1r/4Rp2/1ppp1P2/6Pp/3p1B2/3P3P/PPP1Q3/6K1 w - - 0 1");
+        assertMatingLine(game, solver.solve(game, 6, 10_000), 5);
+    }
+
+    @Test
+    @DisplayName("No Mate")
+    public void noMate() {
+        MateResult start = solver.solve(new ChessGame(), 5, 10_000);
+        assertEquals(MateResult.Outcome.NO_MATE, start.outcome());
+        assertEquals(5, start.moves());
+        assertTrue(start.line().isEmpty());
+        assertNull(start.firstMove());
+
+        // Checks run out before the king can be caught
+        MateResult rooks = solver.solve(ChessGame.fromFen("7k/8/8/8/8/8/1R6/R5K1 w - - 0 1"), 4, 10_000);
+        assertEquals(MateResult.Outcome.NO_MATE, rooks.outcome());
+    }
+
+    @Test
+    @DisplayName("Only Checks Are Tried")
+    public void onlyChecks() {
+        // Kc7 then Ra1 mates in two, but the king move is not a check
+        ChessGame game = ChessGame.fromFen("k7/8/2K5/8/8/8/8/1R6 w - - 0 1");
+        assertEquals(MateResult.Outcome.NO_MATE, solver.solve(game, 2, 10_000).outcome());
+    }
+
+    @Test
+    @DisplayName("Time Limit Is Kept")
+    public void timeLimit() {
+        MateSolver busy = new MateSolver(1, 2);
+        try {
+            ChessGame game = ChessGame.fromFen("7k/8/8/8/8/8/1R6/R5K1 w - - 0 1");
+            long start = System.nanoTime();
+            MateResult result = busy.solve(game, MateSolver.MAX_MOVES, 20);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(MateResult.Outcome.UNKNOWN, result.outcome());
+            assertTrue(result.moves() < MateSolver.MAX_MOVES);
+            assertTrue(elapsedMillis < 500, "Took " + elapsedMillis + " ms");
+        } finally {
+            busy.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Game Is Left Unchanged")
+    public void gameUnchanged() {
+        ChessGame game = ChessGame.fromFen("4r2k/6pp/8/6N1/2Q5/8/8/6K1 w - - 0 1");
+        String fen = game.toFen();
+        solver.solve(game, 4, 10_000);
+        assertEquals(fen, game.toFen());
+        assertEquals(0, game.getHistorySize());
+    }
+
+    @Test
+    @DisplayName("Bad Arguments")
+    public void badArguments() {
+        ChessGame game = new ChessGame();
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(game, 0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(game, MateSolver.MAX_MOVES + 1, 1000));
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(game, 3, 0));
+    }
+}
@@ -0,0 +1,181 @@
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveCacheTests {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @AfterEach
+    public void removeCache() {
+        ChessGame.setMoveCache(null);
+    }
+
+    private static Collection<ChessMove> uncachedValidMoves(ChessGame game, ChessPosition position) {
+        MoveCache cache = ChessGame.getMoveCache();
+        ChessGame.setMoveCache(null);
+        try {
+            return game.validMoves(position);
+        } finally {
+            ChessGame.setMoveCache(cache);
+        }
+    }
+
+    @Test
+    @DisplayName("Same Moves As Without The Cache")
+    public void sameMoves() {
+        MoveCache cache = new MoveCache(1024 * 1024);
+        ChessGame.setMoveCache(cache);
+        Random random = new Random(25);
+        for (String fen : new String[]{new ChessGame().toFen(), KIWIPETE}) {
+            // The same game twice, so the second time every position is already held
+            long seed = random.nextLong();
+            for (int pass = 0; pass < 2; ++pass) {
+                ChessGame game = ChessGame.fromFen(fen);
+                Random moves = new Random(seed);
+                for (int ply = 0; ply < 40; ++ply) {
+                    List<ChessMove> legalMoves = new ArrayList<>();
+                    for (int square = 0; square < 64; ++square) {
+                        ChessPosition position = ChessPosition.fromSquare(square);
+                        Collection<ChessMove> expected = uncachedValidMoves(game, position);
+                        assertEquals(expected, game.validMoves(position), game.toFen());
+                        if (expected != null && game.getBoard().getPiece(position).getTeamColor() == game.getTeamTurn()) {
+                            legalMoves.addAll(expected);
+                        }
+                    }
+                    if (legalMoves.isEmpty()) {
+                        break;
+                    }
+                    ChessMove move = legalMoves.get(moves.nextInt(legalMoves.size()));
+                    assertTrue(game.isLegal(move));
+                    assertFalse(game.isLegal(new ChessMove(move.getStartPosition(), move.getStartPosition(), null)));
+                    assertDoesNotThrow(() -> game.makeMove(move));
+                }
+            }
+        }
+        MoveCache.Stats stats = cache.stats();
+        // Each position of the second pass was found, and each game looked in the cache once per position
+        assertEquals(stats.misses(), stats.hits(), stats.toString());
+        assertEquals(0, stats.evictions());
+    }
+
+    @Test
+    @DisplayName("Hits And Misses Are Counted")
+    public void stats() throws InvalidMoveException {
+        MoveCache cache = new MoveCache(1024 * 1024);
+        ChessGame.setMoveCache(cache);
+        ChessGame game = new ChessGame();
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        // Checking a move in a position the cache does not have checks just that move, and stores nothing
+        assertTrue(game.isLegal(e4));
+        assertEquals(new MoveCache.Stats(0, 1, 0, 0, 0, cache.maxBytes()), cache.stats());
+        game.validMoves(new ChessPosition(1, 7));
+        assertEquals(new MoveCache.Stats(0, 2, 0, 1, cache.stats().bytes(), cache.maxBytes()), cache.stats());
+
+        // Other games reaching the same position find its moves
+        assertTrue(new ChessGame().isLegal(e4));
+        new ChessGame().makeMove(e4);
+        // A game asking about each of its pieces in turn looks in the cache once
+        game.validMoves(new ChessPosition(1, 2));
+        game.validMoves(new ChessPosition(1, 7));
+        MoveCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.entries());
+        assertEquals(0.5, new MoveCache.Stats(1, 1, 0, 0, 0, 1).hitRate());
+
+        cache.clear();
+        assertEquals(new MoveCache.Stats(0, 0, 0, 0, 0, cache.maxBytes()), cache.stats());
+    }
+
+    @Test
+    @DisplayName("Stays Under Its Size")
+    public void eviction() {
+        // Room for only a few positions
+        MoveCache cache = new MoveCache(2000);
+        ChessGame.setMoveCache(cache);
+        ChessPosition knight = new ChessPosition(1, 7);
+        Random random = new Random(25);
+        ChessGame game = new ChessGame();
+        for (int ply = 0; ply < 200; ++ply) {
+            // The start position is asked for often, by new games, so it keeps its place
+            new ChessGame().validMoves(knight);
+            MoveList moves = new MoveList();
+            game.legalMoves(moves);
+            if (moves.isEmpty()) {
+                game = new ChessGame();
+                continue;
+            }
+            game.validMoves(knight);
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            assertTrue(cache.stats().bytes() <= cache.maxBytes());
+        }
+        MoveCache.Stats stats = cache.stats();
+        assertTrue(stats.evictions() > 0);
+        long hits = stats.hits();
+        new ChessGame().validMoves(knight);
+        assertEquals(hits + 1, cache.stats().hits());
+
+        assertThrows(IllegalArgumentException.class, () -> new MoveCache(1));
+    }
+
+    @Test
+    @DisplayName("Shared By Many Threads")
+    public void concurrent() throws Exception {
+        MoveCache cache = new MoveCache(64 * 1024);
+        ChessGame.setMoveCache(cache);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; ++thread) {
+                int seed = thread % 2;
+                results.add(threads.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int game = 0; game < 20; ++game) {
+                        ChessGame chessGame = ChessGame.fromFen(KIWIPETE);
+                        for (int ply = 0; ply < 30; ++ply) {
+                            MoveList moves = new MoveList();
+                            chessGame.legalMoves(moves);
+                            if (moves.isEmpty()) {
+                                break;
+                            }
+                            int move = moves.get(random.nextInt(moves.size()));
+                            ChessMove chessMove = Move.toChessMove(move);
+                            assertTrue(chessGame.isLegal(chessMove));
+                            assertEquals(moves.size(), countValidMoves(chessGame));
+                            chessGame.makeMove(move);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            threads.shutdown();
+            assertTrue(threads.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertTrue(cache.stats().bytes() <= cache.maxBytes());
+        assertTrue(cache.stats().hits() > 0);
+    }
+
+    private static int countValidMoves(ChessGame game) {
+        int count = 0;
+        long team = game.getBoard().getTeamBitboard(game.getTeamTurn());
+        while (team != 0) {
+            count += game.validMoves(ChessPosition.fromSquare(Long.numberOfTrailingZeros(team))).size();
+            team &= team - 1;
+        }
+        return count;
+    }
+}
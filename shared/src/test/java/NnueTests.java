@@ -0,0 +1,85 @@
+import chess.ChessGame;
+import chess.MoveList;
+import chess.nnue.Network;
+import chess.nnue.NnueEvaluator;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NnueTests {
+    private static Network network;
+
+    @BeforeAll
+    public static void loadNetwork() throws IOException {
+        // Round trip a random network through a weight file, as a real one would be loaded
+        Path file = Files.createTempFile("network", ".nnue");
+        try {
+            Network.random(64, 1).save(file);
+            network = Network.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Incremental Updates Match Full Refresh")
+    public void incrementalUpdates() {
+        NnueEvaluator incremental = new NnueEvaluator(network);
+        NnueEvaluator scalar = new NnueEvaluator(network, false);
+        ChessGame game = new ChessGame();
+        MoveList moves = new MoveList();
+        for (int ply = 0; ply < 200; ++ply) {
+            int expected = scalar.evaluateFromScratch(game);
+            assertEquals(expected, incremental.evaluate(game));
+            moves.clear();
+            game.legalMoves(moves);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeMove(moves.get((ply * 5 + 1) % moves.size()));
+        }
+        while (game.getHistorySize() > 0) {
+            game.unmakeMove();
+            assertEquals(scalar.evaluateFromScratch(game), incremental.evaluate(game));
+        }
+    }
+
+    @Test
+    @DisplayName("Vector Kernels Only With The Module")
+    public void kernels() {
+        boolean vectorModule = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        // The build runs these tests with and without the module, and says which
+        String expected = System.getProperty("chess.nnue.vectorModule");
+        if (expected != null) {
+            assertEquals(Boolean.parseBoolean(expected), vectorModule);
+        }
+        assertEquals(vectorModule, new NnueEvaluator(network).isVectorized());
+        assertFalse(new NnueEvaluator(network, false).isVectorized());
+    }
+
+    @Test
+    @DisplayName("Both Sides Share Weights")
+    public void symmetric() {
+        // The starting position looks the same from both sides
+        ChessGame game = new ChessGame();
+        int white = new NnueEvaluator(network).evaluate(game);
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(white, new NnueEvaluator(network).evaluate(game));
+    }
+
+    @Test
+    @DisplayName("Reject Bad Weight File")
+    public void badFile() throws IOException {
+        Path file = Files.createTempFile("network", ".nnue");
+        try {
+            Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+            assertThrows(IOException.class, () -> Network.load(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+import chess.ChessGame;
+import chess.Move;
+import chess.MoveList;
+import chess.dataModel.GameData;
+import chess.pgn.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PgnTests {
+    private static final String GAMES = """
+            [Event "Casual Game"]
+            [Site "Berlin GER"]
+            [Date "1852.??.??"]
+            [Round "-"]
+            [White "Adolf Anderssen"]
+            [Black "Jean Dufresne"]
+            [Result "1-0"]
+            [Annotator "Someone \\"quoted\\""]
+
+            1.e4 e5 2.Nf3 Nc6 3.Bc4 Bc5 4.b4 Bxb4 5.c3 Ba5 6.d4 exd4 7.O-O
+            d3 8.Qb3 Qf6 9.e5 Qg6 10.Re1 Nge7 11.Ba3 b5 $6 12.Qxb5 Rb8 13.Qa4
+            Bb6 14.Nbd2 Bb7 15.Ne4 Qf5? { The losing move (15...Bd4 holds) } 16.Bxd3 Qh5 17.Nf6+ gxf6 18.exf6
+            Rg8 19.Rad1 Qxf3 20.Rxe7+ Nxe7 (20...Kd8 21.Rxd7+ Kc8 22.Rd8+ (22.Rxb7) Kxd8 23.Bf5+ Qxd1 24.Qxd1+) 21.Qxd7+ Kxd7 22.Bf5+ Ke8
+            23.Bd7+ Kf8 24.Bxe7# 1-0
+
+            %escaped line for another program
+            [Event "From a position"]
+            [SetUp "1"]
+            [FEN "4k3/8/8/8/8/8/4P3/4K3 b - - 3 40"]
+
+            40... Kd7 41. e4 ; a line comment 42. e5
+            Ke6 {unfinished
+            comment} *
+            """;
+
+    private static ChessGame play(String... moves) {
+        ChessGame game = new ChessGame();
+        for (String san : moves) {
+            game.makeMove(San.decode(game, san));
+        }
+        return game;
+    }
+
+    private static String encode(String fen, String uci) {
+        ChessGame game = ChessGame.fromFen(fen);
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        for (int i = 0; i < moves.size(); ++i) {
+            int move = moves.get(i);
+            if (squareName(Move.from(move)).concat(squareName(Move.to(move))).equals(uci.substring(0, 4))
+                    && (uci.length() == 4 || Move.promotion(move) != null && uci.charAt(4) == "kqbnr".charAt(Move.promotion(move).ordinal()))) {
+                return San.encode(game, move);
+            }
+        }
+        throw new AssertionError("No legal move " + uci);
+    }
+
+    private static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('1' + (square >>> 3));
+    }
+
+    private static List<PgnGame> readAll(String pgn, int threads, List<PgnException> errors) throws IOException {
+        List<PgnGame> games = new ArrayList<>();
+        try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+            reader.readAll(threads, games::add, errors::add);
+        }
+        return games;
+    }
+
+    @Test
+    @DisplayName("SAN Disambiguation")
+    public void disambiguation() {
+        // Knights on b1 and f3 can both reach d2
+        assertEquals("Nbd2", encode("rnbqkbnr/ppp1pppp/8/3p4/3P4/5N2/PPP1PPPP/RNBQKB1R w KQkq - 0 3", "b1d2"));
+        // Rooks on one file
+        assertEquals("R1a3", encode("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1", "a1a3"));
+        // Rooks on one rank
+        assertEquals("Rad3", encode("4k3/8/8/8/8/R6R/8/4K3 w - - 0 1", "a3d3"));
+        // Queens sharing a file with one and a rank with another
+        assertEquals("Qh4e1", encode("8/8/1k6/8/4Q2Q/8/8/K6Q w - - 0 1", "h4e1"));
+        assertEquals("Qee1", encode("8/8/1k6/8/4Q2Q/8/8/K6Q w - - 0 1", "e4e1"));
+        // A pinned knight cannot reach the square, so no disambiguation is needed
+        assertEquals("Nd3", encode("4k3/8/8/8/7b/8/1N3N2/4K3 w - - 0 1", "b2d3"));
+    }
+
+    @Test
+    @DisplayName("SAN Castling, Promotion, En Passant And Check Marks")
+    public void specialMoves() {
+        assertEquals("O-O", encode("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", "e1g1"));
+        assertEquals("O-O-O", encode("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1", "e8c8"));
+        assertEquals("a8=Q#", encode("8/P7/8/8/8/8/8/k1K5 w - - 0 1", "a7a8q"));
+        assertEquals("a8=N", encode("8/P7/8/8/8/8/8/k1K5 w - - 0 1", "a7a8n"));
+        assertEquals("bxa8=R#", encode("r7/1P6/8/8/8/8/8/k1K5 w - - 0 1", "b7a8r"));
+        assertEquals("exd6", encode("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 2", "e5d6"));
+        assertEquals("Qxf7#", San.encode(play("e4", "e5", "Qh5", "Nc6", "Bc4", "Nf6"),
+                San.decode(play("e4", "e5", "Qh5", "Nc6", "Bc4", "Nf6"), "Qxf7")));
+
+        // Other ways of writing the same moves
+        ChessGame castling = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1");
+        assertEquals(San.decode(castling, "O-O-O"), San.decode(castling, "0-0-0+"));
+        ChessGame promotion = ChessGame.fromFen("8/P7/8/8/8/8/8/k1K5 w - - 0 1");
+        assertEquals(San.decode(promotion, "a8=Q#"), San.decode(promotion, "a8Q"));
+        ChessGame knights = ChessGame.fromFen("rnbqkbnr/ppp1pppp/8/3p4/3P4/5N2/PPP1PPPP/RNBQKB1R w KQkq - 0 3");
+        assertEquals(San.decode(knights, "Nbd2"), San.decode(knights, "Nb1d2!?"));
+    }
+
+    @Test
+    @DisplayName("SAN That Names No Single Legal Move")
+    public void invalidSan() {
+        ChessGame knights = ChessGame.fromFen("rnbqkbnr/ppp1pppp/8/3p4/3P4/5N2/PPP1PPPP/RNBQKB1R w KQkq - 0 3");
+        assertThrows(IllegalArgumentException.class, () -> San.decode(knights, "Nd2"));
+        assertThrows(IllegalArgumentException.class, () -> San.decode(knights, "Ke3"));
+        assertThrows(IllegalArgumentException.class, () -> San.decode(knights, "O-O"));
+        assertThrows(IllegalArgumentException.class, () -> San.decode(knights, "Zz9"));
+        assertThrows(IllegalArgumentException.class, () -> San.decode(knights, "+"));
+        // A pawn reaching the last rank must say what it becomes
+        assertThrows(IllegalArgumentException.class,
+                () -> San.decode(ChessGame.fromFen("8/P7/8/8/8/8/8/k1K5 w - - 0 1"), "a8"));
+    }
+
+    @Test
+    @DisplayName("Every Legal Move Round Trips Through SAN")
+    public void randomGamesSan() {
+        Random random = new Random(20);
+        MoveList moves = new MoveList();
+        for (int gameNumber = 0; gameNumber < 40; ++gameNumber) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 150; ++ply) {
+                moves.clear();
+                game.legalMoves(moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                for (int i = 0; i < moves.size(); ++i) {
+                    String san = San.encode(game, moves.get(i));
+                    assertEquals(moves.get(i), San.decode(game, san), san + " in " + game.toFen());
+                }
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Read Games With Comments, Variations And Setups")
+    public void readGames() throws IOException {
+        try (PgnReader reader = new PgnReader(new StringReader(GAMES))) {
+            PgnGame immortal = reader.next();
+            assertEquals("Adolf Anderssen", immortal.tag("White"));
+            assertEquals("Someone \"quoted\"", immortal.tag("Annotator"));
+            assertEquals(PgnGame.WHITE_WINS, immortal.result());
+            assertEquals(47, immortal.game().getHistorySize());
+            assertEquals(ChessGame.GameStatus.CHECKMATE, immortal.game().evaluateStatus());
+            assertEquals("1r3kr1/pbpBBp1p/1b3P2/8/8/2P2q2/P4PPP/3R2K1 b - - 0 24", immortal.game().toFen());
+
+            PgnGame fromPosition = reader.next();
+            assertEquals(PgnGame.UNKNOWN, fromPosition.result());
+            assertEquals("8/8/4k3/8/4P3/8/8/4K3 w - - 1 42", fromPosition.game().toFen());
+
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Games After A Broken Game Are Still Read")
+    public void brokenGame() throws IOException {
+        String pgn = """
+                [Event "Good"]
+
+                1. e4 e5 *
+
+                [Event "Illegal move"]
+
+                1. e4 e5
+                2. Ke3 *
+
+                [Event "Also good"]
+
+                1. d4 1-0
+                """;
+        for (int threads : new int[]{1, 3}) {
+            List<PgnException> errors = new ArrayList<>();
+            List<PgnGame> games = readAll(pgn, threads, errors);
+            assertEquals(List.of("Good", "Also good"), games.stream().map(game -> game.tag("Event")).toList());
+            assertEquals(1, errors.size());
+            assertEquals(8, errors.get(0).getLineNumber());
+        }
+        assertThrows(PgnException.class, () -> new PgnReader(new StringReader("1. e4 {never closed")).next());
+        assertThrows(PgnException.class, () -> new PgnReader(new StringReader("[FEN \"bad\"]\n\n*")).next());
+    }
+
+    @Test
+    @DisplayName("Written Games Read Back The Same")
+    public void writeAndRead() throws IOException {
+        ChessGame scholarsMate = play("e4", "e5", "Qh5", "Nc6", "Bc4", "Nf6", "Qxf7");
+        String written = PgnWriter.write(new GameData(3, "alice", null, "Scholar's \"mate\"", scholarsMate, true));
+        assertEquals("""
+                [Event "Scholar's \\"mate\\""]
+                [Site "?"]
+                [Date "????.??.??"]
+                [Round "-"]
+                [White "alice"]
+                [Black "?"]
+                [Result "1-0"]
+
+                1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0
+
+                """, written);
+
+        // Random games, some from a set up position with black to move, written to one file
+        Random random = new Random(5);
+        MoveList moves = new MoveList();
+        StringBuilder file = new StringBuilder();
+        List<ChessGame> expected = new ArrayList<>();
+        for (int gameNumber = 0; gameNumber < 60; ++gameNumber) {
+            ChessGame game = gameNumber % 3 == 0
+                    ? ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/Pp2P3/2N2Q1p/1PPBBPPP/R3K2R b KQkq a3 0 1")
+                    : new ChessGame();
+            for (int ply = 0; ply < 200; ++ply) {
+                moves.clear();
+                game.legalMoves(moves);
+                if (moves.isEmpty() || game.evaluateStatus().isGameOver()) {
+                    break;
+                }
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+            expected.add(game);
+            PgnWriter.write(Map.of("Round", String.valueOf(gameNumber)), game, file);
+        }
+        for (String line : file.toString().split("\n")) {
+            assertTrue(line.length() < 80, line);
+        }
+
+        for (int threads : new int[]{1, 4}) {
+            List<PgnException> errors = new ArrayList<>();
+            List<PgnGame> games = readAll(file.toString(), threads, errors);
+            assertEquals(List.of(), errors);
+            assertEquals(expected.size(), games.size());
+            for (int i = 0; i < games.size(); ++i) {
+                ChessGame game = games.get(i).game();
+                assertEquals(String.valueOf(i), games.get(i).tag("Round"));
+                assertEquals(PgnWriter.result(expected.get(i)), games.get(i).result());
+                assertEquals(expected.get(i).getMoveHistory(), game.getMoveHistory());
+                assertEquals(expected.get(i).toFen(), game.toFen());
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.*;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SavedGameTests {
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Writes a game the way games were saved before the board kept bitboards: just the board array and the
+     * game's own fields
+     */
+    private static String baselineJson(ChessGame game) {
+        JsonArray rows = new JsonArray();
+        for (int row = 8; row >= 1; --row) {
+            JsonArray cells = new JsonArray();
+            for (int col = 1; col <= 8; ++col) {
+                ChessPiece piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                cells.add(piece == null ? null : GSON.toJsonTree(piece));
+            }
+            rows.add(cells);
+        }
+        JsonObject board = new JsonObject();
+        board.add("board", rows);
+        JsonObject json = new JsonObject();
+        json.add("chessBoard", board);
+        json.addProperty("teamTurn", game.getTeamTurn().name());
+        json.addProperty("whiteKingHasMoved", !game.hasCastlingRight(ChessGame.TeamColor.WHITE, true) && !game.hasCastlingRight(ChessGame.TeamColor.WHITE, false));
+        json.addProperty("whiteLeftRookHasMoved", !game.hasCastlingRight(ChessGame.TeamColor.WHITE, false));
+        json.addProperty("whiteRightRookHasMoved", !game.hasCastlingRight(ChessGame.TeamColor.WHITE, true));
+        json.addProperty("blackKingHasMoved", !game.hasCastlingRight(ChessGame.TeamColor.BLACK, true) && !game.hasCastlingRight(ChessGame.TeamColor.BLACK, false));
+        json.addProperty("blackLeftRookHasMoved", !game.hasCastlingRight(ChessGame.TeamColor.BLACK, false));
+        json.addProperty("blackRightRookHasMoved", !game.hasCastlingRight(ChessGame.TeamColor.BLACK, true));
+        return json.toString();
+    }
+
+    @Test
+    @DisplayName("Games Saved Before Bitboards Load")
+    public void baselineFormat() {
+        ChessGame castled = ChessGame.fromFen("6k1/8/8/8/8/8/5PPP/5RK1 w - - 0 1");
+        String json = baselineJson(castled);
+        assertFalse(json.contains("Bitboards"));
+        ChessGame loaded = GSON.fromJson(json, ChessGame.class);
+
+        // The King is hemmed in by its own pieces
+        assertEquals(Set.of(new ChessMove(new ChessPosition(1, 7), new ChessPosition(1, 8), null)),
+                loaded.validMoves(new ChessPosition(1, 7)));
+        assertEquals(castled.getBoard(), loaded.getBoard());
+        assertEquals(castled.getBoard().hashCode(), loaded.getBoard().hashCode());
+        assertEquals(castled.positionKey(), loaded.positionKey());
+        assertEquals(castled.evaluate(), loaded.evaluate());
+        assertNotEquals(new ChessGame().getBoard(), loaded.getBoard());
+        assertNotEquals(GSON.fromJson(baselineJson(new ChessGame()), ChessGame.class).getBoard(), loaded.getBoard());
+    }
+
+    @Test
+    @DisplayName("Loaded Games Play On")
+    public void playOn() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        ChessGame loaded = GSON.fromJson(baselineJson(game), ChessGame.class);
+        assertEquals(game.toFen().substring(0, game.toFen().indexOf(' ')), loaded.toFen().substring(0, loaded.toFen().indexOf(' ')));
+
+        // Copies and moves made after loading keep the bitboards in step with the board
+        ChessGame copy = new ChessGame(loaded);
+        ChessMove e5 = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        loaded.makeMove(e5);
+        assertNull(copy.getBoard().getPiece(new ChessPosition(5, 5)));
+        // Black still has all its first moves in the copy
+        assertEquals(20, countMoves(copy));
+        game.makeMove(e5);
+        assertEquals(game.getBoard(), loaded.getBoard());
+    }
+
+    @Test
+    @DisplayName("Derived Board State Is Not Saved")
+    public void notSaved() {
+        String json = GSON.toJson(new ChessGame());
+        assertFalse(json.contains("pieceBitboards"));
+        assertFalse(json.contains("colorBitboards"));
+        assertFalse(json.contains("pieceKey"));
+        assertEquals(new ChessGame().getBoard(), GSON.fromJson(json, ChessGame.class).getBoard());
+    }
+
+    @Test
+    @DisplayName("Only The Moves Made Are Saved")
+    public void history() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessMove[] knights = {
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+                new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+                new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+                new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null)
+        };
+        // Enough moves that the history has grown, with room to spare
+        for (int ply = 0; ply < 20; ++ply) {
+            game.makeMove(knights[ply % 4]);
+        }
+        JsonObject json = GSON.toJsonTree(game).getAsJsonObject();
+        assertEquals(20, json.getAsJsonArray("history").size());
+        assertFalse(json.has("positionKeys"));
+
+        // Repetitions are still spotted after loading, and the game plays on
+        ChessGame loaded = GSON.fromJson(json, ChessGame.class);
+        assertEquals(game, loaded);
+        assertEquals(game.repetitions(), loaded.repetitions());
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, loaded.evaluateStatus());
+        loaded.makeMove(knights[0]);
+        game.makeMove(knights[0]);
+        assertEquals(game.repetitions(), loaded.repetitions());
+        loaded.unmakeMove();
+        loaded.unmakeMove();
+        assertEquals(19, loaded.getHistorySize());
+
+        // Games saved with the spare room and position keys still load
+        JsonArray padded = json.getAsJsonArray("history").deepCopy();
+        JsonArray keys = new JsonArray();
+        while (padded.size() < 32) {
+            padded.add(0);
+        }
+        for (int ply = 0; ply < 32; ++ply) {
+            keys.add(0);
+        }
+        json.add("history", padded);
+        json.add("positionKeys", keys);
+        ChessGame old = GSON.fromJson(json, ChessGame.class);
+        assertEquals(20, old.getHistorySize());
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, old.evaluateStatus());
+    }
+
+    private static int countMoves(ChessGame game) {
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        return moves.size();
+    }
+}
@@ -0,0 +1,216 @@
+import chess.*;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotTests {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private static int randomMove(ChessGame game, Random random) {
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        return moves.isEmpty() ? Move.NONE : moves.get(random.nextInt(moves.size()));
+    }
+
+    @Test
+    @DisplayName("Copies Do Not See Each Other's Moves")
+    public void copiesAreIndependent() {
+        Random random = new Random(24);
+        for (int game = 0; game < 20; ++game) {
+            ChessGame original = ChessGame.fromFen(KIWIPETE);
+            List<String> fens = new ArrayList<>();
+            for (int ply = 0; ply < 30; ++ply) {
+                String fen = original.toFen();
+                ChessGame copy = new ChessGame(original);
+                int history = copy.getHistorySize();
+
+                // Play on both, then take the copy's moves back
+                int move = randomMove(original, random);
+                if (move == Move.NONE) {
+                    break;
+                }
+                original.makeMove(move);
+                assertEquals(fen, copy.toFen());
+                int copyMove = randomMove(copy, random);
+                copy.makeMove(copyMove);
+                assertEquals(history + 1, copy.getHistorySize());
+                assertEquals(copyMove, copy.getHistoryMove(history));
+                copy.unmakeMove();
+                assertEquals(fen, copy.toFen());
+                assertEquals(new ChessGame(copy).toFen(), fen);
+                fens.add(fen);
+            }
+            // The original's own history was never written to by a copy
+            for (int ply = fens.size() - 1; ply >= 0; --ply) {
+                original.unmakeMove();
+                assertEquals(fens.get(ply), original.toFen());
+                assertEquals(original.positionKey(), ChessGame.fromFen(fens.get(ply)).positionKey());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Board Snapshots Cannot Change")
+    public void boardSnapshot() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        ChessBoard snapshot = board.snapshot();
+        assertTrue(snapshot.isSnapshot());
+        assertSame(snapshot, snapshot.snapshot());
+        assertEquals(board, snapshot);
+
+        board.movePiece(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        assertNull(snapshot.getPiece(new ChessPosition(4, 5)));
+        assertNotNull(snapshot.getPiece(new ChessPosition(2, 5)));
+        assertNotEquals(board, snapshot);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.addPiece(new ChessPosition(4, 4), null));
+
+        // A copy of a snapshot can be changed, and leaves the snapshot alone
+        ChessBoard copy = new ChessBoard(snapshot);
+        assertFalse(copy.isSnapshot());
+        copy.addPiece(new ChessPosition(2, 5), null);
+        assertNotNull(snapshot.getPiece(new ChessPosition(2, 5)));
+    }
+
+    @Test
+    @DisplayName("Game Snapshots Cannot Change")
+    public void gameSnapshot() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        ChessGame snapshot = game.snapshot();
+        String fen = game.toFen();
+        int score = game.evaluate();
+        assertTrue(snapshot.isSnapshot());
+        assertTrue(snapshot.getBoard().isSnapshot());
+        assertEquals(game.validMoves(new ChessPosition(1, 5)), snapshot.validMoves(new ChessPosition(1, 5)));
+        assertEquals(score, snapshot.evaluate());
+
+        ChessMove castle = new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 7), null);
+        game.makeMove(castle);
+        assertEquals(fen, snapshot.toFen());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.makeMove(castle));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.setTeamTurn(ChessGame.TeamColor.BLACK));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.setBoard(new ChessBoard()));
+        assertEquals(fen, snapshot.toFen());
+
+        // Playing on from a snapshot
+        ChessGame resumed = new ChessGame(snapshot);
+        resumed.makeMove(castle);
+        assertEquals(game.toFen(), resumed.toFen());
+        assertEquals(game, resumed);
+    }
+
+    @Test
+    @DisplayName("Snapshots Know Checks And Pins")
+    public void checksAndPins() {
+        // White is in check from the rook, and the knight is pinned by the bishop
+        ChessGame game = ChessGame.fromFen("4r1k1/8/8/8/1b6/8/3N4/R3K3 w - - 0 1");
+        ChessGame snapshot = game.snapshot();
+        assertTrue(snapshot.isInCheck(ChessGame.TeamColor.WHITE));
+        assertFalse(snapshot.isInCheck(ChessGame.TeamColor.BLACK));
+        for (int square = 0; square < 64; ++square) {
+            ChessPosition position = ChessPosition.fromSquare(square);
+            assertEquals(game.validMoves(position), snapshot.validMoves(position), position.toString());
+        }
+        MoveList expected = new MoveList();
+        game.legalMoves(expected);
+        MoveList moves = new MoveList();
+        snapshot.legalMoves(moves);
+        assertEquals(expected.size(), moves.size());
+        assertEquals(ChessGame.GameStatus.CHECK, snapshot.evaluateStatus());
+    }
+
+    @Test
+    @DisplayName("Readers Share A Snapshot While Moves Are Made")
+    public void concurrentReaders() throws Exception {
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        ChessGame snapshot = game.snapshot();
+        String fen = snapshot.toFen();
+        int score = snapshot.evaluate();
+        MoveList expected = new MoveList();
+        snapshot.legalMoves(expected);
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int reader = 0; reader < 4; ++reader) {
+                results.add(readers.submit(() -> {
+                    for (int i = 0; i < 2000; ++i) {
+                        MoveList moves = new MoveList();
+                        snapshot.legalMoves(moves);
+                        if (moves.size() != expected.size() || snapshot.evaluate() != score) {
+                            return false;
+                        }
+                    }
+                    return snapshot.toFen().equals(fen);
+                }));
+            }
+            // The game goes on meanwhile
+            Random random = new Random(24);
+            for (int ply = 0; ply < 2000; ++ply) {
+                int move = randomMove(game, random);
+                if (move == Move.NONE || game.getHistorySize() > 40) {
+                    game = ChessGame.fromFen(KIWIPETE);
+                    continue;
+                }
+                game.makeMove(move);
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            readers.shutdown();
+            assertTrue(readers.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshots Of Loaded Games Are Complete")
+    public void loadedSnapshot() throws Exception {
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        Gson gson = new Gson();
+        String json = gson.toJson(game);
+
+        // A loaded board has neither bitboards nor scores until first used; its snapshot must have both, since
+        // reading a snapshot never fills anything in
+        ChessGame snapshot = gson.fromJson(json, ChessGame.class).snapshot();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> scores = new ArrayList<>();
+            for (int reader = 0; reader < 4; ++reader) {
+                scores.add(readers.submit(snapshot::evaluate));
+            }
+            for (Future<Integer> score : scores) {
+                assertEquals(game.evaluate(), score.get());
+            }
+        } finally {
+            readers.shutdown();
+            assertTrue(readers.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        ChessBoard board = gson.fromJson(json, ChessGame.class).getBoard().snapshot();
+        assertEquals(game.getBoard(), board);
+    }
+
+    @Test
+    @DisplayName("Snapshots Save Like Games")
+    public void json() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        Gson gson = new Gson();
+        ChessGame loaded = gson.fromJson(gson.toJson(game.snapshot()), ChessGame.class);
+        assertFalse(loaded.isSnapshot());
+        assertEquals(game, loaded);
+        assertEquals(game.toFen(), loaded.toFen());
+        loaded.unmakeMove();
+        assertEquals(new ChessGame(), loaded);
+    }
+}
@@ -0,0 +1,143 @@
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StagedMovesTests {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    // Promotions with and without captures, and an En Passant capture for white
+    private static final String PROMOTIONS = "rn2k3/1P4P1/8/3pP3/8/8/8/4K3 w - d6 0 1";
+
+    private static Set<Integer> legalMoves(ChessGame game) {
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        Set<Integer> set = new HashSet<>();
+        for (int i = 0; i < moves.size(); ++i) {
+            set.add(moves.get(i));
+        }
+        return set;
+    }
+
+    private static StagedMoves.Stage expectedStage(int move) {
+        if (Move.isCastle(move)) {
+            return StagedMoves.Stage.CASTLING;
+        } else if (Move.isEnPassant(move)) {
+            return StagedMoves.Stage.EN_PASSANT;
+        } else if (Move.isPromotion(move)) {
+            return StagedMoves.Stage.PROMOTIONS;
+        }
+        return Move.isCapture(move) ? StagedMoves.Stage.CAPTURES : StagedMoves.Stage.QUIETS;
+    }
+
+    /**
+     * Pulls every move, checking each is in its own stage and the stages come in order
+     */
+    private static Set<Integer> stagedMoves(ChessGame game) {
+        Set<Integer> moves = new HashSet<>();
+        StagedMoves staged = game.stagedMoves();
+        StagedMoves.Stage last = StagedMoves.Stage.CAPTURES;
+        while (staged.hasNext()) {
+            int move = staged.nextInt();
+            assertEquals(expectedStage(move), staged.stage(), Move.toString(move));
+            assertTrue(staged.stage().compareTo(last) >= 0, "Stages out of order");
+            last = staged.stage();
+            assertTrue(moves.add(move), "Handed out twice: " + Move.toString(move));
+        }
+        return moves;
+    }
+
+    @Test
+    @DisplayName("Same Moves As The Full Generator")
+    public void sameMoves() {
+        Random random = new Random(22);
+        for (String fen : new String[]{new ChessGame().toFen(), KIWIPETE, PROMOTIONS}) {
+            for (int game = 0; game < 20; ++game) {
+                ChessGame chessGame = ChessGame.fromFen(fen);
+                for (int ply = 0; ply < 60; ++ply) {
+                    Set<Integer> expected = legalMoves(chessGame);
+                    assertEquals(expected, stagedMoves(chessGame), chessGame.toFen());
+                    if (expected.isEmpty()) {
+                        break;
+                    }
+                    Integer[] moves = expected.toArray(new Integer[0]);
+                    chessGame.makeMove((int) moves[random.nextInt(moves.length)]);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Only The Stages Asked For")
+    public void onlyStages() {
+        ChessGame game = ChessGame.fromFen(PROMOTIONS);
+        StagedMoves tactical = game.stagedMoves(EnumSet.of(StagedMoves.Stage.PROMOTIONS, StagedMoves.Stage.EN_PASSANT));
+        Set<Integer> moves = new HashSet<>();
+        while (tactical.hasNext()) {
+            moves.add(tactical.nextInt());
+        }
+        // Four pieces each for bxa8 and g8, since the knight blocks b8, and exd6
+        assertEquals(9, moves.size());
+        assertTrue(moves.stream().allMatch(move -> Move.isPromotion(move) || Move.isEnPassant(move)));
+
+        // Queens come first
+        StagedMoves promotions = game.stagedMoves(EnumSet.of(StagedMoves.Stage.PROMOTIONS));
+        assertEquals(ChessPiece.PieceType.QUEEN, Move.promotion(promotions.nextInt()));
+
+        StagedMoves none = game.stagedMoves(EnumSet.noneOf(StagedMoves.Stage.class));
+        assertFalse(none.hasNext());
+        assertEquals(Move.NONE, none.nextMove());
+        assertThrows(NoSuchElementException.class, none::nextInt);
+    }
+
+    @Test
+    @DisplayName("One Piece")
+    public void onePiece() {
+        ChessGame game = ChessGame.fromFen(KIWIPETE);
+        ChessPosition king = new ChessPosition(1, 5);
+        Set<ChessMove> moves = new HashSet<>();
+        StagedMoves staged = game.stagedMoves(king);
+        while (staged.hasNext()) {
+            moves.add(Move.toChessMove(staged.nextInt()));
+        }
+        assertEquals(game.validMoves(king), moves);
+
+        // Only the team to move has moves
+        assertFalse(game.stagedMoves(new ChessPosition(8, 5)).hasNext());
+    }
+
+    @Test
+    @DisplayName("Pins And Check Are Respected")
+    public void legality() {
+        // The knight is pinned and the King is in check from the rook, so only the King can move
+        ChessGame game = ChessGame.fromFen("4r1k1/8/8/8/1b6/8/3N4/R3K3 w - - 0 1");
+        assertEquals(legalMoves(game), stagedMoves(game));
+        StagedMoves staged = game.stagedMoves();
+        while (staged.hasNext()) {
+            assertNotEquals(ChessPiece.PieceType.KNIGHT, game.getBoard().getPiece(ChessPosition.fromSquare(Move.from(staged.nextInt()))).getPieceType());
+        }
+    }
+
+    @Test
+    @DisplayName("Moves Made Between Pulls")
+    public void changes() {
+        ChessGame game = new ChessGame();
+        StagedMoves staged = game.stagedMoves();
+        int first = staged.nextInt();
+
+        // Taking the move back leaves the position as it was
+        game.makeMove(first);
+        game.unmakeMove();
+        assertTrue(staged.hasNext());
+        staged.nextInt();
+
+        game.makeMove(first);
+        assertThrows(ConcurrentModificationException.class, staged::nextInt);
+    }
+}
@@ -0,0 +1,221 @@
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseGenerator;
+import chess.tablebase.TablebaseResult;
+import org.junit.jupiter.api.*;
+import passoffTests.TestFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTests {
+    private static Path directory;
+    private static Tablebase tablebase;
+
+    private static ChessGame loadGame(String boardText, ChessGame.TeamColor turn) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestFactory.loadBoard(boardText));
+        game.setTeamTurn(turn);
+        return game;
+    }
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        directory = Files.createTempDirectory("tablebase");
+        // Two threads, so the chunks are shared out even on a single core
+        TablebaseGenerator generator = new TablebaseGenerator(directory, 2);
+        generator.generate("KQK");
+        generator.generate("KRK");
+        generator.generate("KPK");
+        tablebase = Tablebase.open(directory);
+    }
+
+    @AfterAll
+    public static void deleteTables() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Tables And Their Exits Are Written")
+    public void materials() {
+        // KPK promotes into the Bishop and Knight tables too
+        assertEquals(Set.of("KBK", "KNK", "KPK", "KQK", "KRK"), tablebase.materials());
+    }
+
+    @Test
+    @DisplayName("Mate In One")
+    public void mateInOne() throws InvalidMoveException {
+        ChessGame game = loadGame("""
+                | | | | | | |k| |
+                | | | | | | | | |
+                | | | | | | |K| |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |Q| | | | | | | |
+                """, ChessGame.TeamColor.WHITE);
+        assertEquals(new TablebaseResult(TablebaseResult.Outcome.WIN, 1), tablebase.probe(game));
+
+        game.makeMove(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null));
+        assertEquals(new TablebaseResult(TablebaseResult.Outcome.LOSS, 0), tablebase.probe(game));
+    }
+
+    @Test
+    @DisplayName("Longest Rook Mate")
+    public void longestRookMate() {
+        // One of the positions a King and Rook need sixteen moves to mate from
+        ChessGame game = loadGame("""
+                | | | | | | | | |
+                | | | | | |R| | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |k| | | |
+                | | | | | | | | |
+                |K| | | | | | | |
+                """, ChessGame.TeamColor.WHITE);
+        TablebaseResult result = tablebase.probe(game);
+        assertEquals(TablebaseResult.Outcome.WIN, result.outcome());
+        assertEquals(16, result.movesToMate());
+    }
+
+    @Test
+    @DisplayName("Colors Swapped And Board Mirrored")
+    public void symmetry() {
+        TablebaseResult whiteQueen = tablebase.probe(loadGame("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | |K| | | | | |
+                | | | | | | |Q| |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.WHITE));
+        // The same position with the colors swapped and the board flipped
+        TablebaseResult blackQueen = tablebase.probe(loadGame("""
+                | | | | | | | | |
+                | | | | | | |q| |
+                | | |k| | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.BLACK));
+        // And mirrored left to right
+        TablebaseResult mirrored = tablebase.probe(loadGame("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |k| | | | |
+                | | | | | | | | |
+                | | | | | |K| | |
+                | |Q| | | | | | |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.WHITE));
+        assertEquals(TablebaseResult.Outcome.WIN, whiteQueen.outcome());
+        assertEquals(whiteQueen, blackQueen);
+        assertEquals(whiteQueen, mirrored);
+    }
+
+    @Test
+    @DisplayName("Pawn Endings")
+    public void pawnEndings() {
+        // A Rook pawn cannot win against a King in its corner
+        assertEquals(new TablebaseResult(TablebaseResult.Outcome.DRAW, 0), tablebase.probe(loadGame("""
+                |k| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |P| |K| | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.WHITE)));
+        // A King in front of its pawn with the opposition wins
+        TablebaseResult opposition = tablebase.probe(loadGame("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                | | | | |P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.BLACK));
+        assertEquals(TablebaseResult.Outcome.LOSS, opposition.outcome());
+    }
+
+    @Test
+    @DisplayName("Positions Not In The Tables")
+    public void notInTables() {
+        assertNull(tablebase.probe(new ChessGame()));
+        // Castling is still possible
+        assertNull(tablebase.probe(loadGame("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | |R|
+                """, ChessGame.TeamColor.WHITE)));
+        // KQKR was not generated
+        assertNull(tablebase.probe(loadGame("""
+                | | | | |k| | | |
+                | | | | | | | |r|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |Q| | | | |
+                | |K| | | | | | |
+                """, ChessGame.TeamColor.WHITE)));
+        // Bare Kings need no table
+        assertEquals(new TablebaseResult(TablebaseResult.Outcome.DRAW, 0), tablebase.probe(loadGame("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | |K| | | | | | |
+                """, ChessGame.TeamColor.WHITE)));
+    }
+
+    @Test
+    @DisplayName("Broken Tables And Names")
+    public void brokenTables() throws IOException {
+        Path broken = Files.createTempDirectory("tablebase");
+        Path file = broken.resolve("KQK" + Tablebase.EXTENSION);
+        try {
+            Files.write(file, new byte[100]);
+            assertThrows(IOException.class, () -> Tablebase.open(broken));
+
+            TablebaseGenerator generator = new TablebaseGenerator(directory, 1);
+            assertThrows(IllegalArgumentException.class, () -> generator.generate("KQRKR"));
+            assertThrows(IllegalArgumentException.class, () -> generator.generate("QK"));
+            assertThrows(IllegalArgumentException.class, () -> generator.generate("KXK"));
+        } finally {
+            Files.delete(file);
+            Files.delete(broken);
+        }
+    }
+}